@@ -14,17 +14,19 @@ package command;
 
 //------------------------------------------------------------------------------
 
-import java.util.ArrayList;
+import java.io.Serializable;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 
 //------------------------------------------------------------------------------
 // class Command
 //
 
-public class Command {
+public class Command implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
     
     //messages and keys used throuhout the program for commands
     public final static String EXIT_PROGRAM = "EXIT_PROGRAM";
@@ -38,11 +40,15 @@ public class Command {
     public final static String ADD_RACK = "ADD_RACK";
     public final static String BATCH = "BATCH";
     public final static String BATCH_DESCRIPTORS = "BATCH_DESCRIPTORS";
+    public final static String BATCHES = "BATCHES";
+    public final static String BATCHES_CHANGED = "BATCHES_CHANGED";
     public final static String CUSTOMER = "CUSTOMER";
     public final static String CUSTOMER_DESCRIPTORS = "CUSTOMER_DESCRIPTORS";
     public final static String CUSTOMERS = "CUSTOMERS";
+    public final static String CUSTOMERS_CHANGED = "CUSTOMERS_CHANGED";
     public final static String DELETE_CUSTOMER = "DELETE_CUSTOMER";
     public final static String DELETE_RACK = "DELETE_RACK";
+    public final static String DELETED_KEYS = "DELETED_KEYS";
     public final static String EDIT_CUSTOMER = "EDIT_CUSTOMER";
     public final static String EDIT_RACK = "EDIT_RACK";
     public final static String GET_CUSTOMERS = "GET_CUSTOMERS";
@@ -50,14 +56,18 @@ public class Command {
     public final static String GET_RACKS = "GET_RACKS";
     public final static String GET_RECEIVEMENT_DESCRIPTORS = "GET_RECIEVEMENT_DESCRIPTORS";
     public final static String GET_TRANSFER_DESCRIPTORS = "GET_TRANSFER_DESCRIPTORS";
+    public final static String JOURNALED_COMMANDS = "JOURNALED_COMMANDS";
     public final static String MOVE_BATCH = "MOVE_BATCH";
     public final static String MOVEMENT = "MOVEMENT";
     public final static String MOVEMENT_DESCRIPTORS = "MOVEMENT_DESCRIPTORS";
     public final static String RACK = "RACK";
     public final static String RACK_DESCRIPTORS = "RACK_DESCRIPTORS";
     public final static String RACKS = "RACKS";
+    public final static String RACKS_CHANGED = "RACKS_CHANGED";
     public final static String RECEIVE_BATCH = "RECEIVE_BATCH";
+    public final static String RECEIVE_BATCHES = "RECEIVE_BATCHES";
     public final static String RECEIVEMENT = "RECEIVEMENT";
+    public final static String RECEIVEMENTS = "RECEIVEMENTS";
     public final static String RECIEVEMENT_AND_BATCH_DESCRIPTORS = "RECIEVEMENT_AND_BATCH_DESCRIPTORS";
     public final static String RECIEVEMENT_DESCRIPTORS = "RECIEVEMENT_DESCRIPTORS";
     public final static String SKOONIE_KEY = "SKOONIE_KEY";
@@ -65,7 +75,8 @@ public class Command {
     public final static String TRANSFER_BATCH = "TRANSFER_BATCH";
     public final static String TRANSFER_DESCRIPTORS = "TRANSFER_DESCRIPTORS";
     
-    private final static List<CommandHandler> commandHandlers = new ArrayList<>();
+    //hands performed commands to the handlers that want them
+    private final static CommandDispatcher dispatcher = new CommandDispatcher();
     
     private String message;
     public String getMessage() { return message; }
@@ -75,6 +86,12 @@ public class Command {
     public Object get(String pKey) { return map.get(pKey); }
     public void put(String pKey, Object pValue) { map.put(pKey, pValue); }
     
+    //id used to match a reply to a command performed with performAsync();
+    //zero if nothing is waiting for a reply -- not saved with the command,
+    //since nothing can still be waiting for it once it is read back
+    private transient long replyId = 0;
+    public long getReplyId() { return replyId; }
+    
     //--------------------------------------------------------------------------
     // Command::registerHandler (static)
     //
@@ -85,13 +102,57 @@ public class Command {
     public static void registerHandler(CommandHandler pHandler)
     {
         
-        //return false if pHandler is null
-        if (pHandler == null) { return; }
+        dispatcher.subscribeToAll(pHandler);
+
+    }//end of Command::registerHandler (static)
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // Command::registerHandler (static)
+    //
+    // Registers pHandler as a command handler to be called only when a 
+    // command with pMessage is performed. These handlers are called before
+    // the handlers registered for every command.
+    //
+
+    public static void registerHandler(String pMessage, CommandHandler pHandler)
+    {
         
-        commandHandlers.add(pHandler);
+        dispatcher.subscribe(pMessage, pHandler);
 
     }//end of Command::registerHandler (static)
     //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // Command::unregisterHandler (static)
+    //
+    // Stops pHandler from being called for any command, such as when the
+    // window it belongs to is closed.
+    //
+
+    public static void unregisterHandler(CommandHandler pHandler)
+    {
+
+        dispatcher.unsubscribe(pHandler);
+
+    }//end of Command::unregisterHandler (static)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // Command::getDispatchStatistics (static)
+    //
+    // Returns a snapshot of how long performing each message has taken.
+    // key=message; value=statistics for the message
+    //
+
+    public static Map<String, CommandDispatcher.Statistics> 
+                                                    getDispatchStatistics()
+    {
+        
+        return dispatcher.getStatistics();
+
+    }//end of Command::getDispatchStatistics (static)
+    //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
     // Command::Command (constructor)
@@ -109,20 +170,94 @@ public class Command {
     // Command::perform
     //
     // Performs the command by sending it to all of the handlers registered with
-    // the Command class.
+    // the Command class for its message or for every message.
     //
 
     public void perform()
     {
         
-        //return if there are no registered handlers
-        if (commandHandlers.isEmpty()) { return; }
-        
-        for (CommandHandler h : commandHandlers) { h.handleCommand(this); }
+        dispatcher.dispatch(this);
 
     }//end of Command::perform
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // Command::performAsync
+    //
+    // Performs the command the same way as perform(), but also returns a
+    // future that is completed with the reply from whoever handles the
+    // command, instead of the reply being performed as a new command and sent
+    // to every handler.
+    //
+    // The reply must be of type pReplyType. If the handler fails, the future
+    // is completed with its error; if there is no reply within pTimeout
+    // milliseconds, it is completed with a TimeoutException.
+    //
+    // The future may be completed on any thread -- use something like
+    // thenAcceptAsync(..., SwingUtilities::invokeLater) to touch the GUI.
+    //
+
+    public <T> CompletableFuture<T> performAsync(Class<T> pReplyType, 
+                                                    long pTimeout)
+    {
+        
+        CompletableFuture<T> future = new CompletableFuture<>();
+        
+        replyId = CommandReplies.register(future, pReplyType, pTimeout);
+        
+        perform();
+        
+        return future;
+
+    }//end of Command::performAsync
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // Command::isWaitingForReply
+    //
+    // Returns true if the command was performed with performAsync() and 
+    // hasn't been replied to, failed, or timed out yet.
+    //
+
+    public boolean isWaitingForReply()
+    {
+        
+        return replyId != 0 && CommandReplies.isWaiting(replyId);
+
+    }//end of Command::isWaitingForReply
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // Command::reply
+    //
+    // Sends pPayload to whoever performed this command with performAsync().
+    // Returns false if nobody is waiting for a reply, in which case the caller
+    // should fall back to performing its result as a normal command.
+    //
+
+    public boolean reply(Object pPayload)
+    {
+        
+        return replyId != 0 && CommandReplies.complete(replyId, pPayload);
+
+    }//end of Command::reply
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // Command::replyWithError
+    //
+    // Tells whoever performed this command with performAsync() that it failed
+    // with pError. Returns false if nobody is waiting for a reply.
+    //
+
+    public boolean replyWithError(Throwable pError)
+    {
+        
+        return replyId != 0 && CommandReplies.fail(replyId, pError);
+
+    }//end of Command::replyWithError
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // Command::copy
     //
@@ -134,6 +269,7 @@ public class Command {
     {
         
         Command c = new Command(message);
+        c.replyId = replyId;
         for (Map.Entry<String, Object> e : map.entrySet()) {
             c.put(e.getKey(), e.getValue());
         }
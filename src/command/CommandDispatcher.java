@@ -0,0 +1,267 @@
+/******************************************************************************
+* Title: CommandDispatcher.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class hands performed commands to the handlers that want them.
+*
+* Handlers subscribe either to specific messages, in which case they are only
+* given commands with those messages, or to all messages. The handlers for a
+* message are found with one hash lookup instead of every handler checking
+* every command. Handlers subscribed to specific messages are called before
+* handlers subscribed to all of them. Handlers can be unsubscribed at any
+* time, even while a command is being dispatched to them.
+*
+* The time taken to dispatch each message is counted so that slow messages
+* can be found with getStatistics().
+*
+* Commands can be dispatched from any thread.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package command;
+
+//------------------------------------------------------------------------------
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+//------------------------------------------------------------------------------
+// class CommandDispatcher
+//
+
+public class CommandDispatcher {
+
+    //key=message; value=handlers subscribed to the message
+    private final Map<String, List<CommandHandler>> subscribers
+                                                = new ConcurrentHashMap<>();
+
+    //handlers subscribed to all messages
+    private final List<CommandHandler> allSubscribers
+                                                = new CopyOnWriteArrayList<>();
+
+    //key=message; value=dispatch times for the message
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    //--------------------------------------------------------------------------
+    // CommandDispatcher::dispatch
+    //
+    // Hands pCommand to the handlers subscribed to its message and then to
+    // the handlers subscribed to all messages.
+    //
+
+    public void dispatch(Command pCommand)
+    {
+
+        long start = System.nanoTime();
+
+        List<CommandHandler> handlers = subscribers.get(pCommand.getMessage());
+
+        if (handlers != null) {
+            for (CommandHandler h : handlers) { h.handleCommand(pCommand); }
+        }
+
+        for (CommandHandler h : allSubscribers) { h.handleCommand(pCommand); }
+
+        counters.computeIfAbsent(pCommand.getMessage(), (k) -> new Counter())
+                                            .add(System.nanoTime() - start);
+
+    }//end of CommandDispatcher::dispatch
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandDispatcher::getStatistics
+    //
+    // Returns a snapshot of the dispatch times of every message dispatched so
+    // far, sorted by message.
+    //
+
+    public Map<String, Statistics> getStatistics()
+    {
+
+        Map<String, Statistics> stats = new TreeMap<>();
+
+        for (Map.Entry<String, Counter> e : counters.entrySet()) {
+            Counter c = e.getValue();
+            stats.put(e.getKey(), new Statistics(c.count.get(),
+                                        c.totalNanos.get(), c.maxNanos.get()));
+        }
+
+        return stats;
+
+    }//end of CommandDispatcher::getStatistics
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandDispatcher::subscribe
+    //
+    // Subscribes pHandler to commands with pMessage.
+    //
+
+    public void subscribe(String pMessage, CommandHandler pHandler)
+    {
+
+        if (pHandler == null) { return; }
+
+        subscribers.computeIfAbsent(pMessage,
+                                (k) -> new CopyOnWriteArrayList<>()).add(pHandler);
+
+    }//end of CommandDispatcher::subscribe
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandDispatcher::subscribeToAll
+    //
+    // Subscribes pHandler to commands with any message.
+    //
+
+    public void subscribeToAll(CommandHandler pHandler)
+    {
+
+        if (pHandler == null) { return; }
+
+        allSubscribers.add(pHandler);
+
+    }//end of CommandDispatcher::subscribeToAll
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandDispatcher::unsubscribe
+    //
+    // Unsubscribes pHandler from every message it is subscribed to.
+    //
+
+    public void unsubscribe(CommandHandler pHandler)
+    {
+
+        for (List<CommandHandler> handlers : subscribers.values()) {
+            handlers.remove(pHandler);
+        }
+
+        allSubscribers.remove(pHandler);
+
+    }//end of CommandDispatcher::unsubscribe
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // class CommandDispatcher::Counter
+    //
+    // Running dispatch times for one message.
+    //
+
+    private static class Counter {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        //----------------------------------------------------------------------
+        // Counter::add
+        //
+        // Counts one dispatch that took pNanos.
+        //
+
+        void add(long pNanos)
+        {
+
+            count.incrementAndGet();
+            totalNanos.addAndGet(pNanos);
+
+            long max;
+            while (pNanos > (max=maxNanos.get())
+                    && !maxNanos.compareAndSet(max, pNanos)) { }
+
+        }//end of Counter::add
+        //----------------------------------------------------------------------
+
+    }//end of class CommandDispatcher::Counter
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // class CommandDispatcher::Statistics
+    //
+    // Immutable snapshot of the dispatch times of one message.
+    //
+
+    public static class Statistics {
+
+        private final long count;
+        public long getCount() { return count; }
+
+        private final long totalNanos;
+        private final long maxNanos;
+
+        //----------------------------------------------------------------------
+        // Statistics::Statistics (constructor)
+        //
+
+        public Statistics(long pCount, long pTotalNanos, long pMaxNanos)
+        {
+
+            count = pCount;
+            totalNanos = pTotalNanos;
+            maxNanos = pMaxNanos;
+
+        }//end of Statistics::Statistics (constructor)
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Statistics::getAverageTime
+        //
+        // Returns the average time, in milliseconds, that a dispatch took.
+        //
+
+        public double getAverageTime()
+        {
+
+            return count == 0 ? 0 : totalNanos / (count * 1000000.0);
+
+        }//end of Statistics::getAverageTime
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Statistics::getMaxTime
+        //
+        // Returns the longest time, in milliseconds, that a dispatch took.
+        //
+
+        public double getMaxTime()
+        {
+
+            return maxNanos / 1000000.0;
+
+        }//end of Statistics::getMaxTime
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Statistics::toString
+        //
+
+        @Override
+        public String toString()
+        {
+
+            return String.format("count=%d average=%.3fms max=%.3fms",
+                                    count, getAverageTime(), getMaxTime());
+
+        }//end of Statistics::toString
+        //----------------------------------------------------------------------
+
+    }//end of class CommandDispatcher::Statistics
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+
+}//end of class CommandDispatcher
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
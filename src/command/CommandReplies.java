@@ -0,0 +1,195 @@
+/******************************************************************************
+* Title: CommandReplies.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class keeps track of the commands performed with
+* Command.performAsync() that are still waiting for a reply.
+*
+* Each waiting command has a reply id, which is carried along by the command
+* and its copies, and a future that is completed when whoever handles the
+* command replies to it, fails it, or doesn't answer in time.
+*
+* It is used from many threads at once.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package command;
+
+//------------------------------------------------------------------------------
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+//------------------------------------------------------------------------------
+// class CommandReplies
+//
+
+class CommandReplies {
+
+    //times out the commands that take too long
+    private final static ScheduledExecutorService timer
+        = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread t = new Thread(r, "Command Reply Timer");
+            t.setDaemon(true);
+            return t;
+        });
+
+    private final static AtomicLong nextId = new AtomicLong(1);
+
+    //key=reply id; value=command waiting for a reply
+    private final static Map<Long, Waiting> waiting
+                                                = new ConcurrentHashMap<>();
+
+    //--------------------------------------------------------------------------
+    // CommandReplies::complete (static)
+    //
+    // Completes the future waiting for pId with pPayload, which must be of
+    // the type the waiter asked for. Returns false if nothing was waiting,
+    // because it already got its reply or timed out.
+    //
+
+    static boolean complete(long pId, Object pPayload)
+    {
+
+        Waiting w = waiting.remove(pId);
+
+        if (w == null) { return false; }
+
+        if (w.timeout != null) { w.timeout.cancel(false); }
+
+        try { w.future.complete(pPayload==null ? null : w.cast(pPayload)); }
+        catch (ClassCastException e) { w.future.completeExceptionally(e); }
+
+        return true;
+
+    }//end of CommandReplies::complete (static)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandReplies::fail (static)
+    //
+    // Completes the future waiting for pId with pError. Returns false if
+    // nothing was waiting.
+    //
+
+    static boolean fail(long pId, Throwable pError)
+    {
+
+        Waiting w = waiting.remove(pId);
+
+        if (w == null) { return false; }
+
+        if (w.timeout != null) { w.timeout.cancel(false); }
+
+        w.future.completeExceptionally(pError);
+
+        return true;
+
+    }//end of CommandReplies::fail (static)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandReplies::isWaiting (static)
+    //
+    // Returns true if something is still waiting for a reply for pId.
+    //
+
+    static boolean isWaiting(long pId)
+    {
+
+        return waiting.containsKey(pId);
+
+    }//end of CommandReplies::isWaiting (static)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandReplies::register (static)
+    //
+    // Returns a new reply id and stores pFuture to be completed when the reply
+    // comes. If it doesn't come within pTimeout milliseconds, pFuture is
+    // completed with a TimeoutException.
+    //
+
+    static <T> long register(CompletableFuture<T> pFuture, Class<T> pType,
+                                long pTimeout)
+    {
+
+        long id = nextId.getAndIncrement();
+
+        Waiting w = new Waiting(pFuture, pType);
+
+        //stored before the timer starts so that the timer can't go off before
+        //there is anything to time out
+        waiting.put(id, w);
+
+        w.timeout = timer.schedule(() -> {
+            fail(id, new TimeoutException("No reply in " + pTimeout + " ms"));
+        }, pTimeout, TimeUnit.MILLISECONDS);
+
+        return id;
+
+    }//end of CommandReplies::register (static)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // class CommandReplies::Waiting
+    //
+    // A future waiting for a reply and the type it wants.
+    //
+
+    private static class Waiting {
+
+        private final CompletableFuture<Object> future;
+        private final Class<?> type;
+
+        //null until the timer is started
+        private volatile ScheduledFuture<?> timeout;
+
+        //----------------------------------------------------------------------
+        // Waiting::Waiting (constructor)
+        //
+
+        @SuppressWarnings("unchecked")
+        Waiting(CompletableFuture<?> pFuture, Class<?> pType)
+        {
+
+            future = (CompletableFuture<Object>)pFuture;
+            type = pType;
+
+        }//end of Waiting::Waiting (constructor)
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Waiting::cast
+        //
+        // Returns pPayload as the type wanted, or throws ClassCastException.
+        //
+
+        Object cast(Object pPayload)
+        {
+
+            return type.cast(pPayload);
+
+        }//end of Waiting::cast
+        //----------------------------------------------------------------------
+
+    }//end of class CommandReplies::Waiting
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+
+}//end of class CommandReplies
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
@@ -47,7 +47,9 @@ import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
+import javax.swing.SwingUtilities;
 import model.MainModel;
+import model.StartupTimer;
 
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
@@ -58,7 +60,7 @@ public class MainController implements CommandHandler
 {
     
     private final MainModel model = new MainModel();
-    private CommandHandler downStream;
+    private MainView view;
 
     //--------------------------------------------------------------------------
     // MainController::MainController (constructor)
@@ -79,19 +81,35 @@ public class MainController implements CommandHandler
     public void init()
     {
         
-        //register this as a command handler -- should be the only registered
-        //one throughout the entire program
-        Command.registerHandler(this);
+        StartupTimer timer = new StartupTimer();
+        
+        //register this as a command handler for only the commands it handles
+        //-- model and view register themselves for the commands they handle
+        Command.registerHandler(Command.EXIT_PROGRAM, this);
         
         //set up the logger
         setupJavaLogger();
         
         //set up the model
+        long start = System.nanoTime();
         model.init();
+        timer.logPhase("Model", start);
+        
+        //get the connection and the data the windows need ready while the
+        //GUI is being built
+        model.warmUp(timer);
 
         //set up the view
-        downStream = new MainView();
-        ((MainView)downStream).init();
+        start = System.nanoTime();
+        view = new MainView();
+        view.init();
+        timer.logPhase("GUI", start);
+        
+        //the window is usable once the events queued while building it,
+        //including painting it, have been handled
+        SwingUtilities.invokeLater(() -> { 
+            timer.logStartup("First usable window");
+        });
 
     }// end of MainController::init
     //--------------------------------------------------------------------------
@@ -101,9 +119,6 @@ public class MainController implements CommandHandler
     //
     // Performs different actions depending on pCommand.
     //
-    // Command will always be sent down the chain to view after handling has
-    // been done here.
-    //
 
     @Override
     public void handleCommand(Command pCommand)
@@ -113,13 +128,6 @@ public class MainController implements CommandHandler
         if (pCommand.getMessage().equals(Command.EXIT_PROGRAM)) { 
             System.exit(0);
         }
-        
-        //pass the command to model -- if he doesn't need to do anything
-        //then he won't
-        model.handleCommand(pCommand);
-        
-        //pass the command down the stream to view
-        downStream.handleCommand(pCommand);
 
     }//end of MainController::commandPerformed
     //--------------------------------------------------------------------------
@@ -222,6 +230,9 @@ public class MainController implements CommandHandler
 
             //record all log messages
             Logger.getLogger("").setLevel(Level.WARNING);
+            
+            //except the startup times, which are only information
+            Logger.getLogger(StartupTimer.LOGGER_NAME).setLevel(Level.INFO);
 
         }
         catch(IOException e){ }
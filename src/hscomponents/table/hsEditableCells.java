@@ -0,0 +1,286 @@
+/*******************************************************************************
+* Title: hsEditableCells.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class keeps track of which cells of an hsTableModel are editable,
+* using bits instead of a boolean for every cell.
+*
+* Each column has an editable flag, which is what new rows get. A row can
+* override the column flags for all of its cells, and a single cell can
+* override both. Only the rows and cells that have actually been overridden
+* take up any room, so adding rows costs nothing and adding a column only
+* touches the rows that have been overridden.
+*
+* Setting a row or column replaces whatever was set before for its cells, the
+* same as if every cell had been set one at a time.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package hscomponents.table;
+
+//------------------------------------------------------------------------------
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class hsEditableCells
+//
+
+class hsEditableCells
+{
+
+    private final boolean editableDefault;
+
+    //bit is set if the column is editable
+    private final BitSet columns = new BitSet();
+
+    //bit is set if the row overrides the column flags
+    private final BitSet rowOverridden = new BitSet();
+    //bit is set if the overridden row is editable
+    private final BitSet rowValues = new BitSet();
+
+    //key=row; value=bits set for the cells in the row that are overridden
+    private final Map<Integer, BitSet> cellOverridden = new HashMap<>();
+    //key=row; value=bits set for the overridden cells that are editable
+    private final Map<Integer, BitSet> cellValues = new HashMap<>();
+
+    //--------------------------------------------------------------------------
+    // hsEditableCells::hsEditableCells (constructor)
+    //
+    // pEditableDefault is whether or not new columns are editable.
+    //
+
+    public hsEditableCells(boolean pEditableDefault)
+    {
+
+        editableDefault = pEditableDefault;
+
+    }//end of hsEditableCells::hsEditableCells (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsEditableCells::clearRows
+    //
+    // Removes all of the row and cell overrides, leaving only the column
+    // flags. Used when all of the rows are replaced.
+    //
+
+    public void clearRows()
+    {
+
+        rowOverridden.clear();
+        rowValues.clear();
+        cellOverridden.clear();
+        cellValues.clear();
+
+    }//end of hsEditableCells::clearRows
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsEditableCells::deleteBits
+    //
+    // Removes bits pFirst through pLast (inclusive) from pBits, moving the bits
+    // after them down.
+    //
+
+    private static void deleteBits(BitSet pBits, int pFirst, int pLast)
+    {
+
+        int length = pBits.length();
+        if (length <= pFirst) { return; }
+
+        BitSet tail = pBits.get(Math.min(pLast+1, length), length);
+
+        pBits.clear(pFirst, length);
+
+        for (int i=tail.nextSetBit(0); i>=0; i=tail.nextSetBit(i+1)) {
+            pBits.set(pFirst + i);
+        }
+
+    }//end of hsEditableCells::deleteBits
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsEditableCells::deleteRows
+    //
+    // Removes the overrides of rows pFirst through pLast (inclusive) and moves
+    // the overrides of the rows after them up.
+    //
+
+    public void deleteRows(int pFirst, int pLast)
+    {
+
+        deleteBits(rowOverridden, pFirst, pLast);
+        deleteBits(rowValues, pFirst, pLast);
+
+        shiftRows(cellOverridden, pFirst, pLast);
+        shiftRows(cellValues, pFirst, pLast);
+
+    }//end of hsEditableCells::deleteRows
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsEditableCells::insertBit
+    //
+    // Inserts a bit with pValue at pIndex in pBits, moving the bits at and
+    // after pIndex up one.
+    //
+
+    private static void insertBit(BitSet pBits, int pIndex, boolean pValue)
+    {
+
+        for (int i=pBits.length(); i>pIndex; i--) {
+            pBits.set(i, pBits.get(i-1));
+        }
+
+        pBits.set(pIndex, pValue);
+
+    }//end of hsEditableCells::insertBit
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsEditableCells::insertColumn
+    //
+    // Inserts a column at pIndex, moving the columns at and after pIndex over
+    // one. All of the cells in the new column get the default.
+    //
+
+    public void insertColumn(int pIndex)
+    {
+
+        insertBit(columns, pIndex, editableDefault);
+
+        for (Map.Entry<Integer, BitSet> e : cellOverridden.entrySet()) {
+            insertBit(e.getValue(), pIndex, false);
+            insertBit(cellValues.get(e.getKey()), pIndex, false);
+        }
+
+        //overridden rows would give the new cells their own flag instead
+        for (int r=rowOverridden.nextSetBit(0); r>=0;
+                r=rowOverridden.nextSetBit(r+1)) {
+            if (rowValues.get(r) != editableDefault) {
+                setCell(r, pIndex, editableDefault);
+            }
+        }
+
+    }//end of hsEditableCells::insertColumn
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsEditableCells::isEditable
+    //
+    // Return true if the cell at pRow and pCol is editable.
+    //
+
+    public boolean isEditable(int pRow, int pCol)
+    {
+
+        BitSet overridden = cellOverridden.get(pRow);
+        if (overridden != null && overridden.get(pCol)) {
+            return cellValues.get(pRow).get(pCol);
+        }
+
+        if (rowOverridden.get(pRow)) { return rowValues.get(pRow); }
+
+        return columns.get(pCol);
+
+    }//end of hsEditableCells::isEditable
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsEditableCells::shiftRows
+    //
+    // Removes rows pFirst through pLast (inclusive) from pCells and moves the
+    // rows after them up.
+    //
+
+    private static void shiftRows(Map<Integer, BitSet> pCells, int pFirst, 
+                                    int pLast)
+    {
+
+        Map<Integer, BitSet> shifted = new HashMap<>();
+
+        for (Map.Entry<Integer, BitSet> e : pCells.entrySet()) {
+            int row = e.getKey();
+            if (row < pFirst) { shifted.put(row, e.getValue()); }
+            else if (row > pLast) {
+                shifted.put(row - (pLast-pFirst+1), e.getValue());
+            }
+        }
+
+        pCells.clear();
+        pCells.putAll(shifted);
+
+    }//end of hsEditableCells::shiftRows
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsEditableCells::setCell
+    //
+    // Sets the cell at pRow and pCol to editable or uneditable.
+    //
+
+    public void setCell(int pRow, int pCol, boolean pBool)
+    {
+
+        cellOverridden.computeIfAbsent(pRow, (k) -> new BitSet()).set(pCol);
+        cellValues.computeIfAbsent(pRow, (k) -> new BitSet()).set(pCol, pBool);
+
+    }//end of hsEditableCells::setCell
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsEditableCells::setColumn
+    //
+    // Sets all of the cells in pCol to editable or uneditable.
+    //
+
+    public void setColumn(int pCol, boolean pBool)
+    {
+
+        columns.set(pCol, pBool);
+
+        //earlier cell overrides in this column are replaced
+        for (Map.Entry<Integer, BitSet> e : cellOverridden.entrySet()) {
+            e.getValue().clear(pCol);
+        }
+
+        //overridden rows would keep their own flag for this column
+        for (int r=rowOverridden.nextSetBit(0); r>=0;
+                r=rowOverridden.nextSetBit(r+1)) {
+            if (rowValues.get(r) != pBool) { setCell(r, pCol, pBool); }
+        }
+
+    }//end of hsEditableCells::setColumn
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsEditableCells::setRow
+    //
+    // Sets all of the cells in pRow to editable or uneditable.
+    //
+
+    public void setRow(int pRow, boolean pBool)
+    {
+
+        rowOverridden.set(pRow);
+        rowValues.set(pRow, pBool);
+
+        //earlier cell overrides in this row are replaced
+        cellOverridden.remove(pRow);
+        cellValues.remove(pRow);
+
+    }//end of hsEditableCells::setRow
+    //--------------------------------------------------------------------------
+
+}//end of class hsEditableCells
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
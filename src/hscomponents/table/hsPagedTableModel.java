@@ -0,0 +1,270 @@
+/*******************************************************************************
+* Title: hsPagedTableModel.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class is a read-only table model that gets its rows from an
+* hsRowSource a page at a time, only when the table asks for them.
+*
+* Since a table only asks for the rows it is painting, only the visible pages
+* are ever loaded. Pages are kept in a small least recently used cache so that
+* scrolling back and forth doesn't load the same pages over and over, and
+* everything else is left in the source.
+*
+* When the source changes, the owner tells the model which rows changed using
+* one of the rows...() functions, or refresh() if everything changed. Each of
+* these throws away the affected pages and fires a single event for all of the
+* rows, instead of one event per row.
+*
+* Must only be used from the event dispatch thread.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package hscomponents.table;
+
+//------------------------------------------------------------------------------
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.table.AbstractTableModel;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class hsPagedTableModel
+//
+
+public class hsPagedTableModel extends AbstractTableModel
+{
+
+    private final String[] columnNames;
+
+    private final hsRowSource source;
+
+    private final int pageSize;
+    private final int maxPages;
+
+    private int rowCount = 0;
+
+    //key=page number; value=rows in the page
+    //access ordered so that the least recently used page is first
+    private final Map<Integer, List<Object[]>> pages;
+
+    //--------------------------------------------------------------------------
+    // hsPagedTableModel::hsPagedTableModel (constructor)
+    //
+    // pPageSize is the number of rows gotten from pSource at a time; pMaxPages
+    // is the most pages kept at once. pMaxPages should be more than the number
+    // of pages that can be visible at once.
+    //
+
+    public hsPagedTableModel(String[] pColumnNames, hsRowSource pSource,
+                                int pPageSize, int pMaxPages)
+    {
+
+        columnNames = pColumnNames.clone();
+        source = pSource;
+        pageSize = Math.max(1, pPageSize);
+        maxPages = Math.max(1, pMaxPages);
+
+        pages = new LinkedHashMap<Integer, List<Object[]>>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(
+                                    Map.Entry<Integer, List<Object[]>> pEldest)
+            {
+                return size() > maxPages;
+            }
+        };
+
+    }//end of hsPagedTableModel::hsPagedTableModel (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsPagedTableModel::dropPagesFrom
+    //
+    // Throws away the page containing pRow and every page after it.
+    //
+
+    private void dropPagesFrom(int pRow)
+    {
+
+        int first = pRow / pageSize;
+
+        Iterator<Integer> i = pages.keySet().iterator();
+        while (i.hasNext()) { if (i.next() >= first) { i.remove(); } }
+
+    }//end of hsPagedTableModel::dropPagesFrom
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsPagedTableModel::getColumnCount
+    //
+    // Return the number of columns.
+    //
+
+    @Override
+    public int getColumnCount()
+    {
+
+        return columnNames.length;
+
+    }//end of hsPagedTableModel::getColumnCount
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsPagedTableModel::getColumnName
+    //
+    // Return the name of the specified column.
+    //
+
+    @Override
+    public String getColumnName(int pCol)
+    {
+
+        return columnNames[pCol];
+
+    }//end of hsPagedTableModel::getColumnName
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsPagedTableModel::getLoadedPageCount
+    //
+    // Return the number of pages currently held in memory.
+    //
+
+    public int getLoadedPageCount()
+    {
+
+        return pages.size();
+
+    }//end of hsPagedTableModel::getLoadedPageCount
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsPagedTableModel::getRowCount
+    //
+    // Return the number of rows, as of the last time the model was told about
+    // a change.
+    //
+
+    @Override
+    public int getRowCount()
+    {
+
+        return rowCount;
+
+    }//end of hsPagedTableModel::getRowCount
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsPagedTableModel::getValueAt
+    //
+    // Return the value of the specified cell, getting the page it is in from
+    // the source if the page isn't already loaded. Returns null if the source
+    // doesn't have the cell.
+    //
+
+    @Override
+    public Object getValueAt(int pRow, int pCol)
+    {
+
+        int page = pRow / pageSize;
+
+        List<Object[]> rows = pages.get(page);
+
+        if (rows == null) {
+            rows = source.getRows(page*pageSize, pageSize);
+            pages.put(page, rows);
+        }
+
+        int i = pRow - page*pageSize;
+        if (i >= rows.size() || pCol >= rows.get(i).length) { return null; }
+
+        return rows.get(i)[pCol];
+
+    }//end of hsPagedTableModel::getValueAt
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsPagedTableModel::refresh
+    //
+    // Throws away all of the pages, gets the row count from the source again,
+    // and fires one event saying that all of the data changed.
+    //
+
+    public void refresh()
+    {
+
+        pages.clear();
+
+        rowCount = source.getRowCount();
+
+        fireTableDataChanged();
+
+    }//end of hsPagedTableModel::refresh
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsPagedTableModel::rowsChanged
+    //
+    // Tells the model that rows pFirst through pLast (inclusive) have changed
+    // in the source.
+    //
+
+    public void rowsChanged(int pFirst, int pLast)
+    {
+
+        for (int p=pFirst/pageSize; p<=pLast/pageSize; p++) { pages.remove(p); }
+
+        fireTableRowsUpdated(pFirst, pLast);
+
+    }//end of hsPagedTableModel::rowsChanged
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsPagedTableModel::rowsDeleted
+    //
+    // Tells the model that rows pFirst through pLast (inclusive) have been
+    // removed from the source. The rows after them have moved up.
+    //
+
+    public void rowsDeleted(int pFirst, int pLast)
+    {
+
+        dropPagesFrom(pFirst);
+
+        rowCount = source.getRowCount();
+
+        fireTableRowsDeleted(pFirst, pLast);
+
+    }//end of hsPagedTableModel::rowsDeleted
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsPagedTableModel::rowsInserted
+    //
+    // Tells the model that rows pFirst through pLast (inclusive) have been
+    // inserted into the source. The rows after them have moved down.
+    //
+
+    public void rowsInserted(int pFirst, int pLast)
+    {
+
+        dropPagesFrom(pFirst);
+
+        rowCount = source.getRowCount();
+
+        fireTableRowsInserted(pFirst, pLast);
+
+    }//end of hsPagedTableModel::rowsInserted
+    //--------------------------------------------------------------------------
+
+}//end of class hsPagedTableModel
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
@@ -0,0 +1,38 @@
+/*******************************************************************************
+* Title: hsRowSource.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This interface is used by hsPagedTableModel to get rows only when they are
+* needed, a page at a time, instead of holding every row of the table.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package hscomponents.table;
+
+//------------------------------------------------------------------------------
+
+import java.util.List;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// interface hsRowSource
+//
+
+public interface hsRowSource
+{
+
+    //returns the total number of rows
+    public int getRowCount();
+
+    //returns up to pCount rows starting at pFirstRow; each row is an array of
+    //values, one for each column
+    public List<Object[]> getRows(int pFirstRow, int pCount);
+
+}//end of interface hsRowSource
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
@@ -0,0 +1,82 @@
+/*******************************************************************************
+* Title: hsRowStripes.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class holds the colors that the rows of a table cycle through, so that
+* the color of any row can be looked up with one array access while the table
+* is painting instead of walking a list for every cell.
+*
+* A stripes object never changes. When the colors change, a new one is made.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package hscomponents.table;
+
+//------------------------------------------------------------------------------
+
+import java.awt.Color;
+import java.util.List;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class hsRowStripes
+//
+
+public class hsRowStripes
+{
+
+    private final Color[] colors;
+
+    //--------------------------------------------------------------------------
+    // hsRowStripes::hsRowStripes (constructor)
+    //
+    // Every row will be pColor.
+    //
+
+    public hsRowStripes(Color pColor)
+    {
+
+        colors = new Color[] { pColor };
+
+    }//end of hsRowStripes::hsRowStripes (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsRowStripes::hsRowStripes (constructor)
+    //
+    // The rows will cycle through pColors, starting with the first color at
+    // row 0. The colors are copied.
+    //
+
+    public hsRowStripes(List<Color> pColors)
+    {
+
+        colors = pColors.toArray(new Color[pColors.size()]);
+
+    }//end of hsRowStripes::hsRowStripes (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsRowStripes::getColor
+    //
+    // Returns the color of pRow, or null if there are no colors.
+    //
+
+    public Color getColor(int pRow)
+    {
+
+        if (colors.length == 0) { return null; }
+
+        return colors[pRow % colors.length];
+
+    }//end of hsRowStripes::getColor
+    //--------------------------------------------------------------------------
+
+}//end of class hsRowStripes
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
@@ -18,10 +18,13 @@ package hscomponents.table;
 import java.awt.Color;
 import java.awt.Component;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import javax.swing.BorderFactory;
 import javax.swing.JComponent;
 import javax.swing.JTable;
+import javax.swing.border.Border;
 import javax.swing.table.TableCellRenderer;
 
 //------------------------------------------------------------------------------
@@ -52,6 +55,14 @@ public class hsTable extends JTable
     boolean alternateRowForegrounds = false;
     List<Color> alternateRowForegroundColors = new ArrayList<>();
     
+    //the colors above, worked out ahead of time so that painting a cell only
+    //has to look its color up
+    hsRowStripes backgroundStripes = new hsRowStripes(Color.WHITE);
+    hsRowStripes foregroundStripes = new hsRowStripes(Color.BLACK);
+    
+    //every cell gets the same border, so only one is ever made
+    static final Border cellBorder = BorderFactory.createEmptyBorder(0,10,0,10);
+    
     //--------------------------------------------------------------------------
     // hsTable::hsTable (constructor)
     //
@@ -82,6 +93,8 @@ public class hsTable extends JTable
         
         //the alternate row foreground colors list is not populated because
         //by default, the foreground colors are not alternated
+        
+        updateStripes();
 
     }//end of hsTable::init
     //--------------------------------------------------------------------------
@@ -131,10 +144,7 @@ public class hsTable extends JTable
         
         JComponent comp = (JComponent)super.prepareRenderer(pRen, pRow, pCol); 
         
-        //give the cell no border
-        comp.setBorder(null);
-        
-        comp.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 10));
+        comp.setBorder(cellBorder);
         
         //if component is in the selected row, return the
         //component without making any more changes
@@ -177,6 +187,53 @@ public class hsTable extends JTable
     }//end of hsTable::addRow
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // hsTable::addRows
+    //
+    // Adds a row to the table for each list in the passed in list, causing
+    // only one relayout.
+    //
+
+    public void addRows(List<List<Object>> pRows)
+    {
+        
+        model.addRows(pRows);
+
+    }//end of hsTable::addRows
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // hsTable::applyChanges
+    //
+    // Inserts, updates, and deletes rows all at once. See
+    // hsTableModel::applyChanges.
+    //
+
+    public void applyChanges(List<List<Object>> pInserted, 
+                                Map<Integer, List<Object>> pUpdated,
+                                Collection<Integer> pDeleted)
+    {
+        
+        model.applyChanges(pInserted, pUpdated, pDeleted);
+
+    }//end of hsTable::applyChanges
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // hsTable::replaceAll
+    //
+    // Replaces all of the rows in the table with the passed in rows, causing
+    // only one relayout.
+    //
+
+    public void replaceAll(List<List<Object>> pRows)
+    {
+        
+        model.replaceAll(pRows);
+
+    }//end of hsTable::replaceAll
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // hsTable::addColumn
     //
@@ -217,6 +274,8 @@ public class hsTable extends JTable
     {
         
         alternateRowBackgroundColors = pColors;
+        
+        updateStripes();
 
     }//end of hsTable::changeAlternateRowBackgroundColors
     //--------------------------------------------------------------------------
@@ -232,6 +291,8 @@ public class hsTable extends JTable
     {
         
         alternateRowForegroundColors = pColors;
+        
+        updateStripes();
 
     }//end of hsTable::changeAlternateRowForegroundColors
     //--------------------------------------------------------------------------
@@ -277,6 +338,8 @@ public class hsTable extends JTable
     {
         
         alternateRowBackgrounds = pAlternate;
+        
+        updateStripes();
 
     }//end of hsTable::setAlternateRowBackgroundColors
     //--------------------------------------------------------------------------
@@ -294,6 +357,8 @@ public class hsTable extends JTable
     {
         
         alternateRowForegrounds = pAlternate;
+        
+        updateStripes();
 
     }//end of hsTable::setAlternateRowForegroundColors
     //--------------------------------------------------------------------------
@@ -307,31 +372,8 @@ public class hsTable extends JTable
     private void setBackgroundColorOfRow(JComponent comp, int pRow)
     {
         
-        //set the background color to the row background color
-        //if the background colors should not be alternated
-        if (!alternateRowBackgrounds) { 
-            comp.setBackground(rowBackgroundColor);
-        }
-        //determine and set the background color of the row 
-        //based on the row background number
-        else {
-            int size = alternateRowBackgroundColors.size();
-            if (size == 0) { return; }
-            
-            Color c;
-            if (pRow < size) { c = alternateRowBackgroundColors.get(pRow); }
-            else { 
-                
-                int multiple = 0;
-                while (size*(multiple+1) <= pRow) { ++multiple; }
-                
-                int num = pRow - size*multiple;
-                c = alternateRowBackgroundColors.get(num);
-                
-            }
-
-            comp.setBackground(c);
-        }
+        Color c = backgroundStripes.getColor(pRow);
+        if (c != null) { comp.setBackground(c); }
 
     }//end of hsTable::setBackgroundColorOfRow
     //--------------------------------------------------------------------------
@@ -371,31 +413,8 @@ public class hsTable extends JTable
     private void setForegroundColorOfRow(JComponent comp, int pRow)
     {
         
-        //set the foreground color to the row foreground color
-        //if the foreground colors should not be alternated
-        if (!alternateRowForegrounds) { 
-            comp.setForeground(rowForegroundColor);
-        }
-        //determine and set the background color of the row 
-        //based on the row background number
-        else {
-            int size = alternateRowForegroundColors.size();
-            if (size == 0) { return; }
-            
-            Color c;
-            if (pRow < size) { c = alternateRowForegroundColors.get(pRow); }
-            else { 
-                
-                int multiple = 0;
-                while (size*(multiple+1) <= pRow) { ++multiple; }
-                
-                int num = pRow - size*multiple;
-                c = alternateRowForegroundColors.get(num);
-                
-            }
-
-            comp.setBackground(c);
-        }
+        Color c = foregroundStripes.getColor(pRow);
+        if (c != null) { comp.setForeground(c); }
 
     }//end of hsTable::setForegroundColorOfRow
     //--------------------------------------------------------------------------
@@ -413,6 +432,29 @@ public class hsTable extends JTable
     }//end of hsTable::setRowEditable
     //--------------------------------------------------------------------------
 
+    //--------------------------------------------------------------------------
+    // hsTable::updateStripes
+    //
+    // Works out the background and foreground colors of the rows again. Must
+    // be called whenever the row colors or whether they alternate change.
+    //
+
+    private void updateStripes()
+    {
+        
+        if (alternateRowBackgrounds) {
+            backgroundStripes = new hsRowStripes(alternateRowBackgroundColors);
+        }
+        else { backgroundStripes = new hsRowStripes(rowBackgroundColor); }
+        
+        if (alternateRowForegrounds) {
+            foregroundStripes = new hsRowStripes(alternateRowForegroundColors);
+        }
+        else { foregroundStripes = new hsRowStripes(rowForegroundColor); }
+        
+    }//end of hsTable::updateStripes
+    //--------------------------------------------------------------------------
+
 }//end of class hsTable
 //-----------------------------------------------------------------------------
 //-----------------------------------------------------------------------------
\ No newline at end of file
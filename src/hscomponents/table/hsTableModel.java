@@ -16,7 +16,9 @@ package hscomponents.table;
 //------------------------------------------------------------------------------
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import javax.swing.table.AbstractTableModel;
 
 //------------------------------------------------------------------------------
@@ -33,18 +35,17 @@ public class hsTableModel extends AbstractTableModel
     List<List<Object>> tableData = new ArrayList<>();
     
     boolean editableDefault = false;
-    //row by column (outer is rows, inner is columns)
-    //used to contain booleans determining whether or
-    //not a cell is editable
-    List<List<Boolean>> editableCell = new ArrayList<>();
     
-    //used to store booleans representing whether or
-    //not each row should be editable
-    List<Boolean> editableRow = new ArrayList<>();
+    //which cells are editable
+    hsEditableCells editables = new hsEditableCells(editableDefault);
     
-    //used to store booleans representing whether or
-    //not each column should be editable
-    List<Boolean> editableColumn = new ArrayList<>();
+    //classes of the columns, worked out from the first row the first time
+    //they are asked for; null when they need to be worked out again
+    Class<?>[] columnClasses;
+    
+    //if a change would take more range events than this, one event saying
+    //that all of the data changed is fired instead
+    static final int MAX_RANGE_EVENTS = 32;
     
     //--------------------------------------------------------------------------
     // hsTableModel::init
@@ -68,9 +69,23 @@ public class hsTableModel extends AbstractTableModel
     public Class<?> getColumnClass(int pCol)
     {
         
-        if (tableData.isEmpty()) { return Object.class; }
+        if (columnClasses == null) {
+            
+            columnClasses = new Class<?>[columnNames.size()];
+            
+            List<Object> first = tableData.isEmpty() ? null : tableData.get(0);
+            
+            for (int i=0; i<columnClasses.length; i++) {
+                Object v = (first == null || i >= first.size()) 
+                                                        ? null : first.get(i);
+                columnClasses[i] = v == null ? Object.class : v.getClass();
+            }
+            
+        }
         
-        return tableData.get(0).get(pCol).getClass();
+        if (pCol >= columnClasses.length) { return Object.class; }
+        
+        return columnClasses[pCol];
         
     }//end of hsTableModel::getColumnClass
     //--------------------------------------------------------------------------
@@ -145,7 +160,7 @@ public class hsTableModel extends AbstractTableModel
     @Override
     public boolean isCellEditable(int pRow, int pCol) {
 
-        return editableCell.get(pRow).get(pCol);
+        return editables.isEditable(pRow, pCol);
         
     }//end of hsTableModel::isCellEditable
     //--------------------------------------------------------------------------
@@ -162,6 +177,8 @@ public class hsTableModel extends AbstractTableModel
         
         tableData.get(pRow).set(pCol, pVal);
         
+        if (pRow == 0) { columnClasses = null; }
+        
         //notify listeners that the cell has been updated
         fireTableCellUpdated(pRow,pCol);
             
@@ -178,7 +195,8 @@ public class hsTableModel extends AbstractTableModel
     {
         
         columnNames.add(pName);
-        addColumnToEditables();
+        editables.insertColumn(columnNames.size()-1);
+        columnClasses = null;
         fireTableStructureChanged();
 
     }//end of hsTableModel::addColumn
@@ -195,62 +213,152 @@ public class hsTableModel extends AbstractTableModel
     {
         
         columnNames.add(pPos, pName);
-        addColumnToEditables();
+        editables.insertColumn(pPos);
+        columnClasses = null;
         fireTableStructureChanged();
 
     }//end of hsTableModel::addColumn
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // hsTableModel::addColumnToEditables
+    // hsTableModel::addRow
     //
-    // Adds a new column to the editable lists.
+    // Adds a row to the model using the passed in list.
     //
 
-    private void addColumnToEditables() 
+    public void addRow(List<Object> pVals) 
     {
         
-        editableColumn.add(editableDefault);
+        tableData.add(pVals);
+        
+        if (tableData.size() == 1) { columnClasses = null; }
         
-        for (List<Boolean> col : editableCell) { col.add(editableDefault); }
+        fireTableRowsInserted(tableData.size()-1, tableData.size()-1);
 
-    }//end of hsTableModel::addColumnToEditables
+    }//end of hsTableModel::addRow
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // hsTableModel::addRow
+    // hsTableModel::addRows
     //
-    // Adds a row to the model using the passed in list.
+    // Adds a row to the model for each list in the passed in list, firing a
+    // single event for all of them.
     //
 
-    public void addRow(List<Object> pVals) 
+    public void addRows(List<List<Object>> pRows) 
     {
         
-        tableData.add(pVals);
+        if (pRows.isEmpty()) { return; }
         
-        addRowToEditables();
+        int first = tableData.size();
         
-        fireTableRowsInserted(tableData.size()-1, tableData.size()-1);
+        tableData.addAll(pRows);
+        
+        if (first == 0) { columnClasses = null; }
+        
+        fireTableRowsInserted(first, tableData.size()-1);
 
-    }//end of hsTableModel::addRow
+    }//end of hsTableModel::addRows
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // hsTableModel::applyChanges
+    //
+    // Applies a set of changes to the rows and fires as few events as 
+    // possible for them: one for each run of neighboring rows that changed, 
+    // or a single event for all of the data if that would be too many.
+    //
+    // pUpdated is the new values of existing rows; key=row.
+    // pDeleted is the rows to remove.
+    // pInserted is the new rows, which are added at the end.
+    //
+    // Row numbers are the row numbers before any changes are made. Updates 
+    // are applied first, then deletes, then inserts.
+    //
+
+    public void applyChanges(List<List<Object>> pInserted, 
+                                Map<Integer, List<Object>> pUpdated,
+                                Collection<Integer> pDeleted) 
+    {
+        
+        int[] updated = sortedRows(pUpdated.keySet());
+        int[] deleted = sortedRows(pDeleted);
+        
+        boolean tooMany = countRuns(updated) + countRuns(deleted) 
+                            + (pInserted.isEmpty() ? 0 : 1) > MAX_RANGE_EVENTS;
+        
+        for (int r : updated) { tableData.set(r, pUpdated.get(r)); }
+        if (!tooMany) { fireRuns(updated); }
+        
+        //delete from the bottom up so that the rows above don't move
+        for (int i=deleted.length-1; i>=0; ) {
+            
+            int last = deleted[i];
+            int first = last;
+            while (--i >= 0 && deleted[i] == first-1) { first--; }
+            
+            tableData.subList(first, last+1).clear();
+            editables.deleteRows(first, last);
+            
+            if (!tooMany) { fireTableRowsDeleted(first, last); }
+            
+        }
+        
+        int firstInserted = tableData.size();
+        tableData.addAll(pInserted);
+        
+        columnClasses = null;
+        
+        if (tooMany) { fireTableDataChanged(); }
+        else if (!pInserted.isEmpty()) {
+            fireTableRowsInserted(firstInserted, tableData.size()-1);
+        }
+
+    }//end of hsTableModel::applyChanges
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // hsTableModel::addRowToEditables
+    // hsTableModel::countRuns
     //
-    // Adds a new row to the editable lists.
+    // Returns the number of runs of neighboring rows in pRows, which must be
+    // sorted.
     //
 
-    private void addRowToEditables() 
+    private static int countRuns(int[] pRows) 
     {
         
-        editableRow.add(editableDefault);
+        int runs = 0;
+        
+        for (int i=0; i<pRows.length; i++) {
+            if (i == 0 || pRows[i] != pRows[i-1]+1) { runs++; }
+        }
+        
+        return runs;
+
+    }//end of hsTableModel::countRuns
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // hsTableModel::fireRuns
+    //
+    // Fires one rows updated event for each run of neighboring rows in pRows,
+    // which must be sorted.
+    //
+
+    private void fireRuns(int[] pRows) 
+    {
         
-        List<Boolean> cols = new ArrayList<>();
-        for (Boolean b : editableColumn) { cols.add(b); }
-        editableCell.add(cols);
+        for (int i=0; i<pRows.length; ) {
+            
+            int first = pRows[i];
+            int last = first;
+            while (++i < pRows.length && pRows[i] == last+1) { last++; }
+            
+            fireTableRowsUpdated(first, last);
+            
+        }
 
-    }//end of hsTableModel::addRowToEditables
+    }//end of hsTableModel::fireRuns
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
@@ -264,6 +372,8 @@ public class hsTableModel extends AbstractTableModel
         
         tableData.set(pRow, pVals);
         
+        if (pRow == 0) { columnClasses = null; }
+        
         //notify listeners that the row has been updated
         fireTableRowsUpdated(pRow, pRow);
 
@@ -284,6 +394,28 @@ public class hsTableModel extends AbstractTableModel
     }//end of hsTableModel::getValuesOfRow
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // hsTableModel::replaceAll
+    //
+    // Replaces all of the rows with the rows in pRows, firing a single event.
+    // Rows and cells that were set to editable or uneditable go back to 
+    // using their column's setting.
+    //
+
+    public void replaceAll(List<List<Object>> pRows) 
+    {
+        
+        tableData = new ArrayList<>(pRows);
+        
+        editables.clearRows();
+        
+        columnClasses = null;
+        
+        fireTableDataChanged();
+
+    }//end of hsTableModel::replaceAll
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // hsTableModel::setCellEditable
     //
@@ -292,7 +424,7 @@ public class hsTableModel extends AbstractTableModel
     
     public void setCellEditable(int pRow, int pCol, boolean pBool) {
 
-        editableCell.get(pRow).set(pCol, pBool);
+        editables.setCell(pRow, pCol, pBool);
         
     }//end of hsTableModel::setCellEditable
     //--------------------------------------------------------------------------
@@ -305,13 +437,26 @@ public class hsTableModel extends AbstractTableModel
     
     public void setColumnEditable(int pCol, boolean pBool) {
         
-        editableColumn.set(pCol, pBool);
-
-        for (List<Boolean> l : editableCell) { l.set(pCol, pBool); }
+        editables.setColumn(pCol, pBool);
         
     }//end of hsTableModel::setColumnEditable
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // hsTableModel::sortedRows
+    //
+    // Returns the rows in pRows sorted, without duplicates.
+    //
+
+    private static int[] sortedRows(Collection<Integer> pRows) 
+    {
+        
+        return pRows.stream().mapToInt(Integer::intValue)
+                                                .sorted().distinct().toArray();
+
+    }//end of hsTableModel::sortedRows
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // hsTableModel::setRowEditable
     //
@@ -320,11 +465,7 @@ public class hsTableModel extends AbstractTableModel
     
     public void setRowEditable(int pRow, boolean pBool) {
         
-        editableRow.set(pRow, pBool);
-        
-        for (int i=0; i<editableCell.get(pRow).size(); i++) {
-            editableCell.get(pRow).set(i, pBool);
-        }
+        editables.setRow(pRow, pBool);
         
     }//end of hsTableModel::setRowEditable
     //--------------------------------------------------------------------------
@@ -0,0 +1,387 @@
+/*******************************************************************************
+* Title: hsTableSearch.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class filters and sorts the rows of a table on a background thread so
+* that typing in a search box never holds up the event dispatch thread.
+*
+* When it is given the rows with setData(), it copies the values and builds a
+* sort index for every column. Each search then produces the numbers of the
+* matching rows, sorted by the sort column, and hands them to the listener on
+* the event dispatch thread. The listener uses them as a view of the rows.
+*
+* Rows can be matched two ways:
+*   substring   a row matches if any of its values contains the query
+*   prefix      a row matches if its value in the sort column starts with
+*               the query; found with a binary search of the sort index
+*
+* When a query only adds to the end of the previous query (as it does while
+* typing), only the rows that matched the previous query are checked again.
+*
+* If searches are asked for faster than they can be done, the ones that are
+* already out of date when their turn comes are skipped, and results that are
+* out of date by the time they are done are thrown away.
+*
+* The setters and search() must be called from the event dispatch thread.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package hscomponents.table;
+
+//------------------------------------------------------------------------------
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class hsTableSearch
+//
+
+public class hsTableSearch
+{
+
+    //one thread does all of the searching for all of the tables, which keeps
+    //the search state below confined to that thread
+    private static final ExecutorService executor
+        = Executors.newSingleThreadExecutor((r) -> {
+            Thread t = new Thread(r, "Table Search");
+            t.setDaemon(true);
+            return t;
+        });
+
+    private final Listener listener;
+
+    //number of the latest search asked for
+    private final AtomicInteger latest = new AtomicInteger();
+
+    //set on the event dispatch thread and handed to each search
+    private String query = "";
+    private int sortColumn = 0;
+    private boolean prefixMatching = false;
+
+    //only used by the search thread
+
+    //[column][row], in lower case
+    private String[][] values;
+
+    //[column][n] the row numbers sorted by their values in the column
+    private int[][] sortIndexes;
+
+    //the last search done, for narrowing
+    private String lastQuery;
+    private int lastSortColumn;
+    private boolean lastPrefixMatching;
+    private int[] lastResult;
+
+    //--------------------------------------------------------------------------
+    // hsTableSearch::hsTableSearch (constructor)
+    //
+
+    public hsTableSearch(Listener pListener)
+    {
+
+        listener = pListener;
+
+    }//end of hsTableSearch::hsTableSearch (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsTableSearch::buildSortIndex
+    //
+    // Returns the row numbers sorted by their values in pColumn.
+    //
+
+    private int[] buildSortIndex(String[] pColumn)
+    {
+
+        Integer[] rows = new Integer[pColumn.length];
+        for (int i=0; i<rows.length; i++) { rows[i] = i; }
+
+        Arrays.sort(rows, (a, b) -> pColumn[a].compareTo(pColumn[b]));
+
+        int[] index = new int[rows.length];
+        for (int i=0; i<index.length; i++) { index[i] = rows[i]; }
+
+        return index;
+
+    }//end of hsTableSearch::buildSortIndex
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsTableSearch::containsQuery
+    //
+    // Returns true if any of the values of pRow contain pQuery.
+    //
+
+    private boolean containsQuery(int pRow, String pQuery)
+    {
+
+        for (String[] column : values) {
+            if (column[pRow].contains(pQuery)) { return true; }
+        }
+
+        return false;
+
+    }//end of hsTableSearch::containsQuery
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsTableSearch::filter
+    //
+    // Returns the numbers of the rows that match pQuery, sorted by
+    // pSortColumn, or null if pQuery is empty, meaning all of the rows in
+    // their original order.
+    //
+    // Runs on the search thread.
+    //
+
+    private int[] filter(String pQuery, int pSortColumn, boolean pPrefix)
+    {
+
+        if (values == null || pQuery.isEmpty() || values.length == 0) {
+            lastQuery = null;
+            return null;
+        }
+
+        String q = pQuery.toLowerCase();
+        int col = Math.min(Math.max(0, pSortColumn), values.length-1);
+
+        int[] result;
+
+        if (pPrefix) { result = findPrefix(q, col); }
+        else {
+
+            //a longer version of the last query can only match rows that
+            //the last query matched
+            boolean narrowing = lastQuery != null && q.startsWith(lastQuery)
+                                    && col == lastSortColumn
+                                    && !lastPrefixMatching;
+
+            int[] candidates = narrowing ? lastResult : sortIndexes[col];
+
+            int[] matches = new int[candidates.length];
+            int count = 0;
+            for (int row : candidates) {
+                if (containsQuery(row, q)) { matches[count++] = row; }
+            }
+
+            result = Arrays.copyOf(matches, count);
+
+        }
+
+        lastQuery = q;
+        lastSortColumn = col;
+        lastPrefixMatching = pPrefix;
+        lastResult = result;
+
+        return result;
+
+    }//end of hsTableSearch::filter
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsTableSearch::findPrefix
+    //
+    // Returns the rows whose values in pColumn start with pPrefix. Since the
+    // sort index is sorted by those values, the matches are all next to each
+    // other and can be found with two binary searches.
+    //
+
+    private int[] findPrefix(String pPrefix, int pColumn)
+    {
+
+        int[] index = sortIndexes[pColumn];
+        String[] column = values[pColumn];
+
+        //first value not less than the prefix
+        int lo = 0, hi = index.length;
+        while (lo < hi) {
+            int mid = (lo+hi) >>> 1;
+            if (column[index[mid]].compareTo(pPrefix) < 0) { lo = mid+1; }
+            else { hi = mid; }
+        }
+        int first = lo;
+
+        //first value past the prefix
+        hi = index.length;
+        while (lo < hi) {
+            int mid = (lo+hi) >>> 1;
+            if (column[index[mid]].startsWith(pPrefix)) { lo = mid+1; }
+            else { hi = mid; }
+        }
+
+        return Arrays.copyOfRange(index, first, lo);
+
+    }//end of hsTableSearch::findPrefix
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsTableSearch::load
+    //
+    // Copies the values of all of the rows in pSource and builds the sort
+    // indexes.
+    //
+    // Runs on the search thread.
+    //
+
+    private void load(hsRowSource pSource, int pColumnCount)
+    {
+
+        List<Object[]> rows = pSource.getRows(0, pSource.getRowCount());
+
+        String[][] vals = new String[pColumnCount][rows.size()];
+
+        for (int r=0; r<rows.size(); r++) {
+            Object[] row = rows.get(r);
+            for (int c=0; c<pColumnCount; c++) {
+                Object v = c < row.length ? row[c] : null;
+                vals[c][r] = v == null ? "" : v.toString().toLowerCase();
+            }
+        }
+
+        int[][] indexes = new int[pColumnCount][];
+        for (int c=0; c<pColumnCount; c++) {
+            indexes[c] = buildSortIndex(vals[c]);
+        }
+
+        values = vals;
+        sortIndexes = indexes;
+        lastQuery = null;
+
+    }//end of hsTableSearch::load
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsTableSearch::search
+    //
+    // Searches for the rows that match pQuery. The result is handed to the
+    // listener when it is done.
+    //
+
+    public void search(String pQuery)
+    {
+
+        query = pQuery == null ? "" : pQuery;
+
+        submit(null, 0);
+
+    }//end of hsTableSearch::search
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsTableSearch::setData
+    //
+    // Replaces the rows being searched with the rows in pSource, which have
+    // pColumnCount columns, and searches them again with the current query.
+    //
+    // pSource is read on the search thread, so it must not be changed
+    // afterwards -- give this a copy.
+    //
+
+    public void setData(hsRowSource pSource, int pColumnCount)
+    {
+
+        submit(pSource, pColumnCount);
+
+    }//end of hsTableSearch::setData
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsTableSearch::setPrefixMatching
+    //
+    // Sets whether rows are matched by prefix of the sort column (true) or by
+    // substring of any column (false), and searches again.
+    //
+
+    public void setPrefixMatching(boolean pPrefix)
+    {
+
+        prefixMatching = pPrefix;
+
+        submit(null, 0);
+
+    }//end of hsTableSearch::setPrefixMatching
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsTableSearch::setSortColumn
+    //
+    // Sets the column that matching rows are sorted by, and searches again.
+    //
+
+    public void setSortColumn(int pColumn)
+    {
+
+        sortColumn = pColumn;
+
+        submit(null, 0);
+
+    }//end of hsTableSearch::setSortColumn
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // hsTableSearch::submit
+    //
+    // Hands a search to the search thread. If pSource is not null, the rows
+    // in it are loaded first; loading is never skipped, even if the search
+    // is.
+    //
+
+    private void submit(hsRowSource pSource, int pColumnCount)
+    {
+
+        int number = latest.incrementAndGet();
+
+        String q = query;
+        int col = sortColumn;
+        boolean prefix = prefixMatching;
+
+        executor.execute(() -> {
+
+            if (pSource != null) { load(pSource, pColumnCount); }
+
+            //a newer search is waiting, so don't bother
+            if (number != latest.get()) { return; }
+
+            int[] result = filter(q, col, prefix);
+
+            SwingUtilities.invokeLater(() -> {
+                if (number == latest.get()) { listener.searchDone(result); }
+            });
+
+        });
+
+    }//end of hsTableSearch::submit
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // interface hsTableSearch::Listener
+    //
+    // Is handed the result of each search on the event dispatch thread.
+    // pRows are the numbers of the matching rows, in order, or null if all of
+    // the rows should be shown in their original order.
+    //
+
+    public interface Listener
+    {
+
+        public void searchDone(int[] pRows);
+
+    }//end of interface hsTableSearch::Listener
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+
+}//end of class hsTableSearch
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
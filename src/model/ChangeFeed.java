@@ -0,0 +1,441 @@
+/*******************************************************************************
+* Title: ChangeFeed.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class keeps track of changes made to records in the database so that
+* only the records that changed have to be sent to the windows showing them,
+* instead of the windows loading whole tables over again.
+*
+* Every time a record is added, edited, or deleted, a row naming the table, 
+* the record, and what happened is added to the CHANGE_LOG table. That should
+* be done in the same transaction as the change itself so that a change can
+* never be made without being logged. Skoonie keys in CHANGE_LOG are handed 
+* out in increasing order, so they are used as a high-water mark: poll() 
+* returns everything logged since the last time it was called.
+*
+* Keys are handed out when a change is logged but only become visible when its
+* transaction commits, so a change can show up after others with larger keys.
+* To catch those, each poll looks back LOOKBACK keys below the high-water mark
+* and skips the ones it has already seen.
+*
+* The CHANGE_LOG table is created by makeReady() if it does not already exist.
+* Creating a table ends any open transaction in MySQL, so makeReady() is only
+* ever called outside of transactions -- once when the program starts, and by
+* poll() until it has worked. Recording a change never creates the table.
+*
+* Rows more than KEPT keys below the high-water mark are deleted by poll()
+* every PRUNE_INTERVAL, so the table doesn't grow forever. KEPT is much larger
+* than LOOKBACK so that other workstations polling a little behind this one
+* don't miss anything. The newest row for each table is never deleted, since
+* it holds the table's version.
+*
+* The database is never used while this object's monitor is held. A thread
+* recording a change is usually in a transaction, holding locks in the
+* database, so it must never have to wait for a thread that is polling, and a
+* thread polling must never wait for the database while holding something
+* that a thread in a transaction needs.
+*
+* The largest key logged for a table also serves as the table's version, for
+* telling whether cached copies of it are stale: see getTableVersions(). It is
+* found with the index on table_name and skoonie_key, without reading the
+* table itself. A table with nothing logged has version "0". Pruning keeps the
+* newest row for each table, so it never changes a version, and a table that
+* has been logged can never go back to "0".
+*
+* Changes made by programs that don't write to CHANGE_LOG will not be seen,
+* and don't change the versions.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model;
+
+//------------------------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import model.database.DatabaseEntry;
+import model.database.DatabaseError;
+import model.database.Database;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class ChangeFeed
+//
+
+public class ChangeFeed
+{
+    
+    public static final String TABLE = "CHANGE_LOG";
+    
+    public static final String ADDED = "ADDED";
+    public static final String EDITED = "EDITED";
+    public static final String DELETED = "DELETED";
+    
+    private final Database db;
+    
+    //number of keys below the high-water mark checked again by each poll
+    private static final long LOOKBACK = 100;
+    
+    //number of keys below the high-water mark that are never deleted
+    private static final long KEPT = 10000;
+    
+    //milliseconds between deleting old rows
+    private static final long PRUNE_INTERVAL = 10 * 60 * 1000;
+    
+    //when old rows were last deleted; only used by the polling thread
+    private long lastPruned = 0;
+    
+    private volatile boolean ready = false;
+    
+    //largest skoonie key of the changes seen so far
+    private long highWaterMark;
+    
+    //keys of the changes seen within LOOKBACK of the high-water mark
+    private final TreeSet<Long> recentlySeen = new TreeSet<>();
+
+    //--------------------------------------------------------------------------
+    // ChangeFeed::ChangeFeed (constructor)
+    //
+
+    public ChangeFeed(Database pDatabase)
+    {
+        
+        db = pDatabase;
+
+    }//end of ChangeFeed::ChangeFeed (constructor)
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ChangeFeed::createChangeEntry
+    //
+    // Creates and returns a CHANGE_LOG entry saying that pType (ADDED, EDITED,
+    // or DELETED) happened to the record with pRecordKey in pTable.
+    //
+
+    private DatabaseEntry createChangeEntry(String pTable, String pRecordKey,
+                                                String pType)
+    {
+        
+        DatabaseEntry entry = new DatabaseEntry();
+        entry.storeColumn("table_name", pTable);
+        entry.storeColumn("record_key", pRecordKey);
+        entry.storeColumn("change_type", pType);
+        
+        return entry;
+
+    }//end of ChangeFeed::createChangeEntry
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ChangeFeed::getTablesVersion
+    //
+    // Returns a string that changes whenever any of pTables change. See
+    // getTableVersions().
+    //
+    // Must be connected to the database before calling.
+    //
+
+    public String getTablesVersion(Collection<String> pTables)
+        throws DatabaseError
+    {
+        
+        return getTablesVersion(getTableVersions(pTables));
+
+    }//end of ChangeFeed::getTablesVersion
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ChangeFeed::getTablesVersion (static)
+    //
+    // Returns the version string for pVersions, which were retrieved with
+    // getTableVersions().
+    //
+
+    public static String getTablesVersion(Map<String, String> pVersions)
+    {
+        
+        StringBuilder version = new StringBuilder();
+        
+        for (Map.Entry<String, String> v : new TreeMap<>(pVersions).entrySet()) {
+            version.append(v.getKey()).append("=")
+                    .append(v.getValue()).append(";");
+        }
+        
+        return version.toString();
+
+    }//end of ChangeFeed::getTablesVersion (static)
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ChangeFeed::getTableVersions
+    //
+    // Returns the version of each of pTables: the largest key logged for it,
+    // or "0" if nothing has been logged for it. A table's version changes
+    // whenever a change to it is recorded.
+    // key=table name; value=version
+    //
+    // Must be connected to the database before calling.
+    //
+
+    public Map<String, String> getTableVersions(Collection<String> pTables)
+        throws DatabaseError
+    {
+        
+        Map<String, String> versions = new TreeMap<>();
+        for (String t : pTables) { versions.put(t, "0"); }
+        
+        versions.putAll(db.getMaxSkoonieKeys(TABLE, "table_name", pTables));
+        
+        return versions;
+
+    }//end of ChangeFeed::getTableVersions
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ChangeFeed::makeReady
+    //
+    // Creates the CHANGE_LOG table if it doesn't exist and starts the
+    // high-water mark at the last change already logged, so that the first
+    // poll() only returns changes made from now on. Does nothing after the
+    // first time it succeeds.
+    //
+    // Creating a table ends any open transaction in MySQL, so this must not
+    // be called in a transaction. It is called when the program starts, and
+    // again by poll() if that failed.
+    //
+    // Must be connected to the database before calling.
+    //
+
+    public void makeReady()
+        throws DatabaseError
+    {
+        
+        if (ready) { return; }
+        
+        if (!db.tableExists(TABLE)) {
+            db.createTable(TABLE, new String[] {
+                "`skoonie_key` INT NOT NULL AUTO_INCREMENT PRIMARY KEY",
+                "`table_name` VARCHAR(64) NOT NULL",
+                "`record_key` VARCHAR(64) NOT NULL",
+                "`change_type` VARCHAR(16) NOT NULL",
+                "INDEX `table_version` (`table_name`, `skoonie_key`)"
+            });
+        }
+        
+        long mark = Long.parseLong(db.getMaxSkoonieKey(TABLE));
+        
+        //the changes already logged are not news
+        Set<Long> seen = new HashSet<>();
+        String floor = Long.toString(Math.max(0, mark - LOOKBACK));
+        for (DatabaseEntry e : db.getEntriesAfter(TABLE, floor)) {
+            seen.add(Long.parseLong(e.getValue("skoonie_key")));
+        }
+        
+        synchronized (this) {
+            if (ready) { return; }
+            highWaterMark = mark;
+            recentlySeen.addAll(seen);
+            ready = true;
+        }
+
+    }//end of ChangeFeed::makeReady
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ChangeFeed::poll
+    //
+    // Returns all of the changes logged since the last time this was called,
+    // grouped by table. 
+    // key=table name; value=changes to that table
+    //
+    // If a record changed more than once, only the last change counts. Since
+    // changes can show up out of order, the caller should read the current
+    // state of changed records rather than trust the type of change.
+    //
+    // Should only be called by one thread, outside of any transaction.
+    //
+    // Must be connected to the database before calling.
+    //
+
+    public Map<String, Changes> poll()
+        throws DatabaseError
+    {
+        
+        makeReady();
+        
+        long floor;
+        synchronized (this) { floor = Math.max(0, highWaterMark - LOOKBACK); }
+        
+        List<DatabaseEntry> entries 
+                            = db.getEntriesAfter(TABLE, Long.toString(floor));
+        
+        Map<String, Changes> changes = new HashMap<>();
+        
+        synchronized (this) {
+            
+            for (DatabaseEntry e : entries) {
+
+                long id = Long.parseLong(e.getValue("skoonie_key"));
+
+                //skip changes that have already been returned
+                if (!recentlySeen.add(id)) { continue; }
+
+                highWaterMark = Math.max(highWaterMark, id);
+
+                String table = e.getValue("table_name");
+                String key = e.getValue("record_key");
+
+                Changes c = changes.get(table);
+                if (c == null) { c = new Changes(); changes.put(table, c); }
+
+                //a later change always wins over an earlier one
+                c.changed.remove(key);
+                c.deleted.remove(key);
+
+                if (e.getValue("change_type").equals(DELETED)) { 
+                    c.deleted.add(key);
+                }
+                else { c.changed.add(key); }
+
+            }
+
+            //forget keys that have fallen out of the look back
+            recentlySeen.headSet(highWaterMark - LOOKBACK, true).clear();
+            
+        }
+        
+        prune();
+        
+        return changes;
+
+    }//end of ChangeFeed::poll
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ChangeFeed::prune
+    //
+    // Deletes the rows more than KEPT keys below the high-water mark, except
+    // the newest row for each table, if it has been PRUNE_INTERVAL since that
+    // was last done. Must only be called
+    // by the polling thread, outside of any transaction.
+    //
+    // Failures are only logged, since the changes from the poll have already
+    // been taken and would be lost; it is tried again next interval.
+    //
+
+    private void prune()
+    {
+        
+        long now = System.currentTimeMillis();
+        
+        if (now - lastPruned < PRUNE_INTERVAL) { return; }
+        
+        lastPruned = now;
+        
+        long floor;
+        synchronized (this) { floor = highWaterMark - KEPT; }
+        
+        if (floor <= 0) { return; }
+        
+        //the newest row for each table is its version, so it is never
+        //deleted, however old it is
+        try {
+            db.deleteEntriesBefore(TABLE, Long.toString(floor), "table_name");
+        }
+        catch (DatabaseError e) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                                    e.getMessage() + " - Error: 1024");
+        }
+
+    }//end of ChangeFeed::prune
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ChangeFeed::recordChange
+    //
+    // Logs that pType (ADDED, EDITED, or DELETED) happened to the record with
+    // pRecordKey in pTable.
+    //
+    // This takes no locks of its own, so a transaction is never kept waiting
+    // on a poll.
+    //
+    // Must be connected to the database before calling, and should be called
+    // in the same transaction as the change.
+    //
+
+    public void recordChange(String pTable, String pRecordKey, String pType)
+        throws DatabaseError
+    {
+        
+        db.insertEntry(createChangeEntry(pTable, pRecordKey, pType), TABLE);
+
+    }//end of ChangeFeed::recordChange
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ChangeFeed::recordChanges
+    //
+    // Logs that pType (ADDED, EDITED, or DELETED) happened to all of the 
+    // records with pRecordKeys in pTable, with a single batched insert.
+    //
+    // Takes no locks of its own, just like recordChange().
+    //
+    // Must be connected to the database before calling, and should be called
+    // in the same transaction as the changes.
+    //
+
+    public void recordChanges(String pTable, List<?> pRecordKeys, 
+                                String pType)
+        throws DatabaseError
+    {
+        
+        List<DatabaseEntry> entries = new ArrayList<>(pRecordKeys.size());
+        
+        for (Object key : pRecordKeys) {
+            entries.add(createChangeEntry(pTable, key.toString(), pType));
+        }
+        
+        db.insertEntries(entries, TABLE);
+
+    }//end of ChangeFeed::recordChanges
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // class ChangeFeed::Changes
+    //
+    // The keys of the records in one table that were added or edited and of
+    // the ones that were deleted. A key is never in both.
+    //
+
+    public static class Changes
+    {
+        
+        private final Set<String> changed = new LinkedHashSet<>();
+        public Set<String> getChanged() { return changed; }
+        
+        private final Set<String> deleted = new LinkedHashSet<>();
+        public Set<String> getDeleted() { return deleted; }
+        
+    }//end of class ChangeFeed::Changes
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+
+}//end of class ChangeFeed
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
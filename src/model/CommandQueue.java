@@ -0,0 +1,375 @@
+/*******************************************************************************
+* Title: CommandQueue.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class queues commands to be handled by a pool of worker threads.
+*
+* Every command is submitted with an ordering key. Commands with the same key
+* always go to the same worker and are handled in the order they were
+* submitted; commands with different keys can be handled at the same time by
+* different workers. For example, all commands touching one batch use that
+* batch's key so that a move and a transfer of the same batch can never be
+* handled out of order.
+*
+* Each worker has its own bounded queue. When a worker's queue is full,
+* submit() waits up to submitTimeout for room, which slows down whoever is
+* producing commands too quickly instead of letting the queue grow forever.
+* If there is still no room, the command is rejected. Producers that must
+* never wait, such as the event dispatch thread, use offer() instead, which
+* rejects the command straight away if the queue is full.
+*
+* Statistics about the queues can be retrieved at any time with
+* getStatistics().
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model;
+
+//------------------------------------------------------------------------------
+
+import command.Command;
+import command.CommandHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class CommandQueue
+//
+
+public class CommandQueue
+{
+
+    private final CommandHandler handler;
+
+    private final int numberOfWorkers;
+    private final int capacityPerWorker;
+
+    //milliseconds submit() will wait for room in a full queue
+    private long submitTimeout = 5000;
+    public void setSubmitTimeout(long pTime) { submitTimeout = pTime; }
+
+    private final List<BlockingQueue<Command>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    //statistics
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong handled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong blockedSubmits = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private final AtomicLong maxDepth = new AtomicLong();
+
+    //--------------------------------------------------------------------------
+    // CommandQueue::CommandQueue (constructor)
+    //
+    // pHandler will be called from the worker threads to handle each command.
+    //
+
+    public CommandQueue(CommandHandler pHandler, int pNumberOfWorkers,
+                            int pCapacityPerWorker)
+    {
+
+        handler = pHandler;
+        numberOfWorkers = Math.max(1, pNumberOfWorkers);
+        capacityPerWorker = Math.max(1, pCapacityPerWorker);
+
+    }//end of CommandQueue::CommandQueue (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandQueue::init
+    //
+    // Initializes the object. Must be called immediately after instantiation.
+    //
+    // Creates and starts the worker threads.
+    //
+
+    public void init()
+    {
+
+        for (int i=0; i<numberOfWorkers; i++) {
+
+            BlockingQueue<Command> queue
+                                = new ArrayBlockingQueue<>(capacityPerWorker);
+            queues.add(queue);
+
+            Thread t = new Thread(() -> { work(queue); },
+                                    "Database Worker " + (i+1));
+            t.setDaemon(true);
+            workers.add(t);
+
+        }
+
+        for (Thread t : workers) { t.start(); }
+
+    }//end of CommandQueue::init
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandQueue::getDepth
+    //
+    // Returns the number of commands waiting in all of the queues.
+    //
+
+    public int getDepth()
+    {
+
+        int depth = 0;
+        for (BlockingQueue<Command> q : queues) { depth += q.size(); }
+
+        return depth;
+
+    }//end of CommandQueue::getDepth
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandQueue::getStatistics
+    //
+    // Returns a snapshot of the statistics of the queues.
+    //
+
+    public Statistics getStatistics()
+    {
+
+        return new Statistics(getDepth(), maxDepth.get(), submitted.get(),
+                                handled.get(), rejected.get(),
+                                blockedSubmits.get(), blockedNanos.get());
+
+    }//end of CommandQueue::getStatistics
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandQueue::logStackTrace
+    //
+    // Logs stack trace info for exception pE with pMessage at level SEVERE
+    // using the Java logger.
+    //
+
+    private void logStackTrace(String pMessage, Exception pE)
+    {
+
+        Logger.getLogger(getClass().getName()).log(Level.SEVERE, pMessage, pE);
+
+    }//end of CommandQueue::logStackTrace
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandQueue::offer
+    //
+    // Puts pCommand in the queue of the worker responsible for pOrderingKey,
+    // without waiting. Returns true if the command was queued; false if the
+    // queue was full and it was rejected.
+    //
+
+    public boolean offer(Command pCommand, String pOrderingKey)
+    {
+
+        return submit(pCommand, pOrderingKey, false);
+
+    }//end of CommandQueue::offer
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandQueue::submit
+    //
+    // Puts pCommand in the queue of the worker responsible for pOrderingKey.
+    //
+    // If that queue is full, this waits up to submitTimeout for room. Returns
+    // true if the command was queued; false if it was rejected.
+    //
+
+    public boolean submit(Command pCommand, String pOrderingKey)
+    {
+
+        return submit(pCommand, pOrderingKey, true);
+
+    }//end of CommandQueue::submit
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandQueue::submit
+    //
+    // Puts pCommand in the queue of the worker responsible for pOrderingKey.
+    //
+    // If that queue is full and pWait is true, this waits up to submitTimeout
+    // for room. Returns true if the command was queued; false if it was
+    // rejected.
+    //
+
+    private boolean submit(Command pCommand, String pOrderingKey, 
+                            boolean pWait)
+    {
+
+        int worker = (pOrderingKey.hashCode() & 0x7fffffff) % queues.size();
+        BlockingQueue<Command> queue = queues.get(worker);
+
+        boolean queued = queue.offer(pCommand);
+
+        //queue is full -- make the producer wait for room
+        if (!queued && pWait) {
+
+            long start = System.nanoTime();
+
+            try {
+                queued = queue.offer(pCommand, submitTimeout,
+                                        TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            blockedSubmits.incrementAndGet();
+            blockedNanos.addAndGet(System.nanoTime() - start);
+
+        }
+
+        if (!queued) { rejected.incrementAndGet(); return false; }
+
+        submitted.incrementAndGet();
+
+        //keep track of the deepest the queues have been
+        long depth = getDepth();
+        long max;
+        while (depth > (max=maxDepth.get())
+                && !maxDepth.compareAndSet(max, depth)) { }
+
+        return true;
+
+    }//end of CommandQueue::submit
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // CommandQueue::work
+    //
+    // Takes commands from pQueue and hands them to the handler, one at a time
+    // and in order, forever.
+    //
+    // This is run by each of the worker threads.
+    //
+
+    private void work(BlockingQueue<Command> pQueue)
+    {
+
+        while (true) {
+
+            Command c;
+            try { c = pQueue.take(); }
+            catch (InterruptedException e) { return; }
+
+            //one bad command shouldn't take the worker down with it
+            try { handler.handleCommand(c); }
+            catch (RuntimeException e) {
+                logStackTrace("Error handling " + c.getMessage(), e);
+            }
+
+            handled.incrementAndGet();
+
+        }
+
+    }//end of CommandQueue::work
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // class CommandQueue::Statistics
+    //
+    // Immutable snapshot of the statistics of the queues.
+    //
+
+    public static class Statistics
+    {
+
+        //number of commands waiting to be handled
+        private final int depth;
+        public int getDepth() { return depth; }
+
+        //the most commands that have been waiting at once
+        private final long maxDepth;
+        public long getMaxDepth() { return maxDepth; }
+
+        private final long submitted;
+        public long getSubmitted() { return submitted; }
+
+        private final long handled;
+        public long getHandled() { return handled; }
+
+        //number of commands dropped because a queue stayed full
+        private final long rejected;
+        public long getRejected() { return rejected; }
+
+        //number of submits that had to wait for room in a queue
+        private final long blockedSubmits;
+        public long getBlockedSubmits() { return blockedSubmits; }
+
+        private final long blockedNanos;
+
+        //----------------------------------------------------------------------
+        // Statistics::Statistics (constructor)
+        //
+
+        public Statistics(int pDepth, long pMaxDepth, long pSubmitted,
+                            long pHandled, long pRejected,
+                            long pBlockedSubmits, long pBlockedNanos)
+        {
+
+            depth = pDepth;
+            maxDepth = pMaxDepth;
+            submitted = pSubmitted;
+            handled = pHandled;
+            rejected = pRejected;
+            blockedSubmits = pBlockedSubmits;
+            blockedNanos = pBlockedNanos;
+
+        }//end of Statistics::Statistics (constructor)
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Statistics::getBlockedTime
+        //
+        // Returns the total time, in milliseconds, that submitters have spent
+        // waiting for room in a queue.
+        //
+
+        public double getBlockedTime()
+        {
+
+            return blockedNanos / 1000000.0;
+
+        }//end of Statistics::getBlockedTime
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Statistics::toString
+        //
+
+        @Override
+        public String toString()
+        {
+
+            return String.format("depth=%d maxDepth=%d submitted=%d handled=%d "
+                                    + "rejected=%d blocked=%d blockedTime=%.2fms",
+                                    depth, maxDepth, submitted, handled,
+                                    rejected, blockedSubmits, getBlockedTime());
+
+        }//end of Statistics::toString
+        //----------------------------------------------------------------------
+
+    }//end of class CommandQueue::Statistics
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+
+}//end of class CommandQueue
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
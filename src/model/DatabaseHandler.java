@@ -27,13 +27,33 @@ package model;
 
 import command.Command;
 import command.CommandHandler;
+import shared.ColumnSchema;
 import shared.Descriptor;
+import shared.DescriptorIndex;
 import model.database.DatabaseEntry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
 import javax.swing.SwingUtilities;
+import model.database.ConnectionPool;
+import model.database.Database;
 import model.database.DatabaseError;
+import model.database.MemoryDatabase;
 import model.database.MySQLDatabase;
 import shared.Record;
 
@@ -45,11 +65,63 @@ import shared.Record;
 public class DatabaseHandler implements CommandHandler
 {
     
-    private final List<String> handledCommands = new ArrayList<>();
+    private final Set<String> handledCommands = new HashSet<>();
     
-    private final MySQLDatabase db = new MySQLDatabase();
+    //commands that change the database, which are saved to the journal
+    //instead of being lost when the database can't be reached
+    private final Set<String> journaledCommands = new HashSet<>();
     
-    private boolean waitingForFixedConnection = false;
+    //set to "memory" to keep the tables in this program instead of on the
+    //MySQL server; the file they are saved to, if any, is given by
+    //FILE_PROPERTY
+    public static final String STORAGE_PROPERTY = "altus.storage";
+    public static final String FILE_PROPERTY = "altus.storage.file";
+    
+    //the file commands are saved to while the database can't be reached
+    public static final String JOURNAL_PROPERTY = "altus.journal.file";
+    private static final String DEFAULT_JOURNAL_FILE = "Offline Journal.dat";
+    
+    //the most commands read from the journal at once while replaying it
+    private static final int REPLAY_BATCH_SIZE = 100;
+    
+    //skoonie keys of the batch descriptors holding the rack and customer
+    private static final String RACK_KEY = "4";
+    private static final String CUSTOMER_KEY = "3";
+    
+    //the file the reference data is saved to between runs
+    public static final String SNAPSHOT_PROPERTY = "altus.snapshot.file";
+    private static final String DEFAULT_SNAPSHOT_FILE 
+                                                = "Reference Snapshot.dat";
+    
+    private final Database db;
+    
+    private final DescriptorCache descriptorCache = new DescriptorCache();
+    
+    private final PresetValueDictionary presetValues 
+                                            = new PresetValueDictionary();
+    
+    private final ChangeFeed changeFeed;
+    
+    private final InventoryIndex inventory = new InventoryIndex();
+    public InventoryIndex getInventoryIndex() { return inventory; }
+    
+    //null if commands are not journaled
+    private OfflineJournal journal;
+    
+    //null if the reference data is not saved between runs
+    private ReferenceSnapshot snapshot;
+    
+    //the command being handled by each worker thread, so that the result of a
+    //get can be sent back as a reply if it was performed with performAsync()
+    private final ThreadLocal<Command> currentCommand = new ThreadLocal<>();
+    
+    //false once the change feed has failed, so that the failure is only
+    //logged once
+    private final AtomicBoolean changeFeedWorking = new AtomicBoolean(true);
+    
+    //commands are handled by several threads at once, so this is atomic
+    private final AtomicBoolean waitingForFixedConnection 
+                                                    = new AtomicBoolean(false);
     
     //class to hold names of tables in the database
     private class TableName {
@@ -70,9 +142,29 @@ public class DatabaseHandler implements CommandHandler
     //--------------------------------------------------------------------------
     // DatabaseHandler::DatabaseHandler (constructor)
     //
+    // Uses the database chosen by the STORAGE_PROPERTY system property.
+    //
 
     public DatabaseHandler()
     {
+        
+        this(createDatabase());
+
+    }//end of DatabaseHandler::DatabaseHandler (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::DatabaseHandler (constructor)
+    //
+    // Uses pDatabase, which must not have been initialized yet.
+    //
+
+    public DatabaseHandler(Database pDatabase)
+    {
+        
+        db = pDatabase;
+        
+        changeFeed = new ChangeFeed(db);
 
     }//end of DatabaseHandler::DatabaseHandler (constructor)
     //--------------------------------------------------------------------------
@@ -82,6 +174,9 @@ public class DatabaseHandler implements CommandHandler
     //
     // Initializes the object. Must be called immediately after instantiation.
     //
+    // Must be called before any commands are handled, since commands may be
+    // handled by several threads at once.
+    //
 
     public void init()
     {
@@ -89,7 +184,15 @@ public class DatabaseHandler implements CommandHandler
         //initialize the database
         db.init();
         
+        //nobody else sets up the tables of an embedded database
+        if (db instanceof MemoryDatabase) { createMissingTables(); }
+        
+        //the change feed may have to create its table, which can't be done
+        //in a transaction, so it is readied before any commands come in
+        prepareChangeFeed();
+        
         handledCommands.add(Command.RECEIVE_BATCH);
+        handledCommands.add(Command.RECEIVE_BATCHES);
         handledCommands.add(Command.MOVE_BATCH);
         handledCommands.add(Command.TRANSFER_BATCH);
         handledCommands.add(Command.GET_RECEIVEMENT_DESCRIPTORS);
@@ -103,6 +206,24 @@ public class DatabaseHandler implements CommandHandler
         handledCommands.add(Command.DELETE_RACK);
         handledCommands.add(Command.EDIT_RACK);
         handledCommands.add(Command.GET_RACKS);
+        
+        journaledCommands.add(Command.RECEIVE_BATCH);
+        journaledCommands.add(Command.RECEIVE_BATCHES);
+        journaledCommands.add(Command.MOVE_BATCH);
+        journaledCommands.add(Command.TRANSFER_BATCH);
+        journaledCommands.add(Command.ADD_CUSTOMER);
+        journaledCommands.add(Command.DELETE_CUSTOMER);
+        journaledCommands.add(Command.EDIT_CUSTOMER);
+        journaledCommands.add(Command.ADD_RACK);
+        journaledCommands.add(Command.DELETE_RACK);
+        journaledCommands.add(Command.EDIT_RACK);
+        
+        //a database kept in this program can always be reached, and is
+        //already on this computer
+        if (!(db instanceof MemoryDatabase)) { 
+            journal = openJournal();
+            snapshot = openSnapshot();
+        }
 
     }// end of DatabaseHandler::init
     //--------------------------------------------------------------------------
@@ -112,6 +233,9 @@ public class DatabaseHandler implements CommandHandler
     //
     // Performs different actions depending on pCommand.
     //
+    // Commands that change the database are saved to the journal instead if
+    // the database can't be reached, to be replayed once it can be.
+    //
 
     @Override
     public void handleCommand(Command pCommand)
@@ -119,72 +243,43 @@ public class DatabaseHandler implements CommandHandler
         
         if (pCommand==null) { return; }
         
-        try {
+        currentCommand.set(pCommand);
         
-            switch (pCommand.getMessage()) {
-                
-                //all commands added here need to be added to init()
-                
-                case Command.RECEIVE_BATCH:
-                    receiveBatch(pCommand);
-                    break;
-                
-                case Command.GET_RECEIVEMENT_DESCRIPTORS:
-                    getReceivementDescriptors();
-                    break;
-                    
-                case Command.MOVE_BATCH:
-                    moveBatch(pCommand);
-                    break;
-                
-                case Command.GET_MOVEMENT_DESCRIPTORS:
-                    getMovementDescriptors();
-                    break;
-                    
-                case Command.TRANSFER_BATCH:
-                    transferBatch(pCommand);
-                    break;
-                
-                case Command.GET_TRANSFER_DESCRIPTORS:
-                    getTransferDescriptors();
-                    break;
-                
-                case Command.ADD_CUSTOMER:
-                    addCustomer(pCommand);
-                    break;
-                    
-                case Command.DELETE_CUSTOMER:
-                    deleteCustomer((String)pCommand.get(Command.SKOONIE_KEY));
-                    break;
-                    
-                case Command.EDIT_CUSTOMER:
-                    editCustomer(pCommand);
-                    break;
-                    
-                case Command.GET_CUSTOMERS:
-                    getCustomers();
-                    break;
-                    
-                case Command.ADD_RACK:
-                    addRack(pCommand);
-                    break;
-                    
-                case Command.DELETE_RACK:
-                    deleteRack((String)pCommand.get(Command.SKOONIE_KEY));
-                    break;
-                    
-                case Command.EDIT_RACK:
-                    editRack(pCommand);
-                    break;
-                    
-                case Command.GET_RACKS:
-                    getRacks();
-                    break;
-
+        try {
+            
+            //while the database can't be reached, and until everything saved
+            //while it couldn't be has been replayed, changes are journaled so
+            //that they are all done in order
+            if (isJournaling(pCommand) && appendToJournal(pCommand)) {
+                //let the views know the change was saved for later, so they
+                //don't wait on a result that won't come until the replay
+                if (waitingForFixedConnection.get()) { handleConnectionError(); }
+                return;
             }
+        
+            performCommand(pCommand);
             
         }
-        catch (DatabaseError error) { handleDatabaseError(error); }
+        catch (DatabaseError error) { 
+            //the change isn't lost if it can be done later
+            if (isConnectionError(error) && isJournaled(pCommand)
+                    && appendToJournal(pCommand)) 
+            {
+                handleConnectionError();
+            }
+            else {
+                pCommand.replyWithError(error);
+                handleDatabaseError(error);
+            }
+        }
+        //always hand the connection back to the pool, even if something went
+        //wrong part way through
+        finally { 
+            db.disconnectFromDatabase();
+            currentCommand.remove();
+            //don't leave anybody waiting for a result that isn't coming
+            pCommand.reply(null);
+        }
 
     }//end of DatabaseHandler::handleCommand
     //--------------------------------------------------------------------------  
@@ -205,11 +300,13 @@ public class DatabaseHandler implements CommandHandler
         List<?> descriptors
                         = (List<?>)pCommand.get(Command.CUSTOMER_DESCRIPTORS);
         
-        addRecord(TableName.customers, customer, descriptors, false);
+        int key = addRecord(TableName.customers, customer, descriptors, false);
         
-        //get the customers from the database again now that things have
-        //changed there
-        getCustomers();
+        //send just the new customer rather than all of them again
+        sendDelta(Command.CUSTOMERS_CHANGED, Command.CUSTOMERS, 
+                    Command.CUSTOMER_DESCRIPTORS, descriptors,
+                    Collections.singletonList(copyRecord(customer, key)),
+                    Collections.emptyList());
 
     }//end of DatabaseHandler::addCustomer
     //--------------------------------------------------------------------------
@@ -265,6 +362,9 @@ public class DatabaseHandler implements CommandHandler
         db.addColumn(pTableName, "`" + key + "` VARCHAR(2000) NULL");
         
         db.disconnectFromDatabase();*/
+        
+        //the cached descriptors are no longer right
+        descriptorCache.invalidate();
 
     }//end of DatabaseHandler::addDescriptor
     //--------------------------------------------------------------------------
@@ -285,11 +385,13 @@ public class DatabaseHandler implements CommandHandler
         List<?> descriptors
                         = (List<?>)pCommand.get(Command.RACK_DESCRIPTORS);
         
-        addRecord(TableName.racks, rack, descriptors, false);
+        int key = addRecord(TableName.racks, rack, descriptors, false);
         
-        //get the racks from the database again now that things have
-        //changed there
-        getRacks();
+        //send just the new rack rather than all of them again
+        sendDelta(Command.RACKS_CHANGED, Command.RACKS, 
+                    Command.RACK_DESCRIPTORS, descriptors,
+                    Collections.singletonList(copyRecord(rack, key)),
+                    Collections.emptyList());
 
     }//end of DatabaseHandler::addRack
     //--------------------------------------------------------------------------
@@ -324,13 +426,23 @@ public class DatabaseHandler implements CommandHandler
             if (value != null) { entry.storeColumn(descKey, value); }
         }
         
-        int generatedKey = db.insertEntry(entry, pTableName);
+        //the record and its change log entry are saved together or not at all
+        int[] generatedKey = new int[1];
+        performTransaction(() -> {
+            generatedKey[0] = db.insertEntry(entry, pTableName);
+            changeFeed.recordChange(pTableName, 
+                                Integer.toString(generatedKey[0]), 
+                                ChangeFeed.ADDED);
+        });
+        
+        //descriptors may take their preset values from this table
+        descriptorCache.invalidateTable(pTableName);
         
         //only disconnect if directed to do so -- allows for this to
         //be used in a series of database operations
         if (pDisconnectWhenDone) { db.disconnectFromDatabase(); }
         
-        return generatedKey;
+        return generatedKey[0];
 
     }//end of DatabaseHandler::addRecord
     //--------------------------------------------------------------------------
@@ -353,9 +465,11 @@ public class DatabaseHandler implements CommandHandler
         
         editRecord(TableName.customers, customer, descriptors, false);
         
-        //get the customers from the database again now that things have
-        //changed there
-        getCustomers();
+        //send just the edited customer rather than all of them again
+        sendDelta(Command.CUSTOMERS_CHANGED, Command.CUSTOMERS, 
+                    Command.CUSTOMER_DESCRIPTORS, descriptors,
+                    Collections.singletonList(customer),
+                    Collections.emptyList());
         
     }//end of DatabaseHandler::editCustomer
     //--------------------------------------------------------------------------
@@ -378,9 +492,11 @@ public class DatabaseHandler implements CommandHandler
         
         editRecord(TableName.racks, rack, descriptors, false);
         
-        //get the racks from the database again now that things have
-        //changed there
-        getRacks();
+        //send just the edited rack rather than all of them again
+        sendDelta(Command.RACKS_CHANGED, Command.RACKS, 
+                    Command.RACK_DESCRIPTORS, descriptors,
+                    Collections.singletonList(rack),
+                    Collections.emptyList());
         
     }//end of DatabaseHandler::editRack
     //--------------------------------------------------------------------------
@@ -413,7 +529,15 @@ public class DatabaseHandler implements CommandHandler
             if (value != null) { entry.storeColumn(descKey, value); }
         }
         
-        db.updateEntry(entry, pTableName);
+        //the record and its change log entry are saved together or not at all
+        performTransaction(() -> {
+            db.updateEntry(entry, pTableName);
+            changeFeed.recordChange(pTableName, pRecord.getSkoonieKey(), 
+                                        ChangeFeed.EDITED);
+        });
+        
+        //descriptors may take their preset values from this table
+        descriptorCache.invalidateTable(pTableName);
         
         //only disconnect if directed to do so -- allows for this to
         //be used in a series of database operations
@@ -422,6 +546,27 @@ public class DatabaseHandler implements CommandHandler
     }//end of DatabaseHandler::editRecord
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::appendToJournal
+    //
+    // Saves pCommand to the journal to be replayed later. Returns true if it
+    // was saved; false if it couldn't be, in which case it has to be handled
+    // now or not at all.
+    //
+
+    private boolean appendToJournal(Command pCommand)
+    {
+        
+        try { journal.append(pCommand); return true; }
+        catch (IOException e) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                                    e.getMessage() + " - Error: 1016");
+            return false;
+        }
+
+    }//end of DatabaseHandler::appendToJournal
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // DatabaseHandler::checkDatabaseConnection
     //
@@ -430,27 +575,208 @@ public class DatabaseHandler implements CommandHandler
     // now. If the connection is bad, a command saying that it's bad is 
     // performed.
     //
+    // Whenever the connection is good, the commands saved to the journal are
+    // replayed. See replayJournal().
+    //
+    // The inventory index is loaded again when the connection is fixed, and
+    // whenever it isn't loaded, such as when the database couldn't be reached
+    // while warming up.
+    //
 
     public void checkDatabaseConnection()
     {
         
-        try { 
+        if (!db.checkConnection()) { handleConnectionError(); return; }
+            
+        //we made it to here so inform everybody that the
+        //connection is fixed if it was broken before
+        boolean fixed = waitingForFixedConnection.compareAndSet(true, false);
+        if (fixed) {
+            Command c = new Command(Command.DB_CONNECTION_FIXED);
+            performCommandInMainThread(c);
+        }
+        
+        if (journal != null && !journal.isEmpty()) { replayJournal(); }
+        
+        if (fixed || !inventory.isLoaded()) { reloadInventory(); }
+
+    }//end of DatabaseHandler::checkDatabaseConnection
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::checkForChanges
+    //
+    // Checks the change feed for records that have been changed since the
+    // last check, by this program or any other, and sends just those records
+    // to the main thread. See sendChanges().
+    //
+    // The connection is checked afterwards whether the change feed could be
+    // read or not, so this can be called regularly in place of
+    // checkDatabaseConnection().
+    //
+
+    public void checkForChanges()
+    {
+        
+        try {
+            
             db.connectToDatabase();
-            db.disconnectFromDatabase();
             
-            //we made it to here so inform everybody that the
-            //connection is fixed if it was broken before
-            if(waitingForFixedConnection) {
-                waitingForFixedConnection = false;
-                Command c = new Command(Command.DB_CONNECTION_FIXED);
-                performCommandInMainThread(c);
+            Map<String, ChangeFeed.Changes> changes = changeFeed.poll();
+            
+            changeFeedWorking.set(true);
+            
+            for (Map.Entry<String, ChangeFeed.Changes> c : changes.entrySet()) {
+                
+                //descriptors may take their preset values from this table
+                descriptorCache.invalidateTable(c.getKey());
+                
+                switch (c.getKey()) {
+                    
+                    case TableName.customers:
+                        sendChanges(Command.CUSTOMERS_CHANGED, 
+                                    Command.CUSTOMERS,
+                                    Command.CUSTOMER_DESCRIPTORS,
+                                    TableName.customers, 
+                                    TableName.customersDescriptors, 
+                                    c.getValue());
+                        break;
+                        
+                    case TableName.racks:
+                        sendChanges(Command.RACKS_CHANGED, Command.RACKS,
+                                    Command.RACK_DESCRIPTORS,
+                                    TableName.racks, 
+                                    TableName.racksDescriptors, 
+                                    c.getValue());
+                        break;
+                        
+                    case TableName.batches:
+                        sendChanges(Command.BATCHES_CHANGED, Command.BATCHES,
+                                    Command.BATCH_DESCRIPTORS,
+                                    TableName.batches, 
+                                    TableName.batchesDescriptors, 
+                                    c.getValue());
+                        break;
+                    
+                }
+                
+            }
+            
+        }
+        catch (DatabaseError e) {
+            
+            if (changeFeedWorking.compareAndSet(true, false)) {
+                Logger.getLogger(getClass().getName()).log(Level.SEVERE, 
+                                    "Change feed failed: " + e.getMessage());
             }
-        } 
-        catch (DatabaseError e) { handleConnectionError(); }
+            
+        }
+        finally { db.disconnectFromDatabase(); }
+        
+        //sets the connection status either way
+        checkDatabaseConnection();
 
-    }//end of DatabaseHandler::checkDatabaseConnection
+    }//end of DatabaseHandler::checkForChanges
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::copyRecord
+    //
+    // Returns a copy of pRecord with pSkoonieKey as its skoonie key. Used to
+    // send a newly added record back to the main thread without changing the
+    // record the main thread handed over.
+    //
+
+    private static Record copyRecord(Record pRecord, int pSkoonieKey)
+    {
+        
+        Record copy = new Record(pRecord.getSchema());
+        
+        copy.setSkoonieKey(Integer.toString(pSkoonieKey));
+        
+        for (int i=0; i<pRecord.getSchema().getColumnCount(); i++) {
+            copy.setValueAt(i, pRecord.getValueAt(i));
+        }
+        
+        return copy;
+
+    }//end of DatabaseHandler::copyRecord
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::createDatabase
+    //
+    // Creates and returns the database chosen by the STORAGE_PROPERTY system
+    // property: a MemoryDatabase for "memory", saved to the file given by
+    // FILE_PROPERTY if there is one, or the MySQLDatabase otherwise.
+    //
+
+    private static Database createDatabase()
+    {
+
+        if ("memory".equalsIgnoreCase(System.getProperty(STORAGE_PROPERTY))) {
+            return new MemoryDatabase(System.getProperty(FILE_PROPERTY));
+        }
+
+        return new MySQLDatabase();
+
+    }//end of DatabaseHandler::createDatabase
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::createMissingTables
+    //
+    // Creates the tables used by this class that don't exist yet. Records
+    // tables start with just the skoonie key; the other columns are added as
+    // they are used.
+    //
+
+    private void createMissingTables()
+    {
+
+        String[] descriptorColumns = {
+            "`skoonie_key` INT NOT NULL AUTO_INCREMENT PRIMARY KEY",
+            "`name` VARCHAR(2000) NULL",
+            "`order_number` VARCHAR(2000) NULL",
+            "`required` VARCHAR(2000) NULL",
+            "`uses_preset_values` VARCHAR(2000) NULL",
+            "`preset_values` VARCHAR(2000) NULL"
+        };
+
+        String[] recordColumns = {
+            "`skoonie_key` INT NOT NULL AUTO_INCREMENT PRIMARY KEY"
+        };
+
+        String[][] tables = {
+            {TableName.batches, TableName.batchesDescriptors},
+            {TableName.customers, TableName.customersDescriptors},
+            {TableName.movements, TableName.movementsDescriptors},
+            {TableName.racks, TableName.racksDescriptors},
+            {TableName.receivements, TableName.receivementsDescriptors},
+            {TableName.transfers, TableName.transfersDescriptors}
+        };
+
+        try {
+
+            db.connectToDatabase();
+
+            for (String[] t : tables) {
+                if (!db.tableExists(t[0])) { db.createTable(t[0], recordColumns); }
+                if (!db.tableExists(t[1])) {
+                    db.createTable(t[1], descriptorColumns);
+                }
+            }
+
+        }
+        catch (DatabaseError e) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                                    e.getMessage() + " - Error: 1014");
+        }
+        finally { db.disconnectFromDatabase(); }
+
+    }//end of DatabaseHandler::createMissingTables
+    //--------------------------------------------------------------------------
+
     //--------------------------------------------------------------------------
     // DatabaseHandler::deleteCustomer
     //
@@ -465,9 +791,11 @@ public class DatabaseHandler implements CommandHandler
         
         deleteRecord(TableName.customers, pSkoonieKey, false);
         
-        //get the customers from the database again now that things have
-        //changed there
-        getCustomers();
+        //send just the deleted key rather than all of the customers again
+        sendDelta(Command.CUSTOMERS_CHANGED, Command.CUSTOMERS, 
+                    Command.CUSTOMER_DESCRIPTORS, null,
+                    Collections.emptyList(), 
+                    Collections.singletonList(pSkoonieKey));
 
     }//end of DatabaseHandler::deleteCustomer
     //--------------------------------------------------------------------------
@@ -510,6 +838,9 @@ public class DatabaseHandler implements CommandHandler
         db.deleteEntry(TableName.descriptors, key);
         
         db.disconnectFromDatabase();*/
+        
+        //the cached descriptors are no longer right
+        descriptorCache.invalidate();
 
     }//end of DatabaseHandler::deleteDescriptor
     //--------------------------------------------------------------------------
@@ -528,9 +859,11 @@ public class DatabaseHandler implements CommandHandler
         
         deleteRecord(TableName.racks, pSkoonieKey, false);
         
-        //get the rack from the database again now that things have
-        //changed there
-        getRacks();
+        //send just the deleted key rather than all of the racks again
+        sendDelta(Command.RACKS_CHANGED, Command.RACKS, 
+                    Command.RACK_DESCRIPTORS, null,
+                    Collections.emptyList(), 
+                    Collections.singletonList(pSkoonieKey));
 
     }//end of DatabaseHandler::deleteRack
     //--------------------------------------------------------------------------
@@ -551,7 +884,14 @@ public class DatabaseHandler implements CommandHandler
         //WIP HSS// -- perform check to see if record key exists anywhere else
         //              Maybe pass in a list of tables to check in?
         
-        db.deleteEntry(pTableName, pSkoonieKey);
+        //the delete and its change log entry are saved together or not at all
+        performTransaction(() -> {
+            db.deleteEntry(pTableName, pSkoonieKey);
+            changeFeed.recordChange(pTableName, pSkoonieKey, ChangeFeed.DELETED);
+        });
+        
+        //descriptors may take their preset values from this table
+        descriptorCache.invalidateTable(pTableName);
 
         //only disconnect if directed to do so -- allows for this to
         //be used in a series of database operations
@@ -560,6 +900,36 @@ public class DatabaseHandler implements CommandHandler
     }//end of DatabaseHandler::deleteRecord
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::getContentsVersion
+    //
+    // Returns a version of pTable made from everything in it, which changes
+    // whenever any of its entries do.
+    //
+    // Must be connected to the database before calling.
+    //
+
+    private String getContentsVersion(String pTable)
+        throws DatabaseError
+    {
+        
+        //the entries may come back in any order
+        List<String> rows = new ArrayList<>();
+        for (DatabaseEntry e : db.getEntries(pTable)) {
+            rows.add(new TreeMap<>(e.getColumns()).toString());
+        }
+        Collections.sort(rows);
+        
+        CRC32 crc = new CRC32();
+        for (String r : rows) { 
+            crc.update(r.getBytes(StandardCharsets.UTF_8)); 
+        }
+        
+        return "c" + rows.size() + "-" + Long.toHexString(crc.getValue());
+
+    }//end of DatabaseHandler::getContentsVersion
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // DatabaseHandler::getCustomers
     //
@@ -571,28 +941,8 @@ public class DatabaseHandler implements CommandHandler
         throws DatabaseError
     {
         
-        db.connectToDatabase();
-        
-        //get all of the entries from the customers table
-        List<DatabaseEntry> entries = db.getEntries(TableName.customers);
-        
-        //get all of the descriptors for the customers table
-        List<Descriptor> descriptors 
-                        = getDescriptors(TableName.customersDescriptors, true);
-        
-        //list to hold all of the customer records
-        List<Record> records = new ArrayList<>();
-        
-        //extract all of the descriptor values from the entries and put them
-        //into the custmer records
-        extractDescriptorValuesFromEntries(records, descriptors, entries);
-        
-        Command c = new Command(Command.CUSTOMERS);
-        
-        c.put(Command.CUSTOMERS, records);
-        c.put(Command.CUSTOMER_DESCRIPTORS, descriptors);
-        
-        performCommandInMainThread(c);
+        getRecords(Command.CUSTOMERS, Command.CUSTOMER_DESCRIPTORS, 
+                    TableName.customers, TableName.customersDescriptors);
 
     }//end of DatabaseHandler::getCustomers
     //--------------------------------------------------------------------------
@@ -617,6 +967,14 @@ public class DatabaseHandler implements CommandHandler
     //
     // Gets and returns all of the descriptors from pDescriptorsTable.
     //
+    // The descriptors come from the descriptor cache when they can. Once the
+    // cached descriptors are older than the cache's time to live, the version
+    // of the tables they were built from is checked with the database, and
+    // they are only loaded again if it has changed. See getTableVersions().
+    //
+    // The list returned can be changed, but the descriptors in it are shared
+    // and must not be.
+    //
     // NOTE: Only disconnects from database if pCloseConnection is true.
     //
 
@@ -625,46 +983,23 @@ public class DatabaseHandler implements CommandHandler
         throws DatabaseError
     {
         
+        List<Descriptor> descriptors = descriptorCache
+                                                .get(pDescriptorsTableName);
+        
+        //no need to go to the database at all if the cache is fresh
+        if (descriptors != null) { return descriptors; }
+        
         db.connectToDatabase();
         
-        List<Descriptor> descriptors = new ArrayList<>();
+        //see if the tables have changed since the descriptors were cached
+        Set<String> tables = descriptorCache.getTables(pDescriptorsTableName);
+        if (tables != null) {
+            descriptors = descriptorCache.renew(pDescriptorsTableName, 
+                                        getTablesVersion(tables));
+        }
         
-        //retrieve the entries from the database and put them into descriptors
-        for (DatabaseEntry e : db.getEntries(pDescriptorsTableName)) {
-            
-            Descriptor d = new Descriptor();
-            d.setSkoonieKey(e.getValue("skoonie_key"));
-            d.setName(e.getValue("name"));
-            d.setOrderNumber(e.getValue("order_number"));
-            d.setRequired(e.getValue("required").equals("1"));
-            d.setUsesPresetValues(e.getValue("uses_preset_values").equals("1"));
-            
-            //only add the preset values to the descriptor if necessary and the
-            //value retrieved the from the "preset_values" column splits
-            //properly
-            String[] v;
-            if (d.getUsesPresetValues()
-                && (v=e.getValue("preset_values").split("\\.")).length == 2) 
-            {
-                
-                //after the split:
-                //  v[0] = the table to get the values from
-                //  v[1] = the column that has the display name of each value
-                String table = v[0];
-                String displayColumn = v[1];
-                
-                //for every preset value retrieved, store its key and the
-                //display name to be used with that value
-                for (DatabaseEntry preset : db.getEntries(table)) {
-                    String key = preset.getValue("skoonie_key");
-                    String display = preset.getValue(displayColumn);
-                    d.addPresetValue(key, display);
-                }
-                
-            }
-            
-            descriptors.add(d);
-            
+        if (descriptors == null) {
+            descriptors = loadDescriptors(pDescriptorsTableName);
         }
         
         if (pCloseConnection) { db.disconnectFromDatabase();}
@@ -677,25 +1012,16 @@ public class DatabaseHandler implements CommandHandler
     //--------------------------------------------------------------------------
     // DatabaseHandler::getMovementDescriptors
     //
-    // Gets all of the movement descriptors from the database and sticks them
-    // into a command  to be performed in the main thread.
+    // Gets all of the movement descriptors and sticks them into a command to
+    // be performed in the main thread. See sendDescriptors().
     //
 
     private void getMovementDescriptors()
         throws DatabaseError
     {
         
-        db.connectToDatabase();
-        
-        Command c = new Command(Command.MOVEMENT_DESCRIPTORS);
-       
-        //get and store the movement descriptors in the command
-        c.put(Command.MOVEMENT_DESCRIPTORS, 
-                 getDescriptors(TableName.movementsDescriptors, false));
-        
-        db.disconnectFromDatabase();
-
-        performCommandInMainThread(c);
+        sendDescriptors(Command.MOVEMENT_DESCRIPTORS, 
+                            TableName.movementsDescriptors);
 
     }//end of DatabaseHandler::getMovementDescriptors
     //--------------------------------------------------------------------------
@@ -711,413 +1037,1419 @@ public class DatabaseHandler implements CommandHandler
         throws DatabaseError
     {
         
-        db.connectToDatabase();
-        
-        //get all of the entries from the racks table
-        List<DatabaseEntry> entries = db.getEntries(TableName.racks);
-        
-        //get all of the descriptors for the racks table
-        List<Descriptor> descriptors 
-                        = getDescriptors(TableName.racksDescriptors, true);
-        
-        //list to hold all of the rack records
-        List<Record> records = new ArrayList<>();
-        
-        //extract all of the descriptor values from the entries and put them
-        //into the rack records
-        extractDescriptorValuesFromEntries(records, descriptors, entries);
-        
-        Command c = new Command(Command.RACKS);
-        
-        c.put(Command.RACKS, records);
-        c.put(Command.RACK_DESCRIPTORS, descriptors);
-        
-        performCommandInMainThread(c);
+        getRecords(Command.RACKS, Command.RACK_DESCRIPTORS, 
+                    TableName.racks, TableName.racksDescriptors);
         
     }//end of DatabaseHandler::getRacks
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // DatabaseHandler::getReceivementDescriptors
+    // DatabaseHandler::getRecords
     //
-    // //WIP HSS// -- describe function
+    // Gets all of the records from pTable, along with the descriptors from
+    // pDescriptorsTable, and sticks them into a command with pMessage to be
+    // performed in the main thread. The descriptors are stored in the command
+    // under pDescriptorsKey.
     //
-    // Gets all of the receivement descriptors and the batch descriptors from 
-    // the database and sticks them into a command  to be performed in the main 
-    // thread.
+    // If the records are in the snapshot, they are sent right away, as the
+    // reply if the get was performed with performAsync(), so that they are
+    // shown without waiting on the database, even if it can't be reached.
+    // Then the version of the tables they were built from is checked with
+    // the database, and the records are only read and sent again, to
+    // everybody, if it has changed.
     //
 
-    private void getReceivementDescriptors()
+    private void getRecords(String pMessage, String pDescriptorsKey,
+                            String pTable, String pDescriptorsTable)
         throws DatabaseError
     {
         
-        db.connectToDatabase();
+        ReferenceSnapshot.Entry saved 
+                            = snapshot!=null ? snapshot.get(pTable) : null;
+        
+        if (saved != null) {
+            replyInMainThread(makeRecordsCommand(pMessage, 
+                                    pDescriptorsKey, saved.getRecords(), 
+                                    saved.getDescriptors()));
+        }
         
-        Command c = new Command(Command.RECIEVEMENT_DESCRIPTORS);
+        ReferenceSnapshot.Entry current 
+                            = loadRecords(pTable, pDescriptorsTable, saved);
         
-        List<Descriptor> descriptors 
-                        = getDescriptors(TableName.batchesDescriptors, false);
+        //what was already sent is still right
+        if (current == saved) { return; }
         
-        //column "id" in the receivements table is not
-        //a descriptor. We know it will always exist
-        Descriptor receivementId = new Descriptor();
-        receivementId.setSkoonieKey("receivement id");
-        receivementId.setName("Receivement Id");
-        receivementId.setRequired(true);
-        receivementId.setUsesPresetValues(false);
-        descriptors.add(receivementId);
-        
-        //column "date" in the receivements table is not
-        //a descriptor. We know it will always exist
-        Descriptor receivementDate = new Descriptor();
-        receivementDate.setSkoonieKey("date");
-        receivementDate.setName("Date");
-        receivementDate.setRequired(true);
-        receivementDate.setUsesPresetValues(false);
-        descriptors.add(receivementDate);
-       
-        //get and store the receivement descriptors in the command
-        c.put(Command.RECIEVEMENT_DESCRIPTORS, descriptors);
+        //goes to everybody if the snapshot was already sent as the reply
+        replyInMainThread(makeRecordsCommand(pMessage, 
+                                    pDescriptorsKey, current.getRecords(), 
+                                    current.getDescriptors()));
         
-        db.disconnectFromDatabase();
-
-        performCommandInMainThread(c);
-
-    }//end of DatabaseHandler::getReceivementDescriptors
+    }//end of DatabaseHandler::getRecords
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::getReceivementDescriptors
+    //
+    // Gets all of the batch descriptors, along with the columns of the
+    // receivements table that every receivement has, and sticks them into a
+    // command to be performed in the main thread. See sendDescriptors().
+    //
+
+    private void getReceivementDescriptors()
+        throws DatabaseError
+    {
+        
+        sendDescriptors(Command.RECIEVEMENT_DESCRIPTORS, 
+                            TableName.batchesDescriptors);
+
+    }//end of DatabaseHandler::getReceivementDescriptors
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::getTablesVersion
+    //
+    // Returns a string that changes whenever any of pTables change. See
+    // getTableVersions().
+    //
+    // Must be connected to the database before calling.
+    //
+
+    private String getTablesVersion(Collection<String> pTables)
+        throws DatabaseError
+    {
+        
+        return ChangeFeed.getTablesVersion(getTableVersions(pTables));
+
+    }//end of DatabaseHandler::getTablesVersion
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::getTableVersions
+    //
+    // Returns the version of each of pTables.
+    // key=table name; value=version
+    //
+    // Record tables are versioned by the change feed. Nothing is logged to the
+    // change feed when descriptors change, and they can be changed straight in
+    // the database, so the descriptors tables are versioned by what is in
+    // them instead. They only have a few entries each, so reading them again
+    // whenever the version is checked costs next to nothing.
+    //
+    // Must be connected to the database before calling.
+    //
+
+    private Map<String, String> getTableVersions(Collection<String> pTables)
+        throws DatabaseError
+    {
+        
+        Map<String, String> versions = changeFeed.getTableVersions(pTables);
+        
+        for (String t : pTables) {
+            if (t.endsWith("_DESCRIPTORS")) { 
+                versions.put(t, getContentsVersion(t)); 
+            }
+        }
+        
+        return versions;
+
+    }//end of DatabaseHandler::getTableVersions
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
     // DatabaseHandler::getTransferDescriptors
     //
-    // Gets all of the transfer descriptors from the database and sticks them
-    // into a command  to be performed in the main thread.
+    // Gets all of the transfer descriptors and sticks them into a command to
+    // be performed in the main thread. See sendDescriptors().
     //
 
     private void getTransferDescriptors()
         throws DatabaseError
     {
         
-        db.connectToDatabase();
+        sendDescriptors(Command.TRANSFER_DESCRIPTORS, 
+                            TableName.transfersDescriptors);
+
+    }//end of DatabaseHandler::getTransferDescriptors
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::handleConnectionError
+    //
+    // Sets the waiting for fixed connection boolean to true and performs a
+    // command telling everybody that the database can't be connected to.
+    //
+
+    public void handleConnectionError()
+    {
         
-        Command c = new Command(Command.TRANSFER_DESCRIPTORS);
-       
-        //get and store the movement descriptors in the command
-        c.put(Command.TRANSFER_DESCRIPTORS, 
-                 getDescriptors(TableName.transfersDescriptors, false));
+        waitingForFixedConnection.set(true);
+        
+        Command c = new Command(Command.DB_CONNECTION_ERROR);
+        
+        //let the user know that work can still be done
+        if (journal != null) { 
+            c.put(Command.JOURNALED_COMMANDS, journal.getPendingCount());
+        }
         
-        db.disconnectFromDatabase();
-
         performCommandInMainThread(c);
 
-    }//end of DatabaseHandler::getTransferDescriptors
+    }//end of DatabaseHandler::handleConnectionError
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::handleDatabaseError
+    //
+    // Takes different actions depending on the message of pError.
+    //
+
+    private void handleDatabaseError(DatabaseError pError)
+    {
+        
+        if (pError==null) { return; }
+        
+        //the server is fine, we just ran out of connections to talk to it with
+        if (pError.getMessage().equals(DatabaseError.POOL_TIMEOUT_ERROR)) {
+            performCommandInMainThread(new Command(Command.DB_FAILURE));
+            return;
+        }
+        
+        if (isConnectionError(pError)) { handleConnectionError(); }
+        else { performCommandInMainThread(new Command(Command.DB_FAILURE)); }
+
+    }//end of DatabaseHandler::handleDatabaseError
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::getOrderingKey
+    //
+    // Returns the key used to decide which commands must be handled in the
+    // order they were performed. Commands that return the same key are always
+    // handled one after another, in order; commands with different keys may be
+    // handled at the same time.
+    //
+    // All commands that touch the same batch share a key, as do all commands
+    // for customers and all commands for racks.
+    //
+
+    public String getOrderingKey(Command pCommand)
+    {
+        
+        String msg = pCommand.getMessage();
+        
+        switch (msg) {
+            
+            case Command.MOVE_BATCH:
+            case Command.TRANSFER_BATCH:
+                Record batch = (Record)pCommand.get(Command.BATCH);
+                return TableName.batches + " " + batch.getSkoonieKey();
+                
+            case Command.RECEIVE_BATCH:
+            case Command.RECEIVE_BATCHES:
+                return TableName.batches;
+                
+            case Command.ADD_CUSTOMER:
+            case Command.DELETE_CUSTOMER:
+            case Command.EDIT_CUSTOMER:
+            case Command.GET_CUSTOMERS:
+                return TableName.customers;
+                
+            case Command.ADD_RACK:
+            case Command.DELETE_RACK:
+            case Command.EDIT_RACK:
+            case Command.GET_RACKS:
+                return TableName.racks;
+                
+            default:
+                return msg;
+            
+        }
+
+    }//end of DatabaseHandler::getOrderingKey
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::getPoolStatistics
+    //
+    // Returns a snapshot of the statistics of the database connection pool,
+    // or null if the database doesn't use one.
+    //
+
+    public ConnectionPool.Statistics getPoolStatistics()
+    {
+        
+        if (!(db instanceof MySQLDatabase)) { return null; }
+        
+        return ((MySQLDatabase)db).getPoolStatistics();
+
+    }//end of DatabaseHandler::getPoolStatistics
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::getHandledCommands
+    //
+    // Returns the messages of the commands handled by this class.
+    //
+
+    public Set<String> getHandledCommands()
+    {
+        
+        return Collections.unmodifiableSet(handledCommands);
+
+    }//end of DatabaseHandler::getHandledCommands
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::handlesCommand
+    //
+    // Returns true if the command is handled by this class; false if not.
+    //
+
+    public boolean handlesCommand(Command pCommand)
+    {
+        
+        return handledCommands.contains(pCommand.getMessage());
+
+    }//end of DatabaseHandler::handlesCommand
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::isConnectionError
+    //
+    // Returns true if pError happened because the database can't be reached.
+    //
+
+    private boolean isConnectionError(DatabaseError pError)
+    {
+        
+        //the server is fine, we just ran out of connections to talk to it with
+        if (pError.getMessage().equals(DatabaseError.POOL_TIMEOUT_ERROR)) {
+            return false;
+        }
+        
+        return pError.getMessage().equals(DatabaseError.CONNECTION_ERROR)
+                || !db.checkConnection();
+
+    }//end of DatabaseHandler::isConnectionError
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::isJournaled
+    //
+    // Returns true if pCommand is saved to the journal when the database can't
+    // be reached.
+    //
+
+    private boolean isJournaled(Command pCommand)
+    {
+        
+        return journal != null 
+                && journaledCommands.contains(pCommand.getMessage());
+
+    }//end of DatabaseHandler::isJournaled
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::isJournaling
+    //
+    // Returns true if pCommand should go straight to the journal: the database
+    // is known to be unreachable, or there are older commands in the journal
+    // that have to be done first.
+    //
+
+    private boolean isJournaling(Command pCommand)
+    {
+        
+        return isJournaled(pCommand) 
+                && (waitingForFixedConnection.get() || !journal.isEmpty());
+
+    }//end of DatabaseHandler::isJournaling
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // DatabaseHandler::extractDescriptorValuesFromEntries
+    // DatabaseHandler::loadDescriptors
     //
-    // For all of the descriptors in pDescriptors that match columns in 
-    // pEntries, the values of those descriptors are extracted from pEntries and
-    // put into pRecords. This also handles skoonie keys.
+    // Loads and returns all of the descriptors from pDescriptorsTable, 
+    // straight from the database, and puts them in the descriptor cache.
+    //
+    // Must be connected to the database before calling.
     //
 
-    private void extractDescriptorValuesFromEntries(List<Record> pRecords,
-                                                List<Descriptor> pDescriptors, 
-                                                List<DatabaseEntry> pEntries)
+    private List<Descriptor> loadDescriptors(String pDescriptorsTableName)
         throws DatabaseError
     {
         
-        db.connectToDatabase();
+        List<Descriptor> descriptors = new ArrayList<>();
+        
+        //the tables the descriptors are built from
+        Set<String> tables = new HashSet<>();
+        tables.add(pDescriptorsTableName);
         
-        //iterate through through the entries
-        for (DatabaseEntry e : pEntries) {
+        //where to get the preset values of each descriptor that uses them
+        //key=descriptor; value={table, display column}
+        Map<Descriptor, String[]> presetSources = new LinkedHashMap<>();
+        
+        //retrieve the entries from the database and put them into descriptors
+        for (DatabaseEntry e : db.getEntries(pDescriptorsTableName)) {
             
-            Record r = new Record();
+            Descriptor d = new Descriptor();
+            d.setSkoonieKey(e.getValue("skoonie_key"));
+            d.setName(e.getValue("name"));
+            d.setOrderNumber(e.getValue("order_number"));
+            d.setRequired(e.getValue("required").equals("1"));
+            d.setUsesPresetValues(e.getValue("uses_preset_values").equals("1"));
             
-            //iterate through the columns and column values
-            for (Map.Entry<String, String> c : e.getColumns().entrySet()) {
-                
-                //key=column name; value=column value
-                String name = c.getKey();
-                String value = c.getValue();
+            //only add the preset values to the descriptor if necessary and the
+            //value retrieved the from the "preset_values" column splits
+            //properly
+            String[] v;
+            if (d.getUsesPresetValues()
+                && (v=e.getValue("preset_values").split("\\.")).length == 2) 
+            {
                 
-                //if the column is the skoonie_key,
-                //store it and continue to next one
-                if(name.equals("skoonie_key")) { 
-                    r.setSkoonieKey(value);
-                    continue;
-                }
+                //after the split:
+                //  v[0] = the table to get the values from
+                //  v[1] = the column that has the display name of each value
+                presetSources.put(d, v);
+                tables.add(v[0]);
                 
-                //if the column name matches a descriptor key, store the column
-                //value in the record, using the skoonie key of the descriptor
-                //it belongs to as the key
-                for (Descriptor d : pDescriptors) {
-                    if (name.equals(d.getSkoonieKey())) { 
-                        r.addValue(name, value); 
-                    }
-                }
+            }
+            
+            descriptors.add(d);
+            
+        }
+        
+        //take the versions before reading the preset values so that a 
+        //change made to those tables while they are being read is caught next
+        //time
+        Map<String, String> versions = getTableVersions(tables);
+        String version = ChangeFeed.getTablesVersion(versions);
+        
+        for (Map.Entry<Descriptor, String[]> p : presetSources.entrySet()) {
+            
+            Descriptor d = p.getKey();
+            String table = p.getValue()[0];
+            String displayColumn = p.getValue()[1];
+            String tableVersion = versions.get(table);
             
+            //descriptors using the same table and column share one map, which
+            //is only read again when the table changes
+            Map<String, String> values 
+                    = presetValues.get(table, displayColumn, tableVersion);
+            
+            if (values == null) {
+                values = presetValues.put(table, displayColumn, tableVersion, 
+                                    db.getColumnValues(table, displayColumn));
             }
             
-            //store the record
-            pRecords.add(r);
+            d.setPresetValues(values);
             
         }
+        
+        descriptorCache.put(pDescriptorsTableName, descriptors, tables, 
+                                version);
+        
+        //saved so that next time they only have to be renewed
+        if (snapshot != null) {
+            snapshot.put(pDescriptorsTableName, new ReferenceSnapshot.Entry(
+                                        version, tables, descriptors, null));
+            snapshot.save();
+        }
+        
+        return descriptors;
 
-    }//end of DatabaseHandler::extractDescriptorValuesFromEntries
+    }//end of DatabaseHandler::loadDescriptors
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // DatabaseHandler::handleConnectionError
+    // DatabaseHandler::loadInventory
     //
-    // Sets the waiting for fixed connection boolean to true and performs a
-    // command telling everybody that the database can't be connected to.
+    // Loads all of the batches into the inventory index, streaming them from
+    // the database. After that, the index is kept up to date by the commands
+    // that change batches and by the change feed. Does nothing if the index
+    // is already being loaded.
     //
 
-    public void handleConnectionError()
+    private void loadInventory()
+        throws DatabaseError
     {
         
-        waitingForFixedConnection = true;
+        //somebody else is already loading it
+        if (!inventory.beginLoad()) { return; }
         
-        performCommandInMainThread(new Command(Command.DB_CONNECTION_ERROR));
+        try {
+            
+            db.connectToDatabase();
+            
+            List<Descriptor> descriptors 
+                        = getDescriptors(TableName.batchesDescriptors, false);
+            
+            List<Record> batches = new ArrayList<>();
+            
+            RecordExtractor extractor = new RecordExtractor(descriptorCache
+                        .getIndex(TableName.batchesDescriptors, descriptors));
+            db.forEachEntry(TableName.batches, (e) -> {
+                batches.add(extractor.extract(e));
+            });
+            
+            inventory.load(batches, RACK_KEY, CUSTOMER_KEY);
+            
+        }
+        //does nothing if the load was finished
+        finally { inventory.cancelLoad(); }
 
-    }//end of DatabaseHandler::handleConnectionError
+    }//end of DatabaseHandler::loadInventory
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // DatabaseHandler::handleDatabaseError
+    // DatabaseHandler::loadRecords
+    //
+    // Loads all of the records from pTable, along with the descriptors from
+    // pDescriptorsTable, and returns them in a snapshot entry, which is also
+    // put in the snapshot.
+    //
+    // If pSaved is not null and the tables it was built from haven't changed
+    // since, nothing is loaded and pSaved is returned.
+    //
+
+    private ReferenceSnapshot.Entry loadRecords(String pTable, 
+                                            String pDescriptorsTable,
+                                            ReferenceSnapshot.Entry pSaved)
+        throws DatabaseError
+    {
+        
+        db.connectToDatabase();
+        
+        //get all of the descriptors for the table
+        List<Descriptor> descriptors = getDescriptors(pDescriptorsTable, false);
+        
+        //the records are built from their own table and everything the
+        //descriptors are built from
+        Set<String> tables = new HashSet<>();
+        tables.add(pTable);
+        Set<String> descriptorTables 
+                            = descriptorCache.getTables(pDescriptorsTable);
+        if (descriptorTables != null) { tables.addAll(descriptorTables); }
+        else { tables.add(pDescriptorsTable); }
+        
+        //take the version before reading the records so that a change made
+        //while they are being read is caught next time
+        String version = getTablesVersion(tables);
+        
+        if (pSaved != null && pSaved.getVersion().equals(version)) {
+            db.disconnectFromDatabase();
+            return pSaved;
+        }
+        
+        //list to hold all of the records
+        List<Record> records = new ArrayList<>();
+        
+        //stream the entries from the table, extracting the descriptor values
+        //from each one into a record as it is read
+        RecordExtractor extractor = new RecordExtractor(
+                    descriptorCache.getIndex(pDescriptorsTable, descriptors));
+        db.forEachEntry(pTable, (e) -> {
+            records.add(extractor.extract(e));
+        });
+        
+        db.disconnectFromDatabase();
+        
+        ReferenceSnapshot.Entry loaded 
+                = new ReferenceSnapshot.Entry(version, tables, descriptors, 
+                                                records);
+        
+        if (snapshot != null) {
+            snapshot.put(pTable, loaded);
+            snapshot.save();
+        }
+        
+        return loaded;
+
+    }//end of DatabaseHandler::loadRecords
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::makeDescriptorsCommand
+    //
+    // Returns a command with pMessage holding pDescriptors under pMessage.
+    //
+    // The receivements table has an id and a date column that aren't
+    // descriptors but that every receivement has, so they are added to the
+    // descriptors sent with RECIEVEMENT_DESCRIPTORS.
+    //
+
+    private Command makeDescriptorsCommand(String pMessage, 
+                                            List<Descriptor> pDescriptors)
+    {
+        
+        List<Descriptor> descriptors = new ArrayList<>(pDescriptors);
+        
+        if (pMessage.equals(Command.RECIEVEMENT_DESCRIPTORS)) {
+            
+            //column "id" in the receivements table is not
+            //a descriptor. We know it will always exist
+            Descriptor receivementId = new Descriptor();
+            receivementId.setSkoonieKey("receivement id");
+            receivementId.setName("Receivement Id");
+            receivementId.setRequired(true);
+            receivementId.setUsesPresetValues(false);
+            descriptors.add(receivementId);
+
+            //column "date" in the receivements table is not
+            //a descriptor. We know it will always exist
+            Descriptor receivementDate = new Descriptor();
+            receivementDate.setSkoonieKey("date");
+            receivementDate.setName("Date");
+            receivementDate.setRequired(true);
+            receivementDate.setUsesPresetValues(false);
+            descriptors.add(receivementDate);
+            
+        }
+        
+        Command c = new Command(pMessage);
+        c.put(pMessage, descriptors);
+        
+        return c;
+
+    }//end of DatabaseHandler::makeDescriptorsCommand
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::makeRecordsCommand
+    //
+    // Returns a command with pMessage holding copies of pRecords, under
+    // pMessage, and pDescriptors, under pDescriptorsKey.
+    //
+
+    private static Command makeRecordsCommand(String pMessage, 
+                                        String pDescriptorsKey,
+                                        List<Record> pRecords,
+                                        List<Descriptor> pDescriptors)
+    {
+        
+        Command c = new Command(pMessage);
+        
+        c.put(pMessage, new ArrayList<>(pRecords));
+        c.put(pDescriptorsKey, new ArrayList<>(pDescriptors));
+        
+        return c;
+        
+    }//end of DatabaseHandler::makeRecordsCommand
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::moveBatch
+    //
+    // Moves a batch by extracting and using objects that it knows are in
+    // pCommand.
+    //
+
+    private void moveBatch(Command pCommand)
+        throws DatabaseError
+    {
+        
+        //get the movement record and movement descriptors
+        Record movement = (Record)pCommand.get(Command.MOVEMENT);
+        List<?> movementDescriptors = (List<?>)pCommand
+                                            .get(Command.MOVEMENT_DESCRIPTORS);
+        
+        //get the batch record and batch descriptors
+        Record batch = (Record)pCommand.get(Command.BATCH);
+        
+        String toRack = null;
+        
+        //create database entries for the batch and receivement
+        DatabaseEntry moveEntry = new DatabaseEntry();
+        DatabaseEntry batchEntry = new DatabaseEntry();
+        
+        //add the batch key to the move and batch entries
+        moveEntry.storeColumn("batch_key", batch.getSkoonieKey());
+        batchEntry.storeColumn("skoonie_key", batch.getSkoonieKey());
+        
+        //extract data from the movement
+        for (Object o : movementDescriptors) {
+            Descriptor d = (Descriptor)o;
+            
+            String key = d.getSkoonieKey();
+            String name = d.getName();
+            String value = movement.getValue(key);
+            
+            switch (name) {
+                
+                //Descriptor is the movement To Rack
+                case "To Rack":
+                    batchEntry.storeColumn(RACK_KEY, value);
+                    toRack = value;
+                   
+                default:
+                    moveEntry.storeColumn(key, value);
+                    break;
+                    
+            }
+            
+        }
+        
+        //the batch and the movement are saved together or not at all
+        performTransaction(() -> {
+            
+            //update the batch in the database
+            db.updateEntry(batchEntry, TableName.batches);
+
+            //inert the movement entry into the database
+            db.insertEntry(moveEntry, TableName.movements);
+            
+            changeFeed.recordChange(TableName.batches, batch.getSkoonieKey(),
+                                        ChangeFeed.EDITED);
+            
+        });
+        
+        if (toRack != null) {
+            inventory.setRack(batch.getSkoonieKey(), toRack);
+        }
+
+    }//end of DatabaseHandler::moveBatch
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::getReceivements
+    //
+    // Returns the receivements in pCommand, which must be a RECEIVE_BATCH or
+    // RECEIVE_BATCHES command.
+    //
+
+    private static List<?> getReceivements(Command pCommand)
+    {
+        
+        if (pCommand.getMessage().equals(Command.RECEIVE_BATCH)) {
+            return Collections.singletonList(
+                                        pCommand.get(Command.RECEIVEMENT));
+        }
+        
+        return (List<?>)pCommand.get(Command.RECEIVEMENTS);
+
+    }//end of DatabaseHandler::getReceivements
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::isReceivement
+    //
+    // Returns true if pCommand is a RECEIVE_BATCH or RECEIVE_BATCHES command.
+    //
+
+    private static boolean isReceivement(Command pCommand)
+    {
+        
+        return pCommand.getMessage().equals(Command.RECEIVE_BATCH)
+                || pCommand.getMessage().equals(Command.RECEIVE_BATCHES);
+
+    }//end of DatabaseHandler::isReceivement
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::receiveBatch
+    //
+    // Receives a batch by extracting and using objects that it knows are in
+    // pCommand.
+    //
+
+    private void receiveBatch(Command pCommand)
+        throws DatabaseError
+    {
+        
+        //get the receivement record and receivement descriptors
+        Record receivement = (Record)pCommand.get(Command.RECEIVEMENT);
+        List<?> descriptors = (List<?>)pCommand
+                                        .get(Command.RECIEVEMENT_DESCRIPTORS);
+        
+        List<Record> receivements = new ArrayList<>();
+        receivements.add(receivement);
+        
+        receiveBatches(receivements, descriptors);
+
+    }//end of DatabaseHandler::receiveBatch
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::receiveBatches
+    //
+    // Receives many batches at once by extracting and using objects that it
+    // knows are in pCommand.
+    //
+
+    private void receiveBatches(Command pCommand)
+        throws DatabaseError
+    {
+        
+        //get the receivement records and receivement descriptors
+        List<?> receivements = (List<?>)pCommand.get(Command.RECEIVEMENTS);
+        List<?> descriptors = (List<?>)pCommand
+                                        .get(Command.RECIEVEMENT_DESCRIPTORS);
+        
+        receiveBatches(receivements, descriptors);
+
+    }//end of DatabaseHandler::receiveBatches
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::receiveBatches
+    //
+    // Receives a batch for every receivement in pReceivements using
+    // pDescriptors.
+    //
+    // All of the batches are inserted with one batched insert and all of the
+    // receivements with another, inside a single transaction, so either every
+    // batch is received or none of them are.
+    //
+
+    private void receiveBatches(List<?> pReceivements, List<?> pDescriptors)
+        throws DatabaseError
+    {
+        
+        //create database entries for the batches and receivements
+        List<DatabaseEntry> recEntries = new ArrayList<>();
+        List<DatabaseEntry> batchEntries = new ArrayList<>();
+        
+        //records of the new batches for the inventory index
+        ColumnSchema batchSchema = new ColumnSchema();
+        List<Record> batches = new ArrayList<>();
+        
+        for (Object r : pReceivements) {
+            
+            Record receivement = (Record)r;
+            
+            DatabaseEntry recEntry = new DatabaseEntry();
+            DatabaseEntry batchEntry = new DatabaseEntry();
+            Record batch = new Record(batchSchema);
+        
+            //extract data from the descriptors
+            for (Object o : pDescriptors) {
+                Descriptor d = (Descriptor)o;
+
+                String key = d.getSkoonieKey();
+                String name = d.getName();
+                String value = receivement.getValue(key);
+
+                switch (name) {
+
+                    //Descriptor is the receivement id
+                    case "Receivement Id":
+                        recEntry.storeColumn("id", value);
+                        break;
+
+                    //Descriptor is the date
+                    case "Date":
+                        recEntry.storeColumn(key, value);
+                        break;
+
+                    //Descriptor is just an ordinary batch descriptor
+                    default:
+                        recEntry.storeColumn(key, value);
+                        batchEntry.storeColumn(key, value);
+                        batch.addValue(key, value);
+                        break;
+
+                }
+
+            }
+            
+            recEntries.add(recEntry);
+            batchEntries.add(batchEntry);
+            batches.add(batch);
+            
+        }
+        
+        List<Integer> insertedKeys = new ArrayList<>();
+        
+        performTransaction(() -> {
+        
+            //insert the batches into database and get the generated keys
+            List<Integer> batchKeys 
+                            = db.insertEntries(batchEntries, TableName.batches);
+            insertedKeys.addAll(batchKeys);
+
+            //store the batch keys in the receivement entries
+            for (int i=0; i<recEntries.size(); i++) {
+                recEntries.get(i).storeColumn("batch_key", 
+                                                batchKeys.get(i).toString());
+            }
+
+            //insert the receivement entries into the database
+            db.insertEntries(recEntries, TableName.receivements);
+            
+            changeFeed.recordChanges(TableName.batches, batchKeys, 
+                                        ChangeFeed.ADDED);
+            
+        });
+        
+        for (int i=0; i<batches.size(); i++) {
+            batches.get(i).setSkoonieKey(insertedKeys.get(i).toString());
+        }
+        inventory.putAll(batches, Collections.emptyList());
+
+    }//end of DatabaseHandler::receiveBatches
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::sameDescriptors
+    //
+    // Returns true if pA and pB are the same descriptors in the same order,
+    // going by their skoonie keys.
+    //
+
+    private static boolean sameDescriptors(List<?> pA, List<?> pB)
+    {
+        
+        if (pA == null || pB == null || pA.size() != pB.size()) { return false; }
+        
+        for (int i=0; i<pA.size(); i++) {
+            String a = ((Descriptor)pA.get(i)).getSkoonieKey();
+            String b = ((Descriptor)pB.get(i)).getSkoonieKey();
+            if (!a.equals(b)) { return false; }
+        }
+        
+        return true;
+
+    }//end of DatabaseHandler::sameDescriptors
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::sendChanges
+    //
+    // Reads the current state of the records in pTable that pChanges says 
+    // were added or edited and sends them, along with the keys of the records
+    // that were deleted, to the main thread in a command with pMessage.
+    //
+    // The records are stored in the command under pRecordsKey, the 
+    // descriptors under pDescriptorsKey, and the deleted keys under
+    // Command.DELETED_KEYS. A changed record that no longer exists is sent as
+    // deleted.
+    //
+    // Must be connected to the database before calling.
+    //
+
+    private void sendChanges(String pMessage, String pRecordsKey, 
+                                String pDescriptorsKey, String pTable, 
+                                String pDescriptorsTable, 
+                                ChangeFeed.Changes pChanges)
+        throws DatabaseError
+    {
+        
+        List<Descriptor> descriptors = getDescriptors(pDescriptorsTable, false);
+        
+        List<Record> records = new ArrayList<>();
+        Set<String> deleted = new LinkedHashSet<>(pChanges.getDeleted());
+        
+        //anything not found has been deleted since it was changed
+        Set<String> missing = new HashSet<>(pChanges.getChanged());
+        
+        RecordExtractor extractor = new RecordExtractor(
+                    descriptorCache.getIndex(pDescriptorsTable, descriptors));
+        db.getEntries(pTable, new ArrayList<>(pChanges.getChanged()), (e) -> {
+            Record r = extractor.extract(e);
+            missing.remove(r.getSkoonieKey());
+            records.add(r);
+        });
+        
+        deleted.addAll(missing);
+        
+        if (pTable.equals(TableName.batches)) {
+            inventory.putAll(records, deleted);
+        }
+        
+        sendDelta(pMessage, pRecordsKey, pDescriptorsKey, descriptors, records,
+                    new ArrayList<>(deleted));
+
+    }//end of DatabaseHandler::sendChanges
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::sendDelta
+    //
+    // Sends pRecords, which were added or edited, and pDeletedKeys, the keys 
+    // of records that were deleted, to the main thread in a command with 
+    // pMessage, so that only what changed has to be sent and applied.
+    //
+    // The records are stored in the command under pRecordsKey, pDescriptors
+    // under pDescriptorsKey, and the deleted keys under Command.DELETED_KEYS.
+    // pDescriptors may be null if the receiver's descriptors are still good.
+    //
+
+    private void sendDelta(String pMessage, String pRecordsKey, 
+                            String pDescriptorsKey, List<?> pDescriptors,
+                            List<Record> pRecords, List<String> pDeletedKeys)
+    {
+        
+        Command c = new Command(pMessage);
+        
+        c.put(pRecordsKey, pRecords);
+        if (pDescriptors != null) { c.put(pDescriptorsKey, pDescriptors); }
+        c.put(Command.DELETED_KEYS, pDeletedKeys);
+        
+        performCommandInMainThread(c);
+
+    }//end of DatabaseHandler::sendDelta
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::sendDescriptors
+    //
+    // Gets all of the descriptors from pDescriptorsTable and sends them to the
+    // main thread in a command with pMessage, made by
+    // makeDescriptorsCommand().
+    //
+    // If the descriptors are cached, even if they were only saved by an
+    // earlier run and may be out of date, they are sent right away, as the
+    // reply if the get was performed with performAsync(), so that the window
+    // asking for them can be shown without waiting on the database. Then they
+    // are checked with the database like always, and only sent again, to
+    // everybody, if they have changed.
+    //
+
+    private void sendDescriptors(String pMessage, String pDescriptorsTable)
+        throws DatabaseError
+    {
+        
+        List<Descriptor> saved = descriptorCache.peek(pDescriptorsTable);
+        
+        if (saved != null) {
+            replyInMainThread(makeDescriptorsCommand(pMessage, saved));
+        }
+        
+        List<Descriptor> current = getDescriptors(pDescriptorsTable, true);
+        
+        //what was already sent is still right
+        if (current.equals(saved)) { return; }
+        
+        //goes to everybody if the saved ones were already sent as the reply
+        replyInMainThread(makeDescriptorsCommand(pMessage, current));
+
+    }//end of DatabaseHandler::sendDescriptors
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::transferBatch
+    //
+    // Transfers a batch by extracting and using objects that it knows are in
+    // pCommand.
+    //
+
+    private void transferBatch(Command pCommand)
+        throws DatabaseError
+    {
+        
+        //get the transfer record and transfer descriptors
+        Record transfer = (Record)pCommand.get(Command.TRANSFER);
+        List<?> transferDescriptors = (List<?>)pCommand
+                                            .get(Command.TRANSFER_DESCRIPTORS);
+        
+        //get the batch record
+        Record batch = (Record)pCommand.get(Command.BATCH);
+        
+        String toCustomer = null;
+        
+        //create database entries for the batch and transfer
+        DatabaseEntry transferEntry = new DatabaseEntry();
+        DatabaseEntry batchEntry = new DatabaseEntry();
+        
+        //add the batch key to the transfer and batch entries
+        transferEntry.storeColumn("batch_key", batch.getSkoonieKey());
+        batchEntry.storeColumn("skoonie_key", batch.getSkoonieKey());
+        
+        //extract data from the movement
+        for (Object o : transferDescriptors) {
+            Descriptor d = (Descriptor)o;
+            
+            String key = d.getSkoonieKey();
+            String name = d.getName();
+            String value = transfer.getValue(key);
+            
+            switch (name) {
+                
+                //Descriptor is the transfer's To Customer
+                case "To Customer":
+                    batchEntry.storeColumn(CUSTOMER_KEY, value);
+                    toCustomer = value;
+                   
+                default:
+                    transferEntry.storeColumn(key, value);
+                    break;
+                    
+            }
+            
+        }
+        
+        //the batch and the transfer are saved together or not at all
+        performTransaction(() -> {
+            
+            //update the batch in the database
+            db.updateEntry(batchEntry, TableName.batches);
+
+            //inert the transfer entry into the database
+            db.insertEntry(transferEntry, TableName.transfers);
+            
+            changeFeed.recordChange(TableName.batches, batch.getSkoonieKey(),
+                                        ChangeFeed.EDITED);
+            
+        });
+        
+        if (toCustomer != null) {
+            inventory.setCustomer(batch.getSkoonieKey(), toCustomer);
+        }
+
+    }//end of DatabaseHandler::transferBatch
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::reloadInventory
+    //
+    // Loads the inventory index again. A failure is logged and the index is
+    // left as it was, to be tried again next time. See loadInventory().
+    //
+
+    private void reloadInventory()
+    {
+        
+        try { loadInventory(); }
+        catch (DatabaseError e) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                                    e.getMessage() + " - Error: 1025");
+        }
+        finally { db.disconnectFromDatabase(); }
+
+    }//end of DatabaseHandler::reloadInventory
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::replayJournal
+    //
+    // Does the commands saved to the journal, oldest first, until it is empty
+    // or the database can't be reached again.
+    //
+    // The commands are read REPLAY_BATCH_SIZE at a time. Receivements saved
+    // one after another are received together. Each command is marked as
+    // replayed as soon as it is done, so nothing is done twice if the
+    // connection is lost part way through.
+    //
+    // A command that fails for any reason other than the connection would
+    // fail every time, so it is skipped and the user is told. If receivements
+    // received together fail, they are done again one at a time so that only
+    // the bad one is skipped.
+    //
+    // Only one thread may replay the journal; it is only called by the
+    // thread that checks the connection.
+    //
+
+    private void replayJournal()
+    {
+        
+        try {
+            
+            List<OfflineJournal.Entry> entries;
+            
+            while (!(entries = journal.readPending(REPLAY_BATCH_SIZE)).isEmpty()) 
+            {
+                
+                int i = 0;
+                while (i < entries.size()) { i = replayEntries(entries, i); }
+                
+            }
+            
+        }
+        catch (IOException e) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                                    e.getMessage() + " - Error: 1018");
+        }
+        catch (DatabaseError e) { handleDatabaseError(e); }
+        finally { db.disconnectFromDatabase(); }
+
+    }//end of DatabaseHandler::replayJournal
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::replayEntries
+    //
+    // Does the command in pEntries at pStart, along with the receivements
+    // right after it if it is a receivement, marks them as replayed, and
+    // returns the index of the first entry not done.
+    //
+    // If the receivements done together fail, they are done again one at a
+    // time so that only the ones that fail on their own are skipped.
+    //
+    // Throws a DatabaseError only if the database can't be reached.
+    //
+
+    private int replayEntries(List<OfflineJournal.Entry> pEntries, int pStart)
+        throws DatabaseError, IOException
+    {
+        
+        Command c = pEntries.get(pStart).getCommand();
+        
+        int next = pStart+1;
+        
+        //a command that couldn't be read back is skipped by replayEntry()
+        if (c == null || !isReceivement(c)) {
+            replayEntry(pEntries.get(pStart));
+            return next;
+        }
+        
+        List<Object> receivements = new ArrayList<>(getReceivements(c));
+        List<?> descriptors = (List<?>)c.get(Command.RECIEVEMENT_DESCRIPTORS);
+        
+        //receivements with the same descriptors can go in together
+        while (next < pEntries.size()) {
+            Command n = pEntries.get(next).getCommand();
+            if (n == null || !isReceivement(n) || !sameDescriptors(
+                    descriptors, 
+                    (List<?>)n.get(Command.RECIEVEMENT_DESCRIPTORS))) 
+            {
+                break;
+            }
+            receivements.addAll(getReceivements(n));
+            next++;
+        }
+        
+        //just one, so there's nothing to gain from doing it together
+        if (next == pStart+1) {
+            replayEntry(pEntries.get(pStart));
+            return next;
+        }
+        
+        try {
+            receiveBatches(receivements, descriptors);
+            journal.markReplayed(pEntries.get(next-1), next-pStart);
+            return next;
+        }
+        catch (DatabaseError e) {
+            if (isConnectionError(e)) { throw e; }
+        }
+        finally { db.disconnectFromDatabase(); }
+        
+        //nothing was received, since they were done in one transaction
+        for (int i=pStart; i<next; i++) { replayEntry(pEntries.get(i)); }
+        
+        return next;
+
+    }//end of DatabaseHandler::replayEntries
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::replayEntry
+    //
+    // Does the command in pEntry and marks it as replayed. If it fails for any
+    // reason other than the connection, or couldn't be read back, it is
+    // skipped and the user is told.
+    //
+    // Throws a DatabaseError only if the database can't be reached.
+    //
+
+    private void replayEntry(OfflineJournal.Entry pEntry)
+        throws DatabaseError, IOException
+    {
+        
+        Command c = pEntry.getCommand();
+        
+        try { if (c != null) { performCommand(c); } }
+        catch (DatabaseError e) {
+            if (isConnectionError(e)) { throw e; }
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                "Skipped journaled " + c.getMessage() + " - Error: 1019");
+            performCommandInMainThread(new Command(Command.DB_FAILURE));
+        }
+        finally { db.disconnectFromDatabase(); }
+        
+        journal.markReplayed(pEntry, 1);
+
+    }//end of DatabaseHandler::replayEntry
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::performTransaction
     //
-    // Takes different actions depending on the message of pError.
+    // Connects to the database and performs pWork as a single transaction.
+    // If pWork finishes, everything it did is committed at once; if it throws
+    // a DatabaseError, everything it did is rolled back and the error is
+    // thrown on to the caller.
+    //
+    // The connection is left open so that more can be done with it; it is
+    // handed back to the pool when the command is done being handled.
     //
 
-    private void handleDatabaseError(DatabaseError pError)
+    private void performTransaction(UnitOfWork pWork)
+        throws DatabaseError
     {
         
-        if (pError==null) { return; }
+        db.connectToDatabase();
         
-        if (pError.getMessage().equals(DatabaseError.CONNECTION_ERROR)
-                || !db.checkConnection()) {
-            handleConnectionError();
+        db.beginTransaction();
+        
+        try {
+            pWork.perform();
+            db.commitTransaction();
         }
-        else { performCommandInMainThread(new Command(Command.DB_FAILURE)); }
+        catch (DatabaseError e) { db.rollbackTransaction(); throw e; }
 
-    }//end of DatabaseHandler::handleDatabaseError
+    }//end of DatabaseHandler::performTransaction
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // DatabaseHandler::handlesCommand
+    // DatabaseHandler::openJournal
     //
-    // Returns true if the command is handled by this class; false if not.
+    // Opens and returns the journal named by the JOURNAL_PROPERTY system
+    // property, or null if it can't be opened, in which case commands that
+    // can't be done right away are lost.
     //
 
-    public boolean handlesCommand(Command pCommand)
+    private OfflineJournal openJournal()
     {
         
-        String msg = pCommand.getMessage();
+        OfflineJournal j = new OfflineJournal(
+                System.getProperty(JOURNAL_PROPERTY, DEFAULT_JOURNAL_FILE));
         
-        for (String cmd : handledCommands) {
-            if (msg.equals(cmd)) { return true; }
+        try { j.init(); return j; }
+        catch (IOException e) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                                    e.getMessage() + " - Error: 1017");
+            return null;
         }
-        
-        return false;
 
-    }//end of DatabaseHandler::handlesCommand
+    }//end of DatabaseHandler::openJournal
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // DatabaseHandler::moveBatch
+    // DatabaseHandler::openSnapshot
     //
-    // Moves a batch by extracting and using objects that it knows are in
-    // pCommand.
+    // Opens the snapshot given by the SNAPSHOT_PROPERTY system property and
+    // puts the descriptors saved in it back into the descriptor cache, so
+    // that they only have to be renewed instead of loaded.
     //
 
-    private void moveBatch(Command pCommand)
-        throws DatabaseError
+    private ReferenceSnapshot openSnapshot()
     {
         
-        //get the movement record and movement descriptors
-        Record movement = (Record)pCommand.get(Command.MOVEMENT);
-        List<?> movementDescriptors = (List<?>)pCommand
-                                            .get(Command.MOVEMENT_DESCRIPTORS);
-        
-        //get the batch record and batch descriptors
-        Record batch = (Record)pCommand.get(Command.BATCH);
-        
-        //create database entries for the batch and receivement
-        DatabaseEntry moveEntry = new DatabaseEntry();
-        DatabaseEntry batchEntry = new DatabaseEntry();
+        ReferenceSnapshot s = new ReferenceSnapshot(
+                System.getProperty(SNAPSHOT_PROPERTY, DEFAULT_SNAPSHOT_FILE));
         
-        //add the batch key to the move and batch entries
-        moveEntry.storeColumn("batch_key", batch.getSkoonieKey());
-        batchEntry.storeColumn("skoonie_key", batch.getSkoonieKey());
+        s.init();
         
-        //extract data from the movement
-        for (Object o : movementDescriptors) {
-            Descriptor d = (Descriptor)o;
-            
-            String key = d.getSkoonieKey();
-            String name = d.getName();
-            String value = movement.getValue(key);
-            
-            switch (name) {
-                
-                //Descriptor is the movement To Rack
-                case "To Rack":
-                    batchEntry.storeColumn("4", value);
-                   
-                default:
-                    moveEntry.storeColumn(key, value);
-                    break;
-                    
-            }
-            
+        for (String table : s.getTables()) {
+            ReferenceSnapshot.Entry e = s.get(table);
+            //entries with records are stored under the records table
+            if (e.getRecords() != null) { continue; }
+            descriptorCache.restore(table, e.getDescriptors(), e.getTables(),
+                                        e.getVersion());
         }
         
-        db.connectToDatabase();
-        
-        //update the batch in the database
-        db.updateEntry(batchEntry, TableName.batches);
-        
-        //inert the movement entry into the database
-        db.insertEntry(moveEntry, TableName.movements);
-
-        db.disconnectFromDatabase();
+        return s;
 
-    }//end of DatabaseHandler::moveBatch
+    }//end of DatabaseHandler::openSnapshot
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // DatabaseHandler::receiveBatch
+    // DatabaseHandler::prepareChangeFeed
     //
-    // Receives a batch by extracting and using objects that it knows are in
-    // pCommand.
+    // Readies the change feed outside of any transaction. If the database
+    // can't be reached, the change feed is readied later by the first poll
+    // that can reach it, which is also outside of any transaction.
     //
 
-    private void receiveBatch(Command pCommand)
-        throws DatabaseError
+    private void prepareChangeFeed()
     {
-        
-        //get the receivement record and receivement descriptors
-        Record receivement = (Record)pCommand.get(Command.RECEIVEMENT);
-        List<?> descriptors = (List<?>)pCommand
-                                        .get(Command.RECIEVEMENT_DESCRIPTORS);
-        
-        //create database entries for the batch and receivement
-        DatabaseEntry recEntry = new DatabaseEntry();
-        DatabaseEntry batchEntry = new DatabaseEntry();
-        
-        //extract data from the descriptors
-        for (Object o : descriptors) {
-            Descriptor d = (Descriptor)o;
-            
-            String key = d.getSkoonieKey();
-            String name = d.getName();
-            String value = receivement.getValue(key);
-            
-            switch (name) {
-                
-                //Descriptor is the receivement id
-                case "Receivement Id":
-                    recEntry.storeColumn("id", value);
-                    break;
-                    
-                //Descriptor is the date
-                case "Date":
-                    recEntry.storeColumn(key, value);
-                    break;
-                   
-                //Descriptor is just an ordinary batch descriptor
-                default:
-                    recEntry.storeColumn(key, value);
-                    batchEntry.storeColumn(key, value);
-                    break;
-                    
-            }
-            
-        }
-        
-        db.connectToDatabase();
-        
-        //insert the batch into database and get the generated key
-        int batchKey = db.insertEntry(batchEntry, TableName.batches);
-        
-        //store the batch key in the receivement entry
-        recEntry.storeColumn("batch_key", Integer.toString(batchKey));
-        
-        //inert the receivement entry into the database
-        db.insertEntry(recEntry, TableName.receivements);
 
-        db.disconnectFromDatabase();
+        try {
+            db.connectToDatabase();
+            changeFeed.makeReady();
+        }
+        catch (DatabaseError e) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                                    e.getMessage() + " - Error: 1023");
+        }
+        finally { db.disconnectFromDatabase(); }
 
-    }//end of DatabaseHandler::receiveBatch
+    }//end of DatabaseHandler::prepareChangeFeed
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // DatabaseHandler::transferBatch
+    // DatabaseHandler::performCommand
     //
-    // Transfers a batch by extracting and using objects that it knows are in
-    // pCommand.
+    // Performs different actions depending on pCommand.
     //
 
-    private void transferBatch(Command pCommand)
+    private void performCommand(Command pCommand)
         throws DatabaseError
     {
         
-        //get the transfer record and transfer descriptors
-        Record transfer = (Record)pCommand.get(Command.TRANSFER);
-        List<?> transferDescriptors = (List<?>)pCommand
-                                            .get(Command.TRANSFER_DESCRIPTORS);
-        
-        //get the batch record
-        Record batch = (Record)pCommand.get(Command.BATCH);
-        
-        //create database entries for the batch and transfer
-        DatabaseEntry transferEntry = new DatabaseEntry();
-        DatabaseEntry batchEntry = new DatabaseEntry();
-        
-        //add the batch key to the transfer and batch entries
-        transferEntry.storeColumn("batch_key", batch.getSkoonieKey());
-        batchEntry.storeColumn("skoonie_key", batch.getSkoonieKey());
-        
-        //extract data from the movement
-        for (Object o : transferDescriptors) {
-            Descriptor d = (Descriptor)o;
+        switch (pCommand.getMessage()) {
             
-            String key = d.getSkoonieKey();
-            String name = d.getName();
-            String value = transfer.getValue(key);
+            //all commands added here need to be added to init()
             
-            switch (name) {
+            case Command.RECEIVE_BATCH:
+                receiveBatch(pCommand);
+                break;
                 
-                //Descriptor is the transfer's To Customer
-                case "To Customer":
-                    //WIP HSS// -- this uses hardcoded descriptor key -- very bad
-                    batchEntry.storeColumn("3", value); 
-                   
-                default:
-                    transferEntry.storeColumn(key, value);
-                    break;
-                    
-            }
+            case Command.RECEIVE_BATCHES:
+                receiveBatches(pCommand);
+                break;
             
-        }
-        
-        db.connectToDatabase();
-        
-        //update the batch in the database
-        db.updateEntry(batchEntry, TableName.batches);
-        
-        //inert the transfer entry into the database
-        db.insertEntry(transferEntry, TableName.transfers);
+            case Command.GET_RECEIVEMENT_DESCRIPTORS:
+                getReceivementDescriptors();
+                break;
+                
+            case Command.MOVE_BATCH:
+                moveBatch(pCommand);
+                break;
+            
+            case Command.GET_MOVEMENT_DESCRIPTORS:
+                getMovementDescriptors();
+                break;
+                
+            case Command.TRANSFER_BATCH:
+                transferBatch(pCommand);
+                break;
+            
+            case Command.GET_TRANSFER_DESCRIPTORS:
+                getTransferDescriptors();
+                break;
+            
+            case Command.ADD_CUSTOMER:
+                addCustomer(pCommand);
+                break;
+                
+            case Command.DELETE_CUSTOMER:
+                deleteCustomer((String)pCommand.get(Command.SKOONIE_KEY));
+                break;
+                
+            case Command.EDIT_CUSTOMER:
+                editCustomer(pCommand);
+                break;
+                
+            case Command.GET_CUSTOMERS:
+                getCustomers();
+                break;
+                
+            case Command.ADD_RACK:
+                addRack(pCommand);
+                break;
+                
+            case Command.DELETE_RACK:
+                deleteRack((String)pCommand.get(Command.SKOONIE_KEY));
+                break;
+                
+            case Command.EDIT_RACK:
+                editRack(pCommand);
+                break;
+                
+            case Command.GET_RACKS:
+                getRacks();
+                break;
 
-        db.disconnectFromDatabase();
+        }
 
-    }//end of DatabaseHandler::transferBatch
+    }//end of DatabaseHandler::performCommand
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
     // DatabaseHandler::performCommandInMainThread
     //
-    // Performs pCommand in the main thread.
+    // Performs pCommand in the main thread, for everybody.
     // 
     // NOTE:    All of this is done in the main thread, so pCommand should not
     //          be used after it is given to this function.
@@ -1131,6 +2463,32 @@ public class DatabaseHandler implements CommandHandler
     }//end of DatabaseHandler::performCommandInMainThread
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::replyInMainThread
+    //
+    // Sends pResult, the result of the get command being handled, back to
+    // whoever performed it with performAsync(). If it wasn't performed that
+    // way, or has already been replied to, pResult is performed in the main 
+    // thread for everybody instead.
+    //
+    // Only the results of get commands should be sent this way. Changes,
+    // failures, and anything else everybody needs to know about must always
+    // go through performCommandInMainThread().
+    //
+    // NOTE:    pResult should not be used after it is given to this function.
+    //
+
+    private void replyInMainThread(Command pResult)
+    {
+        
+        Command request = currentCommand.get();
+        if (request != null && request.reply(pResult)) { return; }
+        
+        performCommandInMainThread(pResult);
+
+    }//end of DatabaseHandler::replyInMainThread
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // DatabaseHandler::updateCustomerDescriptor
     //
@@ -1181,10 +2539,222 @@ public class DatabaseHandler implements CommandHandler
         db.updateEntry(descriptorEntry, TableName.descriptors);
         
         db.disconnectFromDatabase();*/
+        
+        //the cached descriptors are no longer right
+        descriptorCache.invalidate();
 
     }//end of DatabaseHandler::updateDescriptor
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::warmUp
+    //
+    // Opens a connection and loads the descriptors used by the receive, move,
+    // and transfer windows and the customers and racks into the caches and
+    // the snapshot, and the batches into the inventory index, each on one of
+    // pExecutor's threads, so that they are ready by the time a window asks
+    // for them. Nothing is sent to the main thread.
+    //
+    // How long each one took is logged with pTimer. Returns a future that is
+    // completed once all of them are done, whether they worked or not.
+    //
+
+    public CompletableFuture<Void> warmUp(ExecutorService pExecutor,
+                                            StartupTimer pTimer)
+    {
+        
+        List<CompletableFuture<Void>> phases = new ArrayList<>();
+        
+        phases.add(warmUp(pExecutor, pTimer, "Connection", () -> {
+            db.connectToDatabase();
+        }));
+        
+        phases.add(warmUp(pExecutor, pTimer, "Receivement descriptors", () -> {
+            getDescriptors(TableName.batchesDescriptors, false);
+        }));
+        
+        phases.add(warmUp(pExecutor, pTimer, "Movement descriptors", () -> {
+            getDescriptors(TableName.movementsDescriptors, false);
+        }));
+        
+        phases.add(warmUp(pExecutor, pTimer, "Transfer descriptors", () -> {
+            getDescriptors(TableName.transfersDescriptors, false);
+        }));
+        
+        phases.add(warmUp(pExecutor, pTimer, "Inventory", () -> {
+            loadInventory();
+        }));
+        
+        //without the snapshot there is nowhere to keep the records
+        if (snapshot != null) {
+            
+            phases.add(warmUp(pExecutor, pTimer, "Customers", () -> {
+                loadRecords(TableName.customers, 
+                    TableName.customersDescriptors, 
+                    snapshot.get(TableName.customers));
+            }));
+            
+            phases.add(warmUp(pExecutor, pTimer, "Racks", () -> {
+                loadRecords(TableName.racks, TableName.racksDescriptors, 
+                                snapshot.get(TableName.racks));
+            }));
+            
+        }
+        
+        return CompletableFuture.allOf(
+                            phases.toArray(new CompletableFuture<?>[0]));
+
+    }//end of DatabaseHandler::warmUp
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseHandler::warmUp
+    //
+    // Performs pWork on one of pExecutor's threads and logs how long it took
+    // as pPhase with pTimer. Returns a future that is completed once pWork is
+    // done.
+    //
+    // Errors are only logged: the connection is checked, and the user told
+    // about it, by the model's thread.
+    //
+
+    private CompletableFuture<Void> warmUp(ExecutorService pExecutor,
+                                            StartupTimer pTimer,
+                                            String pPhase, UnitOfWork pWork)
+    {
+        
+        return CompletableFuture.runAsync(() -> {
+            
+            long start = System.nanoTime();
+            
+            try { pWork.perform(); }
+            catch (DatabaseError e) {
+                Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                            pPhase + " warm-up failed: " + e.getMessage()
+                            + " - Error: 1022");
+            }
+            finally { db.disconnectFromDatabase(); }
+            
+            pTimer.logPhase(pPhase, start);
+            
+        }, pExecutor);
+
+    }//end of DatabaseHandler::warmUp
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // class DatabaseHandler::RecordExtractor
+    //
+    // Turns database entries into records, keeping only the columns that
+    // match the skoonie keys of a list of descriptors. This also handles 
+    // skoonie keys.
+    //
+    // Each record is made in a single pass over the descriptors, with no
+    // searching: the cost is rows x descriptors rather than rows x columns x
+    // descriptors.
+    //
+    // All of the records made by one extractor share one schema of the 
+    // descriptor keys. The first time an entry with a new schema comes along,
+    // the position of each descriptor key in the entry's schema is looked up
+    // and remembered; every entry after that with the same schema is copied
+    // straight across by position without looking up any names.
+    //
+    // Package visible for RecordExtractorBenchmark.
+    //
+
+    static class RecordExtractor
+    {
+        
+        private final ColumnSchema recordSchema = new ColumnSchema();
+        
+        //schema of the last entry extracted from
+        private ColumnSchema entrySchema;
+        
+        //position in entrySchema of each column in recordSchema, or -1 if the
+        //entries don't have that column
+        private int[] remap;
+        
+        //position of the skoonie_key column in entrySchema
+        private int keyIndex;
+        
+        //----------------------------------------------------------------------
+        // RecordExtractor::RecordExtractor (constructor)
+        //
+        // pIndex should be built once per descriptor load and shared by
+        // everything that uses those descriptors.
+        //
+
+        public RecordExtractor(DescriptorIndex pIndex)
+        {
+            
+            for (Descriptor d : pIndex.getDescriptors()) {
+                recordSchema.addColumn(d.getSkoonieKey());
+            }
+
+        }//end of RecordExtractor::RecordExtractor (constructor)
+        //----------------------------------------------------------------------
+        
+        //----------------------------------------------------------------------
+        // RecordExtractor::extract
+        //
+        // Returns a new record containing the skoonie key of pEntry and the
+        // values of all of its columns that match descriptor keys.
+        //
+
+        public Record extract(DatabaseEntry pEntry)
+        {
+            
+            //work out where the descriptor values are in this kind of entry
+            if (pEntry.getSchema() != entrySchema) {
+                
+                entrySchema = pEntry.getSchema();
+                
+                remap = new int[recordSchema.getColumnCount()];
+                for (int i=0; i<remap.length; i++) {
+                    remap[i] = entrySchema.indexOf(
+                                            recordSchema.getColumnName(i));
+                }
+                
+                keyIndex = entrySchema.indexOf("skoonie_key");
+                
+            }
+            
+            Record r = new Record(recordSchema);
+            
+            r.setSkoonieKey(pEntry.getValueAt(keyIndex));
+            
+            for (int i=0; i<remap.length; i++) {
+                if (remap[i] < 0) { continue; }
+                r.setValueAt(i, pEntry.getValueAt(remap[i]));
+            }
+            
+            return r;
+
+        }//end of RecordExtractor::extract
+        //----------------------------------------------------------------------
+        
+    }//end of class DatabaseHandler::RecordExtractor
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // interface DatabaseHandler::UnitOfWork
+    //
+    // Database work that has to be done as one transaction. See
+    // performTransaction().
+    //
+
+    private interface UnitOfWork
+    {
+        
+        void perform() throws DatabaseError;
+        
+    }//end of interface DatabaseHandler::UnitOfWork
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    
 }//end of class DatabaseHandler
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
\ No newline at end of file
@@ -0,0 +1,312 @@
+/*******************************************************************************
+* Title: DescriptorCache.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class caches the descriptors loaded from each of the descriptors tables
+* so that they don't have to be read from the database, along with all of
+* their preset values, every time a window is opened.
+*
+* Each cached list remembers the tables it was built from -- the descriptors
+* table itself plus any tables its preset values came from -- and a version of
+* those tables taken when it was loaded. A cached list is used as is until it
+* is timeToLive old; after that, the caller should compare the version with
+* the current version of the tables and either renew the list or load it
+* again.
+*
+* Lists are thrown away right away when invalidate() or invalidateTable() is
+* called, which should be done whenever this program changes one of the
+* tables.
+*
+* Lists saved by an earlier run of the program can be put back with
+* restore(). They can be shown right away with peek(), but get() won't return
+* them until the version has been checked.
+*
+* Each cached list is indexed once, when it is cached, so that callers
+* looking descriptors up by key or name don't have to index it every time.
+*
+* This class is thread safe.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model;
+
+//------------------------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import shared.Descriptor;
+import shared.DescriptorIndex;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class DescriptorCache
+//
+
+public class DescriptorCache
+{
+    
+    //milliseconds a cached list is trusted without checking the version
+    private long timeToLive = 30000;
+    public synchronized void setTimeToLive(long pTime) { timeToLive = pTime; }
+    
+    //key=descriptors table name
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    //--------------------------------------------------------------------------
+    // DescriptorCache::DescriptorCache (constructor)
+    //
+
+    public DescriptorCache()
+    {
+
+    }//end of DescriptorCache::DescriptorCache (constructor)
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DescriptorCache::get
+    //
+    // Returns a copy of the list cached for pDescriptorsTable if it is still
+    // fresh, or null if it isn't cached or has been cached for longer than
+    // timeToLive.
+    //
+    // The copy can be changed without changing the cache, but the descriptors
+    // in it are shared and must not be changed.
+    //
+
+    public synchronized List<Descriptor> get(String pDescriptorsTable)
+    {
+        
+        Entry e = entries.get(pDescriptorsTable);
+        
+        if (e == null) { return null; }
+        
+        if (System.currentTimeMillis() - e.loadedAt > timeToLive) {
+            return null;
+        }
+        
+        return new ArrayList<>(e.descriptors);
+
+    }//end of DescriptorCache::get
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DescriptorCache::getIndex
+    //
+    // Returns the index of the list cached for pDescriptorsTable if it holds
+    // the same descriptors as pDescriptors, which should have just come from
+    // get() or renew(). Otherwise, such as when the list has since been
+    // thrown away, pDescriptors is indexed and returned.
+    //
+
+    public DescriptorIndex getIndex(String pDescriptorsTable, 
+                                        List<Descriptor> pDescriptors)
+    {
+        
+        Entry e;
+        synchronized (this) { e = entries.get(pDescriptorsTable); }
+        
+        if (e != null && e.descriptors.equals(pDescriptors)) { return e.index; }
+        
+        return new DescriptorIndex(pDescriptors);
+
+    }//end of DescriptorCache::getIndex
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DescriptorCache::getTables
+    //
+    // Returns the tables the list cached for pDescriptorsTable was built from,
+    // or null if nothing is cached for it.
+    //
+
+    public synchronized Set<String> getTables(String pDescriptorsTable)
+    {
+        
+        Entry e = entries.get(pDescriptorsTable);
+        
+        return e!=null ? e.tables : null;
+
+    }//end of DescriptorCache::getTables
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DescriptorCache::invalidate
+    //
+    // Throws away everything in the cache.
+    //
+
+    public synchronized void invalidate()
+    {
+        
+        entries.clear();
+
+    }//end of DescriptorCache::invalidate
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DescriptorCache::invalidateTable
+    //
+    // Throws away every cached list that was built from pTable, whether
+    // pTable is the descriptors table itself or a table that preset values
+    // were taken from.
+    //
+
+    public synchronized void invalidateTable(String pTable)
+    {
+        
+        Iterator<Entry> i = entries.values().iterator();
+        
+        while (i.hasNext()) {
+            if (i.next().tables.contains(pTable)) { i.remove(); }
+        }
+
+    }//end of DescriptorCache::invalidateTable
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DescriptorCache::peek
+    //
+    // Returns a copy of the list cached for pDescriptorsTable however old it
+    // is, or null if it isn't cached. The list may be out of date, so it
+    // should only be shown while the version is being checked.
+    //
+    // The copy can be changed without changing the cache, but the descriptors
+    // in it are shared and must not be changed.
+    //
+
+    public synchronized List<Descriptor> peek(String pDescriptorsTable)
+    {
+        
+        Entry e = entries.get(pDescriptorsTable);
+        
+        return e!=null ? new ArrayList<>(e.descriptors) : null;
+
+    }//end of DescriptorCache::peek
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DescriptorCache::put
+    //
+    // Caches pDescriptors as the list for pDescriptorsTable. pTables are the
+    // tables the list was built from and pVersion is the version of those
+    // tables when it was built.
+    //
+
+    public synchronized void put(String pDescriptorsTable, 
+                                    List<Descriptor> pDescriptors,
+                                    Set<String> pTables, String pVersion)
+    {
+        
+        entries.put(pDescriptorsTable, 
+                        new Entry(pDescriptors, pTables, pVersion));
+
+    }//end of DescriptorCache::put
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DescriptorCache::renew
+    //
+    // If the version of the list cached for pDescriptorsTable is pVersion, the
+    // list is trusted for another timeToLive and a copy of it is returned.
+    // Otherwise, the list is thrown away and null is returned.
+    //
+
+    public synchronized List<Descriptor> renew(String pDescriptorsTable, 
+                                                String pVersion)
+    {
+        
+        Entry e = entries.get(pDescriptorsTable);
+        
+        if (e == null) { return null; }
+        
+        if (!e.version.equals(pVersion)) {
+            entries.remove(pDescriptorsTable);
+            return null;
+        }
+        
+        e.loadedAt = System.currentTimeMillis();
+        
+        return new ArrayList<>(e.descriptors);
+
+    }//end of DescriptorCache::renew
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DescriptorCache::restore
+    //
+    // Caches pDescriptors as the list for pDescriptorsTable just like put(),
+    // except that the list is already stale: get() won't return it until it
+    // has been renewed with the version of pTables.
+    //
+    // Used for lists that were saved before the program started, which are
+    // still worth keeping since renewing them is much cheaper than loading
+    // them again.
+    //
+
+    public synchronized void restore(String pDescriptorsTable, 
+                                        List<Descriptor> pDescriptors,
+                                        Set<String> pTables, String pVersion)
+    {
+        
+        Entry e = new Entry(pDescriptors, pTables, pVersion);
+        e.loadedAt = 0;
+        
+        entries.put(pDescriptorsTable, e);
+
+    }//end of DescriptorCache::restore
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // class DescriptorCache::Entry
+    //
+    // A cached list of descriptors and what is needed to tell if it is stale.
+    //
+
+    private static class Entry
+    {
+        
+        final List<Descriptor> descriptors;
+        
+        final DescriptorIndex index;
+        
+        final Set<String> tables;
+        
+        final String version;
+        
+        long loadedAt = System.currentTimeMillis();
+        
+        //----------------------------------------------------------------------
+        // Entry::Entry (constructor)
+        //
+
+        Entry(List<Descriptor> pDescriptors, Set<String> pTables, 
+                String pVersion)
+        {
+            
+            descriptors = Collections.unmodifiableList(
+                                                new ArrayList<>(pDescriptors));
+            index = new DescriptorIndex(descriptors);
+            tables = Collections.unmodifiableSet(pTables);
+            version = pVersion;
+
+        }//end of Entry::Entry (constructor)
+        //----------------------------------------------------------------------
+        
+    }//end of class DescriptorCache::Entry
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+
+}//end of class DescriptorCache
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
@@ -0,0 +1,442 @@
+/*******************************************************************************
+* Title: InventoryIndex.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class keeps every batch in memory, indexed by the rack it is on and
+* the customer that holds it, so that "what is on this rack" and "what does
+* this customer hold" can be answered without reading the whole batches table.
+*
+* The rack and customer of a batch are stored in descriptor columns; the
+* skoonie keys of those descriptors are given when the index is loaded. A
+* batch is indexed by whatever value is in each column, and batches without a
+* value aren't indexed by it.
+*
+* The index is loaded all at once, and then kept up to date by putting
+* batches that are added or changed and removing batches that are deleted.
+* Changes made while it is being loaded are saved and made again once the
+* load is done, so that they aren't lost to the older data being loaded.
+* Changes made before a load has started are ignored, since the load will
+* include them. It can be loaded again at any time, such as after changes may
+* have been missed.
+*
+* The records stored are never changed; a batch that changes is replaced by
+* a copy. They are shared with the callers and must not be changed by them
+* either.
+*
+* This class is thread safe.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model;
+
+//------------------------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import shared.Record;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class InventoryIndex
+//
+
+public class InventoryIndex
+{
+
+    //key=batch skoonie key; value=batch
+    private Map<String, Record> batches = new HashMap<>();
+
+    //key=rack; value=skoonie keys of the batches on the rack
+    private Map<String, Set<String>> byRack = new HashMap<>();
+
+    //key=customer; value=skoonie keys of the batches the customer holds
+    private Map<String, Set<String>> byCustomer = new HashMap<>();
+
+    //descriptor keys of the rack and customer columns
+    private String rackKey;
+    private String customerKey;
+
+    private boolean loaded = false;
+    public synchronized boolean isLoaded() { return loaded; }
+
+    private boolean loading = false;
+
+    //changes made while loading, to be made again once the load is done
+    private final List<Runnable> missed = new ArrayList<>();
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::InventoryIndex (constructor)
+    //
+
+    public InventoryIndex()
+    {
+
+    }//end of InventoryIndex::InventoryIndex (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::add
+    //
+    // Adds pBatch to pIndex under the value in pBatch's pColumn.
+    //
+
+    private static void add(Map<String, Set<String>> pIndex, String pColumn,
+                                Record pBatch)
+    {
+
+        String value = pBatch.getValue(pColumn);
+
+        if (value == null || value.isEmpty()) { return; }
+
+        pIndex.computeIfAbsent(value, (k) -> new LinkedHashSet<>())
+                                                .add(pBatch.getSkoonieKey());
+
+    }//end of InventoryIndex::add
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::beginLoad
+    //
+    // Must be called before the batches for load() are read, so that changes
+    // made while they are being read are kept. Returns false if another load
+    // is already under way, in which case this one shouldn't be done.
+    //
+
+    public synchronized boolean beginLoad()
+    {
+
+        if (loading) { return false; }
+
+        loading = true;
+        missed.clear();
+
+        return true;
+
+    }//end of InventoryIndex::beginLoad
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::cancelLoad
+    //
+    // Forgets about the load started with beginLoad(), for when the batches
+    // couldn't be read. Does nothing if the load was finished.
+    //
+
+    public synchronized void cancelLoad()
+    {
+
+        loading = false;
+        missed.clear();
+
+    }//end of InventoryIndex::cancelLoad
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::getBatch
+    //
+    // Returns the batch with pKey, or null if there isn't one.
+    //
+
+    public synchronized Record getBatch(String pKey)
+    {
+
+        return batches.get(pKey);
+
+    }//end of InventoryIndex::getBatch
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::getBatches
+    //
+    // Returns the batches with pKeys, leaving out any that don't exist.
+    //
+
+    private List<Record> getBatches(Collection<String> pKeys)
+    {
+
+        List<Record> list = new ArrayList<>(pKeys.size());
+
+        for (String k : pKeys) {
+            Record r = batches.get(k);
+            if (r != null) { list.add(r); }
+        }
+
+        return list;
+
+    }//end of InventoryIndex::getBatches
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::getBatchesForCustomer
+    //
+    // Returns the batches held by pCustomer.
+    //
+
+    public synchronized List<Record> getBatchesForCustomer(String pCustomer)
+    {
+
+        return getBatches(getKeys(byCustomer, pCustomer));
+
+    }//end of InventoryIndex::getBatchesForCustomer
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::getBatchesOnRack
+    //
+    // Returns the batches on pRack.
+    //
+
+    public synchronized List<Record> getBatchesOnRack(String pRack)
+    {
+
+        return getBatches(getKeys(byRack, pRack));
+
+    }//end of InventoryIndex::getBatchesOnRack
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::getBatchKeysForCustomer
+    //
+    // Returns the skoonie keys of the batches held by pCustomer.
+    //
+
+    public synchronized Set<String> getBatchKeysForCustomer(String pCustomer)
+    {
+
+        return new LinkedHashSet<>(getKeys(byCustomer, pCustomer));
+
+    }//end of InventoryIndex::getBatchKeysForCustomer
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::getBatchKeysOnRack
+    //
+    // Returns the skoonie keys of the batches on pRack.
+    //
+
+    public synchronized Set<String> getBatchKeysOnRack(String pRack)
+    {
+
+        return new LinkedHashSet<>(getKeys(byRack, pRack));
+
+    }//end of InventoryIndex::getBatchKeysOnRack
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::getKeys
+    //
+    // Returns the keys stored in pIndex under pValue, which may be empty.
+    //
+
+    private static Set<String> getKeys(Map<String, Set<String>> pIndex,
+                                        String pValue)
+    {
+
+        Set<String> keys = pIndex.get(pValue);
+
+        return keys!=null ? keys : Collections.emptySet();
+
+    }//end of InventoryIndex::getKeys
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::isReady
+    //
+    // Returns true if changes can be made to the index now. If it is being
+    // loaded, pChange is saved to be made once the load is done and false is
+    // returned; if it hasn't been loaded, false is returned.
+    //
+
+    private boolean isReady(Runnable pChange)
+    {
+
+        if (loading) { missed.add(pChange); return false; }
+
+        return loaded;
+
+    }//end of InventoryIndex::isReady
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::load
+    //
+    // Replaces everything in the index with pBatches. pRackKey and
+    // pCustomerKey are the descriptor keys of the rack and customer columns.
+    //
+    // Changes made since beginLoad() was called are made again afterwards.
+    //
+
+    public synchronized void load(Collection<Record> pBatches,
+                                    String pRackKey, String pCustomerKey)
+    {
+
+        batches = new HashMap<>(pBatches.size()*4/3 + 1);
+        byRack = new HashMap<>();
+        byCustomer = new HashMap<>();
+        rackKey = pRackKey;
+        customerKey = pCustomerKey;
+
+        for (Record r : pBatches) { put(r); }
+
+        loaded = true;
+        loading = false;
+
+        for (Runnable r : missed) { r.run(); }
+        missed.clear();
+
+    }//end of InventoryIndex::load
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::put
+    //
+    // Adds pBatch, replacing the batch with the same key if there is one.
+    //
+
+    private void put(Record pBatch)
+    {
+
+        remove(pBatch.getSkoonieKey());
+
+        batches.put(pBatch.getSkoonieKey(), pBatch);
+        add(byRack, rackKey, pBatch);
+        add(byCustomer, customerKey, pBatch);
+
+    }//end of InventoryIndex::put
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::putAll
+    //
+    // Adds pChanged, replacing any batches with the same keys, and removes
+    // the batches with pDeletedKeys.
+    //
+
+    public synchronized void putAll(Collection<Record> pChanged,
+                                    Collection<String> pDeletedKeys)
+    {
+
+        if (!isReady(() -> { putAll(pChanged, pDeletedKeys); })) { return; }
+
+        for (Record r : pChanged) { put(r); }
+
+        for (String k : pDeletedKeys) { remove(k); }
+
+    }//end of InventoryIndex::putAll
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::remove
+    //
+    // Removes the batch with pKey, if there is one.
+    //
+
+    private void remove(String pKey)
+    {
+
+        Record old = batches.remove(pKey);
+
+        if (old == null) { return; }
+
+        remove(byRack, rackKey, old);
+        remove(byCustomer, customerKey, old);
+
+    }//end of InventoryIndex::remove
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::remove
+    //
+    // Removes pBatch from pIndex, where it is stored under the value in its
+    // pColumn.
+    //
+
+    private static void remove(Map<String, Set<String>> pIndex,
+                                String pColumn, Record pBatch)
+    {
+
+        String value = pBatch.getValue(pColumn);
+
+        Set<String> keys = value!=null ? pIndex.get(value) : null;
+
+        if (keys == null) { return; }
+
+        keys.remove(pBatch.getSkoonieKey());
+
+        if (keys.isEmpty()) { pIndex.remove(value); }
+
+    }//end of InventoryIndex::remove
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::setCustomer
+    //
+    // Records that the batch with pKey is now held by pCustomer.
+    //
+
+    public synchronized void setCustomer(String pKey, String pCustomer)
+    {
+
+        if (!isReady(() -> { setCustomer(pKey, pCustomer); })) { return; }
+
+        setValue(pKey, customerKey, pCustomer);
+
+    }//end of InventoryIndex::setCustomer
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::setRack
+    //
+    // Records that the batch with pKey is now on pRack.
+    //
+
+    public synchronized void setRack(String pKey, String pRack)
+    {
+
+        if (!isReady(() -> { setRack(pKey, pRack); })) { return; }
+
+        setValue(pKey, rackKey, pRack);
+
+    }//end of InventoryIndex::setRack
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // InventoryIndex::setValue
+    //
+    // Replaces the batch with pKey with a copy whose pColumn is pValue. Does
+    // nothing if there isn't a batch with pKey.
+    //
+
+    private void setValue(String pKey, String pColumn, String pValue)
+    {
+
+        Record old = batches.get(pKey);
+
+        if (old == null || pColumn == null) { return; }
+
+        Record copy = new Record(old.getSchema());
+        copy.setSkoonieKey(pKey);
+        for (int i=0; i<old.getSchema().getColumnCount(); i++) {
+            copy.setValueAt(i, old.getValueAt(i));
+        }
+        copy.addValue(pColumn, pValue);
+
+        put(copy);
+
+    }//end of InventoryIndex::setValue
+    //--------------------------------------------------------------------------
+
+}//end of class InventoryIndex
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
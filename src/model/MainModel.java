@@ -5,7 +5,22 @@
 *
 * Purpose:
 *
-* //WIP HSS// -- describe this!!!!
+* This class is the Model in a Model-View-Controller architecture.
+* 
+* Commands that need the database are put into a CommandQueue and handled by a
+* pool of worker threads, so the GUI never waits on the database and several
+* commands can be handled at once. Commands touching the same records are
+* still handled in the order they were performed; see
+* DatabaseHandler::getOrderingKey.
+* 
+* Commands from the event dispatch thread that don't fit in the queue wait
+* for room in a small overflow list instead, which is drained into the queue
+* by a thread of its own.
+* 
+* The model's own thread checks the database connection every few seconds.
+* 
+* While the GUI is being built at startup, warmUp() opens a connection and
+* loads the data the first windows need on threads of its own.
 * 
 */
 
@@ -15,8 +30,17 @@ package model;
 
 import command.Command;
 import command.CommandHandler;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
+import model.database.ConnectionPool;
 import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
 
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
@@ -30,12 +54,23 @@ public class MainModel implements CommandHandler, Runnable
     
     private final DatabaseHandler dbHandler = new DatabaseHandler();
     
-    private Command command;
-    synchronized public void setCommand(Command pC) { command = pC; }
-    synchronized public Command getCommand() { return command; }
-    synchronized public Command copyCommand() { 
-        return command==null ? null:command.copy();
-    }
+    //number of threads handling database commands -- must be set before init()
+    private int numberOfWorkers = 3;
+    public void setNumberOfWorkers(int pNum) { numberOfWorkers = pNum; }
+    
+    //number of commands each worker can have waiting -- must be set before
+    //init()
+    private int queueCapacity = 100;
+    public void setQueueCapacity(int pCapacity) { queueCapacity = pCapacity; }
+    
+    private CommandQueue commandQueue;
+    
+    //hands the commands from the event dispatch thread that didn't fit in the
+    //command queue to the queue as soon as there is room
+    private ExecutorService overflow;
+    
+    //number of commands in the overflow that haven't been queued yet
+    private final AtomicInteger overflowing = new AtomicInteger();
 
     //--------------------------------------------------------------------------
     // MainModel::MainModel (constructor)
@@ -58,29 +93,148 @@ public class MainModel implements CommandHandler, Runnable
     public void init()
     {
         
+        //the database handler has to be ready before any commands come in
+        dbHandler.init();
+        
+        //start the workers that handle the database commands
+        commandQueue = new CommandQueue(dbHandler, numberOfWorkers, 
+                                            queueCapacity);
+        commandQueue.init();
+        
+        //a single thread, so the overflow is queued in the order it came in
+        overflow = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, 
+                                    new LinkedBlockingQueue<>(queueCapacity), 
+                                    (r) -> {
+            Thread t = new Thread(r, "Command Overflow");
+            t.setDaemon(true);
+            return t;
+        });
+        
+        //only be given the commands that the database handler handles
+        for (String msg : dbHandler.getHandledCommands()) {
+            Command.registerHandler(msg, this);
+        }
+        
         //start the thread
         thread.start();
 
     }// end of MainModel::init
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // MainModel::dropCommand
+    //
+    // Gives up on pCommand because there was no room for it in the command
+    // queue. A DB_FAILURE command is performed so the user knows it didn't
+    // happen. This can be called from any thread.
+    //
+
+    private void dropCommand(Command pCommand)
+    {
+        
+        logSevere("Command queue full - dropped " + pCommand.getMessage());
+        
+        //don't leave anybody waiting for a result that isn't coming
+        pCommand.reply(null);
+        
+        SwingUtilities.invokeLater(() -> { 
+            (new Command(Command.DB_FAILURE)).perform();
+        });
+
+    }//end of MainModel::dropCommand
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MainModel::getInventoryIndex
+    //
+    // Returns the index of the batches by rack and customer, for the GUI and
+    // reports. It is loaded by warmUp() and can be used from any thread.
+    //
+
+    public InventoryIndex getInventoryIndex()
+    {
+        
+        return dbHandler.getInventoryIndex();
+
+    }//end of MainModel::getInventoryIndex
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MainModel::getPoolStatistics
+    //
+    // Returns a snapshot of the statistics of the database connection pool.
+    // This can be called from any thread.
+    //
+
+    public ConnectionPool.Statistics getPoolStatistics()
+    {
+        
+        return dbHandler.getPoolStatistics();
+
+    }//end of MainModel::getPoolStatistics
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MainModel::getQueueStatistics
+    //
+    // Returns a snapshot of the statistics of the command queue. This can be
+    // called from any thread.
+    //
+
+    public CommandQueue.Statistics getQueueStatistics()
+    {
+        
+        return commandQueue.getStatistics();
+
+    }//end of MainModel::getQueueStatistics
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // MainModel::handleCommand
     //
-    // Stores pCommand in the commands list to be handled later. This can be
-    // called from another thread so long as this only accesses variables
-    // through synchronized functions.
+    // Puts a copy of pCommand in the command queue to be handled by one of
+    // the database workers. This can be called from any thread.
+    //
+    // Background threads wait for room if the queue is full, but the event
+    // dispatch thread never does, since the GUI would freeze while it waited.
+    // A command it can't queue is put in the overflow to be queued as soon as
+    // there is room. While anything is in the overflow, the event dispatch
+    // thread's commands go there as well so they are still queued in order.
+    //
+    // A command that can't be queued is dropped; see dropCommand().
     //
 
     @Override
     public void handleCommand(Command pCommand)
     {
         
-        //set the command if it's handled by the database handler
-        if (dbHandler.handlesCommand(pCommand)) { 
-            setCommand(pCommand);
-            //notify the thread to stop waiting
-            synchronized(thread) { thread.notify(); }
+        //return if the command isn't handled by the database handler
+        if (!dbHandler.handlesCommand(pCommand)) { return; }
+        
+        String key = dbHandler.getOrderingKey(pCommand);
+        
+        Command copy = pCommand.copy();
+        
+        if (!SwingUtilities.isEventDispatchThread()) {
+            if (!commandQueue.submit(copy, key)) { dropCommand(copy); }
+            return;
+        }
+        
+        if (overflowing.get() == 0 && commandQueue.offer(copy, key)) { 
+            return; 
+        }
+        
+        overflowing.incrementAndGet();
+        
+        try {
+            overflow.execute(() -> {
+                if (!commandQueue.submit(copy, key)) { dropCommand(copy); }
+                overflowing.decrementAndGet();
+            });
+        }
+        catch (RejectedExecutionException e) {
+            overflowing.decrementAndGet();
+            dropCommand(copy);
         }
 
     }//end of MainModel::handleCommand
@@ -97,22 +251,12 @@ public class MainModel implements CommandHandler, Runnable
     public void run()
     {
         
-        //this will be only be called when the thread first starts
-        dbHandler.init();
-        
         //run through these actions continuously
         while (true) {
             
-            //check the database connection every time the
-            //thread loops throug            
-
-            //handle the commmand if there is one or just check the database
-            //connection if this is just a scheduled loop through
-            Command c = copyCommand();
-            if (c!=null) { dbHandler.handleCommand(c); setCommand(null); }
-            else { dbHandler.checkDatabaseConnection(); }
-            
-            //WIP HSS// -- add a function to check the database for changes
+            //commands are handled by the workers, so all that's left to do
+            //here is check the database for changes and check the connection
+            dbHandler.checkForChanges();
             
             //this will cause to wait for 5 seconds or until notified before
             //looping through again
@@ -152,6 +296,42 @@ public class MainModel implements CommandHandler, Runnable
     }//end of MainModel::logStackTrace
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // MainModel::warmUp
+    //
+    // Starts opening a connection and loading the descriptors, customers,
+    // racks, and batches into the caches, on numberOfWorkers threads that
+    // stop once they are done, and returns right away. How long each part
+    // took, and the whole warm-up, is logged with pTimer. See
+    // DatabaseHandler::warmUp.
+    //
+    // Must be called after init().
+    //
+
+    public void warmUp(StartupTimer pTimer)
+    {
+        
+        long start = System.nanoTime();
+        
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                                                numberOfWorkers, (r) -> {
+            Thread t = new Thread(r, "Warm-Up Worker " 
+                                                + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        
+        dbHandler.warmUp(executor, pTimer).whenComplete((v, e) -> {
+            pTimer.logPhase("Warm-up", start);
+        });
+        
+        //the threads stop once everything already given to them is done
+        executor.shutdown();
+
+    }//end of MainModel::warmUp
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // MainController::makeThreadWait
     //
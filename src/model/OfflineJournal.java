@@ -0,0 +1,414 @@
+/*******************************************************************************
+* Title: OfflineJournal.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class saves commands that change the database to a file on this
+* computer while the database can't be reached, so that they can be done
+* later instead of being lost.
+*
+* Commands are only ever added to the end of the file. It starts with a
+* header holding the position of the first command that hasn't been replayed
+* yet, followed by the commands in the order they were appended. Each command
+* is written as its length, a checksum, and the serialized command, so a
+* command that was only partly written when the program stopped is spotted
+* and thrown away the next time the file is opened. Once every command has
+* been replayed, the file is cut back to just the header.
+*
+* A command is only appended once it is safely on the disk. Forcing the file
+* to the disk is slow, so threads appending at the same time share one force:
+* while one thread is forcing, the others wait, and the first of them to go
+* next forces everything written by all of them.
+*
+* Commands can be appended from any thread, but only one thread at a time may
+* read and replay them.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model;
+
+//------------------------------------------------------------------------------
+
+import command.Command;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class OfflineJournal
+//
+
+public class OfflineJournal
+{
+
+    //the header holds the position of the first command not yet replayed
+    private static final int HEADER_SIZE = 8;
+
+    //each command is preceded by its length and checksum
+    private static final int FRAME_SIZE = 12;
+
+    private final String file;
+
+    private FileChannel channel;
+
+    //position of the first command that hasn't been replayed
+    private long replayed;
+
+    //position just past the last command appended
+    private long end;
+
+    private int pendingCount;
+
+    //numbers of the last write and the last write known to be on the disk
+    private long lastWrite = 0;
+    private long lastForced = 0;
+    private final Object forceLock = new Object();
+
+    //--------------------------------------------------------------------------
+    // OfflineJournal::OfflineJournal (constructor)
+    //
+
+    public OfflineJournal(String pFile)
+    {
+
+        file = pFile;
+
+    }//end of OfflineJournal::OfflineJournal (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // OfflineJournal::init
+    //
+    // Initializes the object. Must be called immediately after instantiation.
+    //
+    // Opens the file, creating it if it doesn't exist, and counts the commands
+    // still waiting to be replayed. A command left partly written at the end
+    // is cut off.
+    //
+
+    public synchronized void init() throws IOException
+    {
+
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                                    StandardOpenOption.READ,
+                                    StandardOpenOption.WRITE);
+
+        if (channel.size() < HEADER_SIZE) {
+            writeHeader(HEADER_SIZE);
+            channel.truncate(HEADER_SIZE);
+            replayed = HEADER_SIZE;
+        }
+        else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            replayed = Math.max(HEADER_SIZE, header.getLong());
+        }
+
+        //find the end of the last complete command
+        end = Math.min(replayed, channel.size());
+        replayed = end;
+        pendingCount = 0;
+        byte[] data;
+        while ((data = readFrame(end)) != null) {
+            end += FRAME_SIZE + data.length;
+            pendingCount++;
+        }
+
+        channel.truncate(end);
+
+        //the header may point past the end if the file was cut just before
+        //the program stopped; commands appended from now on must not be
+        //skipped because of it
+        writeHeader(replayed);
+        channel.force(true);
+
+    }//end of OfflineJournal::init
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // OfflineJournal::append
+    //
+    // Appends pCommand to the end of the journal. Returns once it is on the
+    // disk.
+    //
+    // Throws an IOException if it couldn't be written, including when one of
+    // the objects in pCommand can't be serialized.
+    //
+
+    public void append(Command pCommand) throws IOException
+    {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(pCommand);
+        }
+        byte[] data = bytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE + data.length);
+        frame.putInt(data.length).putLong(crc.getValue()).put(data);
+        frame.flip();
+
+        long write;
+
+        synchronized (this) {
+            while (frame.hasRemaining()) {
+                channel.write(frame, end + frame.position());
+            }
+            end += frame.limit();
+            pendingCount++;
+            write = ++lastWrite;
+        }
+
+        force(write);
+
+    }//end of OfflineJournal::append
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // OfflineJournal::force
+    //
+    // Returns once write number pWrite is on the disk, forcing the file to the
+    // disk if another thread hasn't already done it.
+    //
+
+    private void force(long pWrite) throws IOException
+    {
+
+        synchronized (forceLock) {
+
+            if (lastForced >= pWrite) { return; }
+
+            //everything written up to now goes to the disk with this force
+            long upTo;
+            synchronized (this) { upTo = lastWrite; }
+
+            channel.force(false);
+
+            lastForced = upTo;
+
+        }
+
+    }//end of OfflineJournal::force
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // OfflineJournal::getPendingCount
+    //
+    // Returns the number of commands waiting to be replayed.
+    //
+
+    public synchronized int getPendingCount()
+    {
+
+        return pendingCount;
+
+    }//end of OfflineJournal::getPendingCount
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // OfflineJournal::isEmpty
+    //
+    // Returns true if there are no commands waiting to be replayed.
+    //
+
+    public synchronized boolean isEmpty()
+    {
+
+        return pendingCount == 0;
+
+    }//end of OfflineJournal::isEmpty
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // OfflineJournal::markReplayed
+    //
+    // Records that pEntry and every entry before it have been replayed, so
+    // that they are not replayed again even if the program stops. If nothing
+    // is left, the file is cut back to just the header. Until the header is
+    // reset, it points past the end of the cut file, which init() treats as
+    // nothing left to replay.
+    //
+    // pEntries is the number of entries being marked.
+    //
+
+    public synchronized void markReplayed(Entry pEntry, int pEntries)
+            throws IOException
+    {
+
+        replayed = pEntry.end;
+        pendingCount = Math.max(0, pendingCount - pEntries);
+
+        if (replayed >= end) {
+            //the commands are cut off, and that is on the disk, before the
+            //header is reset; if the header went first, a crash in between
+            //would leave it pointing at commands already replayed
+            replayed = end = HEADER_SIZE;
+            pendingCount = 0;
+            channel.truncate(HEADER_SIZE);
+            channel.force(false);
+        }
+
+        writeHeader(replayed);
+        channel.force(false);
+
+    }//end of OfflineJournal::markReplayed
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // OfflineJournal::readFrame
+    //
+    // Returns the data of the command starting at pPosition, or null if there
+    // isn't a complete command there.
+    //
+
+    private byte[] readFrame(long pPosition) throws IOException
+    {
+
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE);
+        if (channel.read(frame, pPosition) < FRAME_SIZE) { return null; }
+        frame.flip();
+
+        int length = frame.getInt();
+        long checksum = frame.getLong();
+
+        if (length < 0 || pPosition + FRAME_SIZE + length > channel.size()) {
+            return null;
+        }
+
+        ByteBuffer data = ByteBuffer.allocate(length);
+        while (data.hasRemaining()) {
+            if (channel.read(data, pPosition + FRAME_SIZE + data.position())
+                    < 0) { return null; }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data.array());
+
+        return crc.getValue() == checksum ? data.array() : null;
+
+    }//end of OfflineJournal::readFrame
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // OfflineJournal::readPending
+    //
+    // Returns up to pMax of the commands waiting to be replayed, oldest first.
+    // The same commands are returned again until they are marked with
+    // markReplayed().
+    //
+    // A command that can no longer be read, for instance because the program
+    // has changed since it was saved, is returned with a null command so that
+    // it can be skipped.
+    //
+
+    public List<Entry> readPending(int pMax) throws IOException
+    {
+
+        long position;
+        long stop;
+        synchronized (this) { position = replayed; stop = end; }
+
+        List<Entry> entries = new ArrayList<>();
+
+        while (position < stop && entries.size() < pMax) {
+
+            byte[] data = readFrame(position);
+            if (data == null) { break; }
+
+            position += FRAME_SIZE + data.length;
+
+            Command c = null;
+            try (ObjectInputStream in = new ObjectInputStream(
+                                            new ByteArrayInputStream(data)))
+            {
+                c = (Command)in.readObject();
+            }
+            catch (ClassNotFoundException | ClassCastException | IOException e) {
+                Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                                    e.getMessage() + " - Error: 1015");
+            }
+
+            entries.add(new Entry(c, position));
+
+        }
+
+        return entries;
+
+    }//end of OfflineJournal::readPending
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // OfflineJournal::writeHeader
+    //
+    // Writes pReplayed into the header.
+    //
+
+    private void writeHeader(long pReplayed) throws IOException
+    {
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(pReplayed);
+        header.flip();
+
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+
+    }//end of OfflineJournal::writeHeader
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // class OfflineJournal::Entry
+    //
+    // A command read from the journal and where it ends in the file.
+    //
+
+    public static class Entry
+    {
+
+        private final Command command;
+        public Command getCommand() { return command; }
+
+        private final long end;
+
+        //----------------------------------------------------------------------
+        // Entry::Entry (constructor)
+        //
+
+        Entry(Command pCommand, long pEnd)
+        {
+
+            command = pCommand;
+            end = pEnd;
+
+        }//end of Entry::Entry (constructor)
+        //----------------------------------------------------------------------
+
+    }//end of class OfflineJournal::Entry
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+
+}//end of class OfflineJournal
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
@@ -0,0 +1,130 @@
+/*******************************************************************************
+* Title: PresetValueDictionary.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class holds the preset values of descriptors, one map for each table
+* and display column they are taken from. Every descriptor that takes its
+* preset values from the same table and column shares the same map, so the
+* values are only read from the database and stored once no matter how many
+* descriptors use them.
+*
+* Each map is stored with the version of its table when it was read. A map is
+* only handed out when asked for with the same version, so one that is out
+* of date is never used, and nothing has to be told when a table changes.
+*
+* The maps handed out cannot be changed. This class is thread safe.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model;
+
+//------------------------------------------------------------------------------
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class PresetValueDictionary
+//
+
+public class PresetValueDictionary
+{
+    
+    //key=table + "." + display column
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    //--------------------------------------------------------------------------
+    // PresetValueDictionary::PresetValueDictionary (constructor)
+    //
+
+    public PresetValueDictionary()
+    {
+
+    }//end of PresetValueDictionary::PresetValueDictionary (constructor)
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // PresetValueDictionary::get
+    //
+    // Returns the preset values taken from pDisplayColumn of pTable, or null
+    // if they aren't stored or were stored for a different pVersion.
+    // key=skoonie key of entry; value=display name for that entry
+    //
+
+    public synchronized Map<String, String> get(String pTable, 
+                                                String pDisplayColumn,
+                                                String pVersion)
+    {
+        
+        Entry e = entries.get(pTable + "." + pDisplayColumn);
+        
+        if (e == null || !Objects.equals(e.version, pVersion)) { return null; }
+        
+        return e.values;
+
+    }//end of PresetValueDictionary::get
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // PresetValueDictionary::put
+    //
+    // Stores pValues as the preset values taken from pDisplayColumn of pTable
+    // when pTable had pVersion. Returns the map that will be handed out from
+    // now on, which should be used in place of pValues.
+    //
+
+    public synchronized Map<String, String> put(String pTable, 
+                                                String pDisplayColumn,
+                                                String pVersion,
+                                                Map<String, String> pValues)
+    {
+        
+        Entry e = new Entry(pVersion, pValues);
+        
+        entries.put(pTable + "." + pDisplayColumn, e);
+        
+        return e.values;
+
+    }//end of PresetValueDictionary::put
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // class PresetValueDictionary::Entry
+    //
+
+    private static class Entry
+    {
+        
+        final String version;
+        
+        final Map<String, String> values;
+        
+        //----------------------------------------------------------------------
+        // Entry::Entry (constructor)
+        //
+
+        Entry(String pVersion, Map<String, String> pValues)
+        {
+            
+            version = pVersion;
+            values = Collections.unmodifiableMap(pValues);
+
+        }//end of Entry::Entry (constructor)
+        //----------------------------------------------------------------------
+        
+    }//end of class PresetValueDictionary::Entry
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+
+}//end of class PresetValueDictionary
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
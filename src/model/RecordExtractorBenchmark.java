@@ -0,0 +1,251 @@
+/*******************************************************************************
+* Title: RecordExtractorBenchmark.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class times turning the entries of a table into records, the way
+* DatabaseHandler does whenever records are loaded: every entry is streamed
+* from the database with forEachEntry() and handed to a RecordExtractor.
+*
+* The entries come from a MemoryDatabase so that only the extraction and the
+* in-memory table are timed, not the network. Tables of up to ROW_COUNTS rows
+* are made with each of DESCRIPTOR_COUNTS descriptor columns, plus
+* EXTRA_COLUMNS columns that aren't descriptors and have to be skipped. If
+* extraction scales with rows x descriptors, the time per row stays the same
+* as the table grows and goes up in step with the number of descriptors.
+*
+* Run it with plenty of memory, for example:
+*
+*   java -Xmx2g -cp build/classes model.RecordExtractorBenchmark
+*
+* It is not used by the program.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model;
+
+//------------------------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import model.database.DatabaseEntry;
+import model.database.DatabaseError;
+import model.database.MemoryDatabase;
+import shared.Descriptor;
+import shared.DescriptorIndex;
+import shared.Record;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class RecordExtractorBenchmark
+//
+
+public class RecordExtractorBenchmark
+{
+
+    private static final int[] ROW_COUNTS = { 1000, 10000, 100000 };
+    private static final int[] DESCRIPTOR_COUNTS = { 10, 50 };
+
+    //columns in the table that aren't descriptors
+    private static final int EXTRA_COLUMNS = 10;
+
+    //runs thrown away while the JIT settles, then runs that are timed
+    private static final int WARM_UP_RUNS = 3;
+    private static final int TIMED_RUNS = 7;
+
+    //the table extracted over and over before anything is timed, so that
+    //the code is compiled before the first, smallest table is timed
+    private static final int JIT_ROWS = 10000;
+    private static final int JIT_RUNS = 30;
+
+    //entries inserted at once while filling a table
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private static final String TABLE = "benchmark";
+
+    //--------------------------------------------------------------------------
+    // RecordExtractorBenchmark::main
+    //
+
+    public static void main(String[] pArgs) throws DatabaseError
+    {
+
+        MemoryDatabase db = createDatabase(JIT_ROWS, DESCRIPTOR_COUNTS[0]);
+        DescriptorIndex index 
+                = new DescriptorIndex(createDescriptors(DESCRIPTOR_COUNTS[0]));
+        for (int i=0; i<JIT_RUNS; i++) { extract(db, index); }
+
+        System.out.println(String.format("%10s %12s %12s %12s %14s",
+                                "rows", "descriptors", "median ms",
+                                "ns/row", "cells/s"));
+
+        for (int descriptors : DESCRIPTOR_COUNTS) {
+            for (int rows : ROW_COUNTS) {
+                run(rows, descriptors);
+            }
+        }
+
+    }//end of RecordExtractorBenchmark::main
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // RecordExtractorBenchmark::createDatabase
+    //
+    // Returns a new MemoryDatabase holding TABLE, filled with pRows entries
+    // that each have pDescriptors descriptor columns, named by the descriptor
+    // skoonie keys "1", "2", ..., and EXTRA_COLUMNS other columns.
+    //
+
+    private static MemoryDatabase createDatabase(int pRows, int pDescriptors)
+        throws DatabaseError
+    {
+
+        MemoryDatabase db = new MemoryDatabase();
+        db.init();
+
+        String[] columns = new String[1 + pDescriptors + EXTRA_COLUMNS];
+        columns[0] = "`skoonie_key` INT NOT NULL AUTO_INCREMENT PRIMARY KEY";
+        for (int i=1; i<columns.length; i++) {
+            columns[i] = "`" + getColumnName(i, pDescriptors)
+                            + "` VARCHAR(2000) NULL";
+        }
+        db.createTable(TABLE, columns);
+
+        List<DatabaseEntry> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+
+        for (int r=0; r<pRows; r++) {
+
+            DatabaseEntry e = new DatabaseEntry();
+            for (int i=1; i<columns.length; i++) {
+                e.storeColumn(getColumnName(i, pDescriptors), "value " + r);
+            }
+            batch.add(e);
+
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                db.insertEntries(batch, TABLE);
+                batch.clear();
+            }
+
+        }
+
+        if (!batch.isEmpty()) { db.insertEntries(batch, TABLE); }
+
+        return db;
+
+    }//end of RecordExtractorBenchmark::createDatabase
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // RecordExtractorBenchmark::createDescriptors
+    //
+    // Returns pCount descriptors with skoonie keys "1", "2", ... in reverse
+    // order, so that their order doesn't match the order of the columns.
+    //
+
+    private static List<Descriptor> createDescriptors(int pCount)
+    {
+
+        List<Descriptor> descriptors = new ArrayList<>(pCount);
+
+        for (int i=pCount; i>=1; i--) {
+            Descriptor d = new Descriptor();
+            d.setSkoonieKey(Integer.toString(i));
+            d.setName("Descriptor " + i);
+            descriptors.add(d);
+        }
+
+        return descriptors;
+
+    }//end of RecordExtractorBenchmark::createDescriptors
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // RecordExtractorBenchmark::extract
+    //
+    // Streams every entry in TABLE from pDb through a new extractor for
+    // pIndex, the same way DatabaseHandler loads records, and returns the
+    // records.
+    //
+
+    private static List<Record> extract(MemoryDatabase pDb,
+                                            DescriptorIndex pIndex)
+        throws DatabaseError
+    {
+
+        List<Record> records = new ArrayList<>();
+
+        DatabaseHandler.RecordExtractor extractor
+                                = new DatabaseHandler.RecordExtractor(pIndex);
+        pDb.forEachEntry(TABLE, (e) -> { records.add(extractor.extract(e)); });
+
+        return records;
+
+    }//end of RecordExtractorBenchmark::extract
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // RecordExtractorBenchmark::getColumnName
+    //
+    // Returns the name of column pColumn of TABLE, counting from 1 after
+    // skoonie_key. The first pDescriptors columns are descriptor columns.
+    //
+
+    private static String getColumnName(int pColumn, int pDescriptors)
+    {
+
+        return pColumn <= pDescriptors ? Integer.toString(pColumn)
+                                        : "extra_" + pColumn;
+
+    }//end of RecordExtractorBenchmark::getColumnName
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // RecordExtractorBenchmark::run
+    //
+    // Times extracting a table of pRows entries with pDescriptors descriptors
+    // and prints the median of TIMED_RUNS runs.
+    //
+
+    private static void run(int pRows, int pDescriptors) throws DatabaseError
+    {
+
+        MemoryDatabase db = createDatabase(pRows, pDescriptors);
+        DescriptorIndex index
+                        = new DescriptorIndex(createDescriptors(pDescriptors));
+
+        long[] times = new long[TIMED_RUNS];
+
+        for (int i=-WARM_UP_RUNS; i<TIMED_RUNS; i++) {
+
+            long start = System.nanoTime();
+            List<Record> records = extract(db, index);
+            long time = System.nanoTime() - start;
+
+            if (records.size() != pRows) {
+                throw new IllegalStateException("Extracted " + records.size()
+                                                + " of " + pRows + " rows");
+            }
+
+            if (i >= 0) { times[i] = time; }
+
+        }
+
+        Arrays.sort(times);
+        long median = times[TIMED_RUNS/2];
+
+        System.out.println(String.format("%10d %12d %12.1f %12.1f %14.0f",
+                            pRows, pDescriptors, median / 1000000.0,
+                            (double)median / pRows,
+                            (double)pRows * pDescriptors / median * 1e9));
+
+    }//end of RecordExtractorBenchmark::run
+    //--------------------------------------------------------------------------
+
+}//end of class RecordExtractorBenchmark
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
@@ -0,0 +1,460 @@
+/*******************************************************************************
+* Title: ReferenceSnapshot.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class keeps a copy of the reference data -- the descriptors with their
+* preset values, the customers, and the racks -- in a file on this computer,
+* so that it can be shown as soon as the program starts instead of waiting
+* for all of it to be read from the database.
+*
+* Each entry is stored under the name of the table it came from, along with
+* the tables it was built from and the version of those tables when it was
+* built. The entries are never trusted blindly: the caller shows them right
+* away, compares the version with the current version of the tables, and
+* puts a new entry if they have changed.
+*
+* The file is a compact binary format rather than serialized objects so that
+* it can be read in a few milliseconds. It starts with a magic number and a
+* format number; a file with a different format number is ignored, as is a
+* file that can't be read, and is replaced the next time the snapshot is
+* saved. Saves write to a temporary file which is then moved over the old one,
+* so the file is never left half written.
+*
+* This class is thread safe.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model;
+
+//------------------------------------------------------------------------------
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import shared.ColumnSchema;
+import shared.Descriptor;
+import shared.Record;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class ReferenceSnapshot
+//
+
+public class ReferenceSnapshot
+{
+
+    //"ALTS" -- marks the file as a snapshot
+    private static final int MAGIC = 0x414C5453;
+
+    //must be changed whenever the layout of the file changes
+    private static final int FORMAT = 1;
+
+    private final String file;
+
+    //key=table name
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    //true when there are entries that haven't been saved to the file
+    private boolean dirty = false;
+
+    //--------------------------------------------------------------------------
+    // ReferenceSnapshot::ReferenceSnapshot (constructor)
+    //
+
+    public ReferenceSnapshot(String pFile)
+    {
+
+        file = pFile;
+
+    }//end of ReferenceSnapshot::ReferenceSnapshot (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ReferenceSnapshot::init
+    //
+    // Initializes the object. Must be called immediately after instantiation.
+    //
+    // Reads the entries from the file. If there is no file, or it can't be
+    // read, the snapshot starts out empty.
+    //
+
+    public synchronized void init()
+    {
+
+        File f = new File(file);
+
+        if (!f.exists()) { return; }
+
+        try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(new FileInputStream(f))))
+        {
+
+            //a file from another version of the program is of no use
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT) { return; }
+
+            int count = in.readInt();
+            for (int i=0; i<count; i++) {
+                String table = readString(in);
+                entries.put(table, readEntry(in));
+            }
+
+        }
+        catch (IOException | RuntimeException e) {
+            entries.clear();
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                                    e.getMessage() + " - Error: 1020");
+        }
+
+    }//end of ReferenceSnapshot::init
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ReferenceSnapshot::get
+    //
+    // Returns the entry stored for pTable, or null if there isn't one.
+    //
+
+    public synchronized Entry get(String pTable)
+    {
+
+        return entries.get(pTable);
+
+    }//end of ReferenceSnapshot::get
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ReferenceSnapshot::getTables
+    //
+    // Returns the names of the tables that have entries.
+    //
+
+    public synchronized Set<String> getTables()
+    {
+
+        return new HashSet<>(entries.keySet());
+
+    }//end of ReferenceSnapshot::getTables
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ReferenceSnapshot::put
+    //
+    // Stores pEntry for pTable, replacing any entry already stored for it. The
+    // file isn't changed until save() is called.
+    //
+
+    public synchronized void put(String pTable, Entry pEntry)
+    {
+
+        entries.put(pTable, pEntry);
+        dirty = true;
+
+    }//end of ReferenceSnapshot::put
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ReferenceSnapshot::readEntry
+    //
+    // Reads and returns one entry from pIn.
+    //
+
+    private static Entry readEntry(DataInputStream pIn) throws IOException
+    {
+
+        String version = readString(pIn);
+
+        Set<String> tables = new HashSet<>();
+        int count = pIn.readInt();
+        for (int i=0; i<count; i++) { tables.add(readString(pIn)); }
+
+        //descriptors that shared preset values when they were saved share
+        //them again
+        List<Map<String, String>> presetValues = new ArrayList<>();
+        count = pIn.readInt();
+        for (int i=0; i<count; i++) {
+            int size = pIn.readInt();
+            Map<String, String> values = new HashMap<>(size*4/3 + 1);
+            for (int j=0; j<size; j++) {
+                values.put(readString(pIn), readString(pIn));
+            }
+            presetValues.add(values);
+        }
+
+        List<Descriptor> descriptors = new ArrayList<>();
+        count = pIn.readInt();
+        for (int i=0; i<count; i++) {
+            Descriptor d = new Descriptor();
+            d.setSkoonieKey(readString(pIn));
+            d.setName(readString(pIn));
+            d.setOrderNumber(readString(pIn));
+            d.setRequired(pIn.readBoolean());
+            d.setUsesPresetValues(pIn.readBoolean());
+            int values = pIn.readInt();
+            if (values >= 0) { d.setPresetValues(presetValues.get(values)); }
+            descriptors.add(d);
+        }
+
+        //-1 means the entry only holds descriptors
+        count = pIn.readInt();
+        if (count < 0) { return new Entry(version, tables, descriptors, null); }
+
+        String[] columns = new String[pIn.readInt()];
+        for (int i=0; i<columns.length; i++) { columns[i] = readString(pIn); }
+
+        //all of the records share one schema, just like when they are read
+        //from the database
+        ColumnSchema schema = new ColumnSchema(columns);
+
+        List<Record> records = new ArrayList<>(count);
+        for (int i=0; i<count; i++) {
+            Record r = new Record(schema);
+            r.setSkoonieKey(readString(pIn));
+            for (int j=0; j<columns.length; j++) {
+                r.setValueAt(j, readString(pIn));
+            }
+            records.add(r);
+        }
+
+        return new Entry(version, tables, descriptors, records);
+
+    }//end of ReferenceSnapshot::readEntry
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ReferenceSnapshot::readString
+    //
+    // Reads and returns a string written by writeString(), which may be null.
+    //
+
+    private static String readString(DataInputStream pIn) throws IOException
+    {
+
+        int length = pIn.readInt();
+
+        if (length < 0) { return null; }
+
+        byte[] bytes = new byte[length];
+        pIn.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+
+    }//end of ReferenceSnapshot::readString
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ReferenceSnapshot::save
+    //
+    // Saves the entries to the file if they have changed since they were last
+    // saved.
+    //
+
+    public synchronized void save()
+    {
+
+        if (!dirty) { return; }
+
+        File f = new File(file);
+        File temp = new File(file + ".tmp");
+
+        try {
+
+            try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(temp))))
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    writeString(out, e.getKey());
+                    writeEntry(out, e.getValue());
+                }
+            }
+
+            Files.move(temp.toPath(), f.toPath(),
+                                        StandardCopyOption.REPLACE_EXISTING,
+                                        StandardCopyOption.ATOMIC_MOVE);
+
+            dirty = false;
+
+        }
+        catch (IOException e) {
+            //try again next time
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                                    e.getMessage() + " - Error: 1021");
+        }
+
+    }//end of ReferenceSnapshot::save
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ReferenceSnapshot::writeEntry
+    //
+    // Writes pEntry to pOut.
+    //
+
+    private static void writeEntry(DataOutputStream pOut, Entry pEntry)
+            throws IOException
+    {
+
+        writeString(pOut, pEntry.version);
+
+        pOut.writeInt(pEntry.tables.size());
+        for (String t : pEntry.tables) { writeString(pOut, t); }
+
+        //preset values shared by several descriptors are only written once
+        //key=preset values; value=index in the file
+        Map<Map<String, String>, Integer> presetValues
+                                                = new IdentityHashMap<>();
+        for (Descriptor d : pEntry.descriptors) {
+            if (!d.getPresetValues().isEmpty()) {
+                presetValues.putIfAbsent(d.getPresetValues(),
+                                            presetValues.size());
+            }
+        }
+
+        List<Map<String, String>> ordered = new ArrayList<>(
+                        Collections.nCopies(presetValues.size(), null));
+        for (Map.Entry<Map<String, String>, Integer> p
+                : presetValues.entrySet())
+        {
+            ordered.set(p.getValue(), p.getKey());
+        }
+
+        pOut.writeInt(ordered.size());
+        for (Map<String, String> values : ordered) {
+            pOut.writeInt(values.size());
+            for (Map.Entry<String, String> v : values.entrySet()) {
+                writeString(pOut, v.getKey());
+                writeString(pOut, v.getValue());
+            }
+        }
+
+        pOut.writeInt(pEntry.descriptors.size());
+        for (Descriptor d : pEntry.descriptors) {
+            writeString(pOut, d.getSkoonieKey());
+            writeString(pOut, d.getName());
+            writeString(pOut, d.getOrderNumber());
+            pOut.writeBoolean(d.getRequired());
+            pOut.writeBoolean(d.getUsesPresetValues());
+            Integer values = presetValues.get(d.getPresetValues());
+            pOut.writeInt(values!=null ? values : -1);
+        }
+
+        if (pEntry.records == null) { pOut.writeInt(-1); return; }
+
+        pOut.writeInt(pEntry.records.size());
+
+        //the records are written by the descriptor keys, whatever schema
+        //they were made with
+        pOut.writeInt(pEntry.descriptors.size());
+        for (Descriptor d : pEntry.descriptors) {
+            writeString(pOut, d.getSkoonieKey());
+        }
+
+        for (Record r : pEntry.records) {
+            writeString(pOut, r.getSkoonieKey());
+            for (Descriptor d : pEntry.descriptors) {
+                writeString(pOut, r.getValue(d.getSkoonieKey()));
+            }
+        }
+
+    }//end of ReferenceSnapshot::writeEntry
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ReferenceSnapshot::writeString
+    //
+    // Writes pString, which may be null, to pOut as its length in bytes
+    // followed by the bytes.
+    //
+
+    private static void writeString(DataOutputStream pOut, String pString)
+            throws IOException
+    {
+
+        if (pString == null) { pOut.writeInt(-1); return; }
+
+        byte[] bytes = pString.getBytes(StandardCharsets.UTF_8);
+        pOut.writeInt(bytes.length);
+        pOut.write(bytes);
+
+    }//end of ReferenceSnapshot::writeString
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // class ReferenceSnapshot::Entry
+    //
+    // The descriptors from one descriptors table, and the records of the table
+    // they describe if it holds records, along with the version of the tables
+    // they were built from.
+    //
+    // Entries are never changed once they are made. The descriptors and
+    // records in them are shared and must not be changed either.
+    //
+
+    public static class Entry
+    {
+
+        private final String version;
+        public String getVersion() { return version; }
+
+        private final Set<String> tables;
+        public Set<String> getTables() { return tables; }
+
+        private final List<Descriptor> descriptors;
+        public List<Descriptor> getDescriptors() { return descriptors; }
+
+        //null if the entry only holds descriptors
+        private final List<Record> records;
+        public List<Record> getRecords() { return records; }
+
+        //----------------------------------------------------------------------
+        // Entry::Entry (constructor)
+        //
+
+        public Entry(String pVersion, Set<String> pTables,
+                        List<Descriptor> pDescriptors, List<Record> pRecords)
+        {
+
+            version = pVersion;
+            tables = Collections.unmodifiableSet(new HashSet<>(pTables));
+            descriptors = Collections.unmodifiableList(
+                                                new ArrayList<>(pDescriptors));
+            records = pRecords!=null ? Collections.unmodifiableList(
+                                            new ArrayList<>(pRecords)) : null;
+
+        }//end of Entry::Entry (constructor)
+        //----------------------------------------------------------------------
+
+    }//end of class ReferenceSnapshot::Entry
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+
+}//end of class ReferenceSnapshot
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
@@ -0,0 +1,107 @@
+/*******************************************************************************
+* Title: StartupTimer.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class times the phases of starting the program -- setting up the
+* model, building the GUI, and warming up the database connection and caches
+* in the background -- and logs how long each one took, so that the time it
+* takes for the first window to be usable can be tracked.
+*
+* The times are logged at level INFO to the logger named LOGGER_NAME. Each
+* line gives how long the phase took and how long after the timer was made it
+* finished.
+*
+* Phases can be logged from any thread.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model;
+
+//------------------------------------------------------------------------------
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class StartupTimer
+//
+
+public class StartupTimer
+{
+
+    public static final String LOGGER_NAME = "startup";
+
+    //held so that the level set on the logger isn't lost if it is collected
+    private static final Logger LOGGER = Logger.getLogger(LOGGER_NAME);
+
+    private final long start = System.nanoTime();
+
+    //--------------------------------------------------------------------------
+    // StartupTimer::StartupTimer (constructor)
+    //
+    // Startup is timed from when the timer is made.
+    //
+
+    public StartupTimer()
+    {
+
+    }//end of StartupTimer::StartupTimer (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // StartupTimer::logPhase
+    //
+    // Logs that pPhase, which started at pPhaseStart, has finished. pPhaseStart
+    // is a time from System.nanoTime().
+    //
+
+    public void logPhase(String pPhase, long pPhaseStart)
+    {
+
+        long now = System.nanoTime();
+
+        LOGGER.log(Level.INFO, String.format(
+                                "%s took %.1fms (%.1fms after startup)",
+                                pPhase, toMillis(now - pPhaseStart),
+                                toMillis(now - start)));
+
+    }//end of StartupTimer::logPhase
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // StartupTimer::logStartup
+    //
+    // Logs that pPhase has finished, timed from when the timer was made.
+    //
+
+    public void logStartup(String pPhase)
+    {
+
+        logPhase(pPhase, start);
+
+    }//end of StartupTimer::logStartup
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // StartupTimer::toMillis
+    //
+    // Returns pNanos in milliseconds.
+    //
+
+    private static double toMillis(long pNanos)
+    {
+
+        return pNanos / 1000000.0;
+
+    }//end of StartupTimer::toMillis
+    //--------------------------------------------------------------------------
+
+}//end of class StartupTimer
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
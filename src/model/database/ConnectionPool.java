@@ -0,0 +1,767 @@
+/*******************************************************************************
+* Title: ConnectionPool.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class keeps a bounded set of open JDBC connections to the database so
+* that MySQLDatabase does not have to pay for a full connection handshake every
+* time it sends commands to the server.
+*
+* Connections are borrowed with borrowConnection() and handed back with
+* releaseConnection(). The pool:
+*   keeps at least minSize connections open and never more than maxSize
+*   makes borrowers wait up to maxWaitTime for a connection when all of them
+*       are in use
+*   only asks the server if a connection is still good when it has not been
+*       checked for validationInterval; otherwise a cheap local check is used
+*   closes connections above minSize that have sat idle for idleTimeout
+*   logs a warning, with the stack of the borrower, for any connection that has
+*       been borrowed for longer than leakThreshold
+*
+* Each connection keeps a cache of up to statementCacheSize prepared
+* statements; see StatementCache.
+*
+* Statistics about the pool can be retrieved at any time with getStatistics().
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model.database;
+
+//------------------------------------------------------------------------------
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class ConnectionPool
+//
+
+public class ConnectionPool
+{
+
+    private final String url;
+    private final String username;
+    private final String password;
+
+    //the pool will try to always have this many connections open
+    private int minSize = 1;
+    public int getMinSize() { return minSize; }
+    public void setMinSize(int pSize) { minSize = pSize; }
+
+    //the pool will never open more than this many connections
+    private int maxSize = 4;
+    public int getMaxSize() { return maxSize; }
+    public void setMaxSize(int pSize) { maxSize = pSize; }
+
+    //milliseconds a borrower will wait for a free connection
+    private long maxWaitTime = 10000;
+    public void setMaxWaitTime(long pTime) { maxWaitTime = pTime; }
+
+    //milliseconds a connection above minSize can sit idle before it is closed
+    private long idleTimeout = 300000;
+    public void setIdleTimeout(long pTime) { idleTimeout = pTime; }
+
+    //milliseconds between round trip checks of a connection
+    private long validationInterval = 30000;
+    public void setValidationInterval(long pTime) { validationInterval = pTime; }
+
+    //seconds the server has to answer a validation check
+    private int validationTimeout = 5;
+    public void setValidationTimeout(int pTime) { validationTimeout = pTime; }
+
+    //milliseconds a connection can be borrowed before it is reported as a
+    //leak -- zero turns leak detection off
+    private long leakThreshold = 60000;
+    public void setLeakThreshold(long pTime) { leakThreshold = pTime; }
+
+    //number of prepared statements cached per connection -- zero turns the
+    //statement cache off
+    private int statementCacheSize = 32;
+    public void setStatementCacheSize(int pSize) { statementCacheSize = pSize; }
+
+    //milliseconds between eviction and leak checks
+    private final long housekeepingInterval = 15000;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    //most recently used connections are kept at the front
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = new HashSet<>();
+
+    //number of connections currently being opened
+    private int opening = 0;
+
+    //number of threads currently waiting for a connection
+    private int waiting = 0;
+
+    private boolean closed = false;
+
+    private ScheduledExecutorService housekeeper;
+
+    //statistics -- only accessed while holding the lock
+    private long totalOpened = 0;
+    private long totalClosed = 0;
+    private long totalBorrows = 0;
+    private long totalTimeouts = 0;
+    private long totalLeaks = 0;
+    private long totalWaitNanos = 0;
+    private long maxWaitNanos = 0;
+
+    //statement cache statistics -- shared by the caches of all connections
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::ConnectionPool (constructor)
+    //
+
+    public ConnectionPool(String pUrl, String pUsername, String pPassword)
+    {
+
+        url = pUrl;
+        username = pUsername;
+        password = pPassword;
+
+    }//end of ConnectionPool::ConnectionPool (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::init
+    //
+    // Initializes the object. Must be called immediately after instantiation.
+    //
+    // Starts the housekeeping thread that evicts idle connections, reports
+    // leaks, and keeps the pool topped up to minSize.
+    //
+
+    public void init()
+    {
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+            Thread t = new Thread(r, "ConnectionPool Housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+
+        housekeeper.scheduleWithFixedDelay(() -> { doHousekeeping(); },
+                                            housekeepingInterval,
+                                            housekeepingInterval,
+                                            TimeUnit.MILLISECONDS);
+
+    }//end of ConnectionPool::init
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::borrowConnection
+    //
+    // Borrows a connection from the pool, opening a new one if none are idle
+    // and the pool is not full. If the pool is full, this waits up to
+    // maxWaitTime for a connection to be released.
+    //
+    // If pForceValidation is true, the connection is checked with the server
+    // before it is returned no matter when it was last checked.
+    //
+    // Throws a DatabaseError with CONNECTION_ERROR if a connection could not
+    // be opened, or with POOL_TIMEOUT_ERROR if none became available in time.
+    //
+
+    PooledConnection borrowConnection(boolean pForceValidation)
+            throws DatabaseError
+    {
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWaitTime);
+
+        //taken out here since it is too slow to take while holding the lock
+        Throwable trace 
+                = leakThreshold > 0 ? new Throwable("Connection borrowed here")
+                                    : null;
+
+        while (true) {
+
+            PooledConnection pc = null;
+            boolean open = false;
+
+            lock.lock();
+            try {
+
+                while (pc == null && !open) {
+
+                    if (closed) {
+                        throw new DatabaseError(DatabaseError.CONNECTION_ERROR);
+                    }
+
+                    pc = idle.pollFirst();
+
+                    //open a new connection if none are idle and there's room
+                    if (pc == null && getTotalCount() < maxSize) {
+                        open = true;
+                        ++opening;
+                    }
+                    //otherwise wait for somebody to release one
+                    else if (pc == null) {
+
+                        long remaining = deadline - System.nanoTime();
+
+                        if (remaining <= 0) {
+                            ++totalTimeouts;
+                            throw new DatabaseError(
+                                            DatabaseError.POOL_TIMEOUT_ERROR);
+                        }
+
+                        ++waiting;
+                        try { available.awaitNanos(remaining); }
+                        catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new DatabaseError(
+                                            DatabaseError.POOL_TIMEOUT_ERROR);
+                        }
+                        finally { --waiting; }
+
+                    }
+
+                }
+
+                //marked while still locked so that housekeeping never sees
+                //it borrowed with the time of an earlier borrow
+                if (pc != null) { borrowed.add(pc); pc.markBorrowed(trace); }
+
+            }
+            finally { lock.unlock(); }
+
+            if (open) { pc = openConnection(trace); }
+            else if (!validate(pc, pForceValidation)) {
+                //connection has gone bad -- throw it away and try again
+                destroyBorrowedConnection(pc);
+                continue;
+            }
+
+            recordBorrow(System.nanoTime() - start);
+
+            return pc;
+
+        }
+
+    }//end of ConnectionPool::borrowConnection
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::checkConnection
+    //
+    // Checks with the server that a connection from the pool is good. Returns
+    // true if it is; false if not.
+    //
+    // If the check fails, every idle connection is marked to be checked the
+    // next time it is borrowed since they most likely went bad as well.
+    //
+
+    public boolean checkConnection()
+    {
+
+        PooledConnection pc;
+
+        try { pc = borrowConnection(true); }
+        catch (DatabaseError e) {
+
+            lock.lock();
+            try { for (PooledConnection i : idle) { i.setLastValidated(0); } }
+            finally { lock.unlock(); }
+
+            return false;
+
+        }
+
+        releaseConnection(pc);
+
+        return true;
+
+    }//end of ConnectionPool::checkConnection
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::close
+    //
+    // Closes all of the idle connections and stops the housekeeping thread.
+    // Connections that are still borrowed are closed when they are released.
+    //
+
+    public void close()
+    {
+
+        List<PooledConnection> toClose;
+
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            totalClosed += idle.size();
+            idle.clear();
+            available.signalAll();
+        }
+        finally { lock.unlock(); }
+
+        for (PooledConnection pc : toClose) { pc.close(); }
+
+        if (housekeeper != null) { housekeeper.shutdownNow(); }
+
+    }//end of ConnectionPool::close
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::destroyBorrowedConnection
+    //
+    // Removes pConnection from the borrowed set and closes it. Wakes up a
+    // waiting borrower since there is now room to open a new connection.
+    //
+
+    private void destroyBorrowedConnection(PooledConnection pConnection)
+    {
+
+        lock.lock();
+        try {
+            borrowed.remove(pConnection);
+            ++totalClosed;
+            available.signal();
+        }
+        finally { lock.unlock(); }
+
+        pConnection.close();
+
+    }//end of ConnectionPool::destroyBorrowedConnection
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::doHousekeeping
+    //
+    // Closes connections above minSize that have been idle for too long,
+    // reports connections that have been borrowed for too long, and opens
+    // connections until there are at least minSize.
+    //
+    // Called periodically by the housekeeping thread.
+    //
+
+    private void doHousekeeping()
+    {
+
+        long now = System.currentTimeMillis();
+
+        List<PooledConnection> toClose = new ArrayList<>();
+        List<PooledConnection> leaks = new ArrayList<>();
+        int toOpen;
+
+        lock.lock();
+        try {
+
+            if (closed) { return; }
+
+            //least recently used connections are at the back
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && getTotalCount() - toClose.size() > minSize) {
+                PooledConnection pc = it.next();
+                if (now - pc.getLastUsed() < idleTimeout) { break; }
+                it.remove();
+                toClose.add(pc);
+            }
+            totalClosed += toClose.size();
+
+            //look for connections that have been borrowed for too long
+            if (leakThreshold > 0) {
+                for (PooledConnection pc : borrowed) {
+                    if (!pc.getLeakReported()
+                        && now - pc.getBorrowedAt() > leakThreshold)
+                    {
+                        pc.setLeakReported(true);
+                        ++totalLeaks;
+                        leaks.add(pc);
+                    }
+                }
+            }
+
+            toOpen = minSize - getTotalCount();
+
+        }
+        finally { lock.unlock(); }
+
+        for (PooledConnection pc : toClose) { pc.close(); }
+
+        for (PooledConnection pc : leaks) {
+            logStackTrace("Connection borrowed for over " + leakThreshold
+                            + " ms - possible leak", pc.getBorrowTrace());
+        }
+
+        //top the pool back up to the minimum size
+        for (int i=0; i<toOpen; i++) {
+
+            lock.lock();
+            try {
+                if (closed || getTotalCount() >= minSize) { return; }
+                ++opening;
+            }
+            finally { lock.unlock(); }
+
+            PooledConnection pc;
+            try { pc = openConnection(null); }
+            catch (DatabaseError e) { return; }
+
+            releaseConnection(pc);
+
+        }
+
+    }//end of ConnectionPool::doHousekeeping
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::getStatistics
+    //
+    // Returns a snapshot of the pool's current state and its statistics.
+    //
+
+    public Statistics getStatistics()
+    {
+
+        lock.lock();
+        try {
+            return new Statistics(borrowed.size(), idle.size(), waiting,
+                                    totalOpened, totalClosed, totalBorrows,
+                                    totalTimeouts, totalLeaks, totalWaitNanos,
+                                    maxWaitNanos, statementCacheHits.get(),
+                                    statementCacheMisses.get());
+        }
+        finally { lock.unlock(); }
+
+    }//end of ConnectionPool::getStatistics
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::getTotalCount
+    //
+    // Returns the number of connections that are open or being opened.
+    //
+    // Must only be called while holding the lock.
+    //
+
+    private int getTotalCount()
+    {
+
+        return idle.size() + borrowed.size() + opening;
+
+    }//end of ConnectionPool::getTotalCount
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::logStackTrace
+    //
+    // Logs stack trace info for exception pE with pMessage at level WARNING
+    // using the Java logger.
+    //
+
+    private void logStackTrace(String pMessage, Throwable pE)
+    {
+
+        Logger.getLogger(getClass().getName()).log(Level.WARNING, pMessage, pE);
+
+    }//end of ConnectionPool::logStackTrace
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::openConnection
+    //
+    // Opens a new physical connection. The caller must have already counted
+    // it in opening; that count is moved over to the borrowed set on success,
+    // and the connection is marked as borrowed with pTrace.
+    //
+    // Throws a DatabaseError with CONNECTION_ERROR upon failure.
+    //
+
+    private PooledConnection openConnection(Throwable pTrace) 
+        throws DatabaseError
+    {
+
+        PooledConnection pc = null;
+
+        try {
+            pc = new PooledConnection(
+                        DriverManager.getConnection(url, username, password),
+                        statementCacheSize, statementCacheHits,
+                        statementCacheMisses);
+        }
+        catch (SQLException e) { }
+        finally {
+            lock.lock();
+            try {
+                --opening;
+                if (pc != null) { 
+                    borrowed.add(pc); 
+                    pc.markBorrowed(pTrace);
+                    ++totalOpened; 
+                }
+                //somebody waiting may be able to open one now
+                else { available.signal(); }
+            }
+            finally { lock.unlock(); }
+        }
+
+        if (pc == null) {
+            throw new DatabaseError(DatabaseError.CONNECTION_ERROR);
+        }
+
+        return pc;
+
+    }//end of ConnectionPool::openConnection
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::recordBorrow
+    //
+    // Adds a borrow that took pWaitNanos to the statistics.
+    //
+
+    private void recordBorrow(long pWaitNanos)
+    {
+
+        lock.lock();
+        try {
+            ++totalBorrows;
+            totalWaitNanos += pWaitNanos;
+            if (pWaitNanos > maxWaitNanos) { maxWaitNanos = pWaitNanos; }
+        }
+        finally { lock.unlock(); }
+
+    }//end of ConnectionPool::recordBorrow
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::releaseConnection
+    //
+    // Returns pConnection to the pool so that it can be borrowed again. If the
+    // connection was closed while borrowed or the pool has been closed, the
+    // connection is thrown away instead.
+    //
+
+    void releaseConnection(PooledConnection pConnection)
+    {
+
+        if (pConnection == null) { return; }
+
+        if (pConnection.isClosed()) {
+            destroyBorrowedConnection(pConnection);
+            return;
+        }
+
+        boolean destroy = false;
+
+        lock.lock();
+        try {
+
+            //ignore connections that were never borrowed from here
+            if (!borrowed.remove(pConnection)) { return; }
+
+            if (closed) { destroy = true; ++totalClosed; }
+            else {
+                pConnection.setLastUsed(System.currentTimeMillis());
+                idle.addFirst(pConnection);
+                available.signal();
+            }
+
+        }
+        finally { lock.unlock(); }
+
+        if (destroy) { pConnection.close(); }
+
+    }//end of ConnectionPool::releaseConnection
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // ConnectionPool::validate
+    //
+    // Returns true if pConnection is still good.
+    //
+    // The server is only asked if pForce is true or the connection has not
+    // been checked for validationInterval; otherwise only a local check is
+    // done so that borrowing stays cheap.
+    //
+
+    private boolean validate(PooledConnection pConnection, boolean pForce)
+    {
+
+        if (pConnection.isClosed()) { return false; }
+
+        long now = System.currentTimeMillis();
+
+        if (!pForce && now-pConnection.getLastValidated() < validationInterval) {
+            return true;
+        }
+
+        try {
+            if (!pConnection.getConnection().isValid(validationTimeout)) {
+                return false;
+            }
+        }
+        catch (SQLException e) { return false; }
+
+        pConnection.setLastValidated(now);
+
+        return true;
+
+    }//end of ConnectionPool::validate
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // class ConnectionPool::Statistics
+    //
+    // Immutable snapshot of the state of the pool.
+    //
+
+    public static class Statistics
+    {
+
+        //number of connections currently borrowed
+        private final int active;
+        public int getActive() { return active; }
+
+        //number of connections open but not borrowed
+        private final int idle;
+        public int getIdle() { return idle; }
+
+        //number of threads waiting for a connection
+        private final int waiting;
+        public int getWaiting() { return waiting; }
+
+        private final long totalOpened;
+        public long getTotalOpened() { return totalOpened; }
+
+        private final long totalClosed;
+        public long getTotalClosed() { return totalClosed; }
+
+        private final long totalBorrows;
+        public long getTotalBorrows() { return totalBorrows; }
+
+        //number of borrows that gave up waiting for a connection
+        private final long totalTimeouts;
+        public long getTotalTimeouts() { return totalTimeouts; }
+
+        //number of borrows reported as possible leaks
+        private final long totalLeaks;
+        public long getTotalLeaks() { return totalLeaks; }
+
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        //number of statements reused from and prepared for the statement
+        //caches of the connections
+        private final long statementCacheHits;
+        public long getStatementCacheHits() { return statementCacheHits; }
+
+        private final long statementCacheMisses;
+        public long getStatementCacheMisses() { return statementCacheMisses; }
+
+        //----------------------------------------------------------------------
+        // Statistics::Statistics (constructor)
+        //
+
+        public Statistics(int pActive, int pIdle, int pWaiting,
+                            long pTotalOpened, long pTotalClosed,
+                            long pTotalBorrows, long pTotalTimeouts,
+                            long pTotalLeaks, long pTotalWaitNanos,
+                            long pMaxWaitNanos, long pStatementCacheHits,
+                            long pStatementCacheMisses)
+        {
+
+            active = pActive;
+            idle = pIdle;
+            waiting = pWaiting;
+            totalOpened = pTotalOpened;
+            totalClosed = pTotalClosed;
+            totalBorrows = pTotalBorrows;
+            totalTimeouts = pTotalTimeouts;
+            totalLeaks = pTotalLeaks;
+            totalWaitNanos = pTotalWaitNanos;
+            maxWaitNanos = pMaxWaitNanos;
+            statementCacheHits = pStatementCacheHits;
+            statementCacheMisses = pStatementCacheMisses;
+
+        }//end of Statistics::Statistics (constructor)
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Statistics::getAverageWaitTime
+        //
+        // Returns the average time, in milliseconds, it took to borrow a
+        // connection.
+        //
+
+        public double getAverageWaitTime()
+        {
+
+            if (totalBorrows == 0) { return 0; }
+
+            return totalWaitNanos / (double)totalBorrows / 1000000.0;
+
+        }//end of Statistics::getAverageWaitTime
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Statistics::getMaxWaitTime
+        //
+        // Returns the longest time, in milliseconds, it took to borrow a
+        // connection.
+        //
+
+        public double getMaxWaitTime()
+        {
+
+            return maxWaitNanos / 1000000.0;
+
+        }//end of Statistics::getMaxWaitTime
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Statistics::toString
+        //
+
+        @Override
+        public String toString()
+        {
+
+            return String.format("active=%d idle=%d waiting=%d opened=%d "
+                                    + "closed=%d borrows=%d timeouts=%d "
+                                    + "leaks=%d avgWait=%.2fms maxWait=%.2fms "
+                                    + "stmtHits=%d stmtMisses=%d",
+                                    active, idle, waiting, totalOpened,
+                                    totalClosed, totalBorrows, totalTimeouts,
+                                    totalLeaks, getAverageWaitTime(),
+                                    getMaxWaitTime(), statementCacheHits,
+                                    statementCacheMisses);
+
+        }//end of Statistics::toString
+        //----------------------------------------------------------------------
+
+    }//end of class ConnectionPool::Statistics
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+
+}//end of class ConnectionPool
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
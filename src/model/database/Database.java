@@ -0,0 +1,127 @@
+/*******************************************************************************
+* Title: Database.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This interface is what the rest of the program uses to store and retrieve
+* its data, so that it doesn't care where the data is actually kept.
+*
+* Two implementations are available:
+*   MySQLDatabase   the MySQL server shared by every workstation
+*   MemoryDatabase  tables kept in memory by this program, optionally saved
+*                   to a file; for a single workstation and for benchmarks
+*
+* Every implementation follows the rules described in MySQLDatabase:
+* connect before using it and disconnect when done, and wrap statements that
+* make up one operation in beginTransaction() and commitTransaction(). Entries
+* are identified by their "skoonie_key" column, which is handed out by the
+* database in increasing order when an entry is inserted.
+*
+* Implementations must be usable by several threads at the same time.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model.database;
+
+//------------------------------------------------------------------------------
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// interface Database
+//
+
+public interface Database
+{
+
+    public void init();
+
+    public void addColumn(String pTable, String pColumn) throws DatabaseError;
+
+    public void beginTransaction() throws DatabaseError;
+
+    public boolean checkConnection();
+
+    public boolean checkForValue(String pValue, String pTable, String pColumn)
+            throws DatabaseError;
+
+    public void commitTransaction() throws DatabaseError;
+
+    public void connectToDatabase() throws DatabaseError;
+
+    public void createTable(String pTable, String[] pColumns)
+            throws DatabaseError;
+
+    public void deleteEntry(String pTable, String pSkoonieKey)
+            throws DatabaseError;
+
+    public void deleteEntriesBefore(String pTable, String pSkoonieKey,
+                                    String pKeepNewestBy)
+            throws DatabaseError;
+
+    public void disconnectFromDatabase();
+
+    public void dropColumn(String pTable, String pColumn) throws DatabaseError;
+
+    public void dropTable(String pTable) throws DatabaseError;
+
+    public void emptyTable(String pTable) throws DatabaseError;
+
+    public void forEachEntry(String pTable, EntryHandler pHandler)
+            throws DatabaseError;
+
+    public List<String> getColumnNames(String pTable) throws DatabaseError;
+
+    public Map<String, String> getColumnValues(String pTable, String pColumn)
+            throws DatabaseError;
+
+    public DatabaseEntry getEntry(String pTable, String pSkoonieKey)
+            throws DatabaseError;
+
+    public List<DatabaseEntry> getEntries(String pTable) throws DatabaseError;
+
+    public List<DatabaseEntry> getEntries(String pTable, List<String> pKeys)
+            throws DatabaseError;
+
+    public void getEntries(String pTable, List<String> pKeys,
+                            EntryHandler pHandler)
+            throws DatabaseError;
+
+    public List<DatabaseEntry> getEntriesAfter(String pTable,
+                                                String pSkoonieKey)
+            throws DatabaseError;
+
+    public String getMaxSkoonieKey(String pTable) throws DatabaseError;
+
+    public Map<String, String> getMaxSkoonieKeys(String pTable, String pColumn,
+                                                    Collection<String> pValues)
+            throws DatabaseError;
+
+    public List<String> getSkoonieKeys(String pTable) throws DatabaseError;
+
+    public List<Integer> insertEntries(List<DatabaseEntry> pEntries,
+                                            String pTable)
+            throws DatabaseError;
+
+    public int insertEntry(DatabaseEntry pEntry, String pTable)
+            throws DatabaseError;
+
+    public boolean isInTransaction() throws DatabaseError;
+
+    public void rollbackTransaction();
+
+    public boolean tableExists(String pTable) throws DatabaseError;
+
+    public void updateEntry(DatabaseEntry pEntry, String pTable)
+            throws DatabaseError;
+
+}//end of interface Database
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
@@ -6,6 +6,10 @@
 * Purpose:
 *
 * This class is a wrapper for the columns and values of a database entry.
+* 
+* The values are kept in an array laid out by a ColumnSchema. Entries read
+* from the same query share the same schema, so the column names are only
+* stored once for all of them rather than once per entry.
 *
 */
 
@@ -15,8 +19,10 @@ package model.database;
 
 //------------------------------------------------------------------------------
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import shared.ColumnSchema;
 
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
@@ -26,20 +32,72 @@ import java.util.Map;
 public class DatabaseEntry 
 {
     
-    //key=column; value=column value
-    private final Map<String, String> columns = new HashMap<>();
-    public Map<String, String> getColumns() { return columns; }
+    //marks a column in the schema that this entry does not have -- compared
+    //by identity so it can't be confused with a real empty value
+    private static final String ABSENT = new String();
+    
+    private final ColumnSchema schema;
+    public ColumnSchema getSchema() { return schema; }
+    
+    //values laid out by schema; columns past the end of the array are absent
+    private String[] values;
     
     //--------------------------------------------------------------------------
     // DatabaseEntry::DatabaseEntry (constructor)
     //
+    // Creates an empty entry with its own schema.
+    //
 
     public DatabaseEntry()
     {
+        
+        schema = new ColumnSchema();
+        values = new String[0];
 
     }//end of DatabaseEntry::DatabaseEntry (constructor)
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // DatabaseEntry::DatabaseEntry (constructor)
+    //
+    // Creates an entry with pValues laid out by pSchema. pValues is used as is
+    // and must not be changed afterwards by the caller.
+    //
+
+    public DatabaseEntry(ColumnSchema pSchema, String[] pValues)
+    {
+        
+        schema = pSchema;
+        values = pValues;
+
+    }//end of DatabaseEntry::DatabaseEntry (constructor)
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseEntry::getColumns
+    //
+    // Returns a new map of all of the columns this entry has, in schema order.
+    // key=column; value=column value
+    //
+    // Changing the map does not change the entry.
+    //
+
+    public Map<String, String> getColumns() 
+    {
+        
+        Map<String, String> columns = new LinkedHashMap<>();
+        
+        for (int i=0; i<values.length; i++) {
+            if (values[i] != ABSENT) { 
+                columns.put(schema.getColumnName(i), values[i]); 
+            }
+        }
+        
+        return columns;
+
+    }//end of DatabaseEntry::getColumns
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // DatabaseEntry::getValue
     //
@@ -50,23 +108,55 @@ public class DatabaseEntry
     public String getValue(String pColumn) 
     {
         
-        String value = columns.get(pColumn);
+        String value = getValueAt(schema.indexOf(pColumn));
         return value!=null ? value : "";
 
     }//end of DatabaseEntry::getValue
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // DatabaseEntry::getValueAt
+    //
+    // Returns the value at pIndex in the schema, or null if this entry doesn't
+    // have that column or the value is null.
+    //
+    // Use this with ColumnSchema::indexOf to look a column up once and then
+    // read it from many entries that share a schema.
+    //
+
+    public String getValueAt(int pIndex) 
+    {
+        
+        if (pIndex < 0 || pIndex >= values.length) { return null; }
+        
+        String value = values[pIndex];
+        return value!=ABSENT ? value : null;
+
+    }//end of DatabaseEntry::getValueAt
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // DatabaseEntry::storeColumn
     //
     // Stores pColumn and pValue. If pColumn has already been added, then the
     // value previously stored with it is replaced by pValue.
     //
+    // If pColumn is not in the schema yet, it is added to it.
+    //
 
     public void storeColumn(String pColumn, String pValue) 
     {
         
-        columns.put(pColumn, pValue);
+        int i = schema.addColumn(pColumn);
+        
+        //make room for the column, marking any others in between as absent
+        if (i >= values.length) {
+            int oldLength = values.length;
+            values = Arrays.copyOf(values, i+1);
+            Arrays.fill(values, oldLength, i, ABSENT);
+        }
+        
+        values[i] = pValue;
 
     }//end of DatabaseEntry::storeColumn
     //--------------------------------------------------------------------------
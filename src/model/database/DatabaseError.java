@@ -35,8 +35,12 @@ public class DatabaseError extends Exception
     
     public static final String DROP_TABLE_ERROR = "DROP_TABLE_ERROR";
     
+    public static final String POOL_TIMEOUT_ERROR = "POOL_TIMEOUT_ERROR";
+    
     public static final String QUERY_ERROR = "QUERY_ERROR";
     
+    public static final String TRANSACTION_ERROR = "TRANSACTION_ERROR";
+    
     public static final String TRUNCATE_TABLE_ERROR = "TRUNCATE_TABLE_ERROR";
     
     public static final String UPDATE_ENTRY_ERROR = "UPDATE_ENTRY_ERROR";
@@ -0,0 +1,120 @@
+/*******************************************************************************
+* Title: EntryCursor.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class steps through the rows of a query one at a time, turning each one
+* into a DatabaseEntry only when it is asked for. Rows are pulled from the
+* server in groups of the fetch size set by MySQLDatabase, so only that many
+* rows are ever held in memory no matter how big the table is.
+*
+* A cursor holds on to the connection it was opened on until it is closed, so
+* it should always be used in a try-with-resources block:
+*
+*   try (EntryCursor cursor = db.openCursor(table)) {
+*       DatabaseEntry e;
+*       while ((e = cursor.next()) != null) { ... }
+*   }
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model.database;
+
+//------------------------------------------------------------------------------
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import shared.ColumnSchema;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class EntryCursor
+//
+
+public class EntryCursor implements AutoCloseable
+{
+    
+    private final PreparedStatement statement;
+    private final ResultSet set;
+    
+    //the columns of the query, looked up once and shared by every entry
+    private final ColumnSchema schema;
+    
+    private boolean closed = false;
+    
+    //--------------------------------------------------------------------------
+    // EntryCursor::EntryCursor (constructor)
+    //
+    // pStatement is closed along with pSet when the cursor is closed.
+    //
+
+    EntryCursor(PreparedStatement pStatement, ResultSet pSet)
+            throws SQLException
+    {
+        
+        statement = pStatement;
+        set = pSet;
+        
+        schema = MySQLDatabase.createSchema(set);
+
+    }//end of EntryCursor::EntryCursor (constructor)
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // EntryCursor::close
+    //
+    // Closes the cursor and frees up its resources. Does nothing if the cursor
+    // is already closed.
+    //
+
+    @Override
+    public void close()
+    {
+        
+        if (closed) { return; }
+        
+        closed = true;
+        
+        try { set.close(); } catch (SQLException e) { }
+        try { statement.close(); } catch (SQLException e) { }
+
+    }//end of EntryCursor::close
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // EntryCursor::next
+    //
+    // Returns the next row as a DatabaseEntry, or null if there are no more
+    // rows.
+    //
+
+    public DatabaseEntry next() throws DatabaseError
+    {
+        
+        if (closed) { return null; }
+        
+        try {
+            
+            if (!set.next()) { return null; }
+            
+            String[] values = new String[schema.getColumnCount()];
+            for (int i=0; i<values.length; i++) { values[i] = set.getString(i+1); }
+            
+            return new DatabaseEntry(schema, values);
+            
+        }
+        catch (SQLException e) {
+            throw new DatabaseError(DatabaseError.QUERY_ERROR);
+        }
+
+    }//end of EntryCursor::next
+    //--------------------------------------------------------------------------
+    
+}//end of class EntryCursor
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
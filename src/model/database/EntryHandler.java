@@ -0,0 +1,30 @@
+/*******************************************************************************
+* Title: EntryHandler.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This interface is used to hand entries retrieved from the database to the
+* caller one at a time, as they are read, instead of collecting all of them
+* into a list first.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model.database;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// interface EntryHandler
+//
+
+public interface EntryHandler
+{
+    
+    public void handleEntry(DatabaseEntry pEntry) throws DatabaseError;
+    
+}//end of interface EntryHandler
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
@@ -0,0 +1,1492 @@
+/*******************************************************************************
+* Title: MemoryDatabase.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class keeps the program's tables in memory, in this program, instead
+* of on the MySQL server. It is meant for a yard with a single workstation,
+* where going over the network for every operation is wasted time, and for
+* benchmarking the rest of the model without a server.
+*
+* NOTES:
+*   Each table keeps its entries in a hash map keyed by skoonie key, so
+*   looking up, updating, or deleting an entry by its key does not depend on
+*   the size of the table. Entries are returned in the order they were added.
+*
+*   Column definitions given to createTable() and addColumn() are the same
+*   SQL snippets given to MySQLDatabase; only the column name is used. All
+*   values are stored as strings. Storing an entry with a column the table
+*   doesn't have adds the column instead of failing, so an empty database can
+*   be filled without knowing the columns of every table up front.
+*
+*   There are no connections. connectToDatabase() does nothing, but
+*   disconnectFromDatabase() still rolls back a transaction left open by the
+*   calling thread.
+*
+*   A transaction holds the tables for the calling thread until it is
+*   committed or rolled back, so the other threads never see half of one.
+*   Every change made to an entry is logged so that it can be undone.
+*   Creating, changing, emptying, and dropping tables take effect at once and
+*   are not undone, the same as in MySQL where they end the transaction.
+*
+*   If a file is given, the tables are read from it by init() and saved to it
+*   every SAVE_INTERVAL milliseconds while there are changes, and once more
+*   when the program exits. Only committed changes are ever saved. The file is
+*   written to a temporary file first and then moved over the old one, so it
+*   is never left half written. If the file cannot be read, it is left alone
+*   and nothing is saved, so that its contents are not lost.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model.database;
+
+//------------------------------------------------------------------------------
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import shared.ColumnSchema;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class MemoryDatabase
+//
+
+public class MemoryDatabase implements Database
+{
+
+    private static final String SKOONIE_KEY = "skoonie_key";
+
+    //how often the tables are saved to the file while there are changes
+    private static final long SAVE_INTERVAL = 5000;
+
+    //how long a save waits for an open transaction before trying again later
+    private static final long SAVE_LOCK_TIMEOUT = 1000;
+
+    //file the tables are saved to; null if they are only kept in memory
+    private final String file;
+
+    //key=table name; value=table
+    private Map<String, Table> tables = new HashMap<>();
+
+    //given to each table when it changes, so that a table's version is never
+    //used twice, even if the table is dropped and created again
+    private long lastVersion = 0;
+
+    //held while the tables are read or changed, and by a thread for the
+    //whole of its transaction
+    private final ReentrantLock lock = new ReentrantLock();
+
+    //undoes the changes made by the calling thread's transaction, most recent
+    //first; null if the thread has no transaction open
+    private final ThreadLocal<Deque<Runnable>> undoLog = new ThreadLocal<>();
+
+    //true when there are changes that haven't been saved to the file
+    private volatile boolean dirty = false;
+
+    //false if the file couldn't be read, so that it is never overwritten
+    private volatile boolean saving = false;
+
+    private ScheduledExecutorService saver;
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::MemoryDatabase (constructor)
+    //
+    // The tables are only kept in memory and are gone when the program exits.
+    //
+
+    public MemoryDatabase()
+    {
+
+        this(null);
+
+    }//end of MemoryDatabase::MemoryDatabase (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::MemoryDatabase (constructor)
+    //
+    // The tables are saved to pFile. If pFile is null, they are only kept in
+    // memory.
+    //
+
+    public MemoryDatabase(String pFile)
+    {
+
+        file = pFile;
+
+    }//end of MemoryDatabase::MemoryDatabase (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::init
+    //
+    // Initializes the object. Must be called immediately after instantiation.
+    //
+    // Reads the tables from the file, if there is one, and starts saving them.
+    //
+
+    @Override
+    public void init()
+    {
+
+        if (file == null) { return; }
+
+        saving = load();
+
+        if (!saving) { return; }
+
+        saver = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread t = new Thread(r, "Memory Database Saver");
+            t.setDaemon(true);
+            return t;
+        });
+
+        saver.scheduleWithFixedDelay(this::save, SAVE_INTERVAL, SAVE_INTERVAL,
+                                        TimeUnit.MILLISECONDS);
+
+        Runtime.getRuntime().addShutdownHook(
+                                new Thread(this::save, "Memory Database Saver"));
+
+    }//end of MemoryDatabase::init
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::addColumn
+    //
+    // Adds the column defined by pColumn to the end of pTable.
+    //
+
+    @Override
+    public void addColumn(String pTable, String pColumn)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.ADD_COLUMN_ERROR);
+            String name = parseColumnName(pColumn,
+                                            DatabaseError.ADD_COLUMN_ERROR);
+
+            if (t.indexOf(name) >= 0) {
+                throw new DatabaseError(DatabaseError.ADD_COLUMN_ERROR);
+            }
+
+            t.addColumn(name);
+            changed(t);
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::addColumn
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::beginTransaction
+    //
+    // Starts a transaction for the calling thread. The other threads can't
+    // use the tables until it is committed or rolled back.
+    //
+    // Does nothing if the calling thread already has a transaction open.
+    //
+
+    @Override
+    public void beginTransaction() throws DatabaseError
+    {
+
+        if (undoLog.get() != null) { return; }
+
+        lock.lock();
+        undoLog.set(new ArrayDeque<>());
+
+    }//end of MemoryDatabase::beginTransaction
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::changed
+    //
+    // Records that pTable changed. Must be called while holding the lock.
+    //
+
+    private void changed(Table pTable)
+    {
+
+        pTable.version = ++lastVersion;
+        dirty = true;
+
+    }//end of MemoryDatabase::changed
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::checkConnection
+    //
+    // Always returns true -- the tables are always at hand.
+    //
+
+    @Override
+    public boolean checkConnection()
+    {
+
+        return true;
+
+    }//end of MemoryDatabase::checkConnection
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::checkForValue
+    //
+    // Checks for pValue in pTable under pColumn.
+    //
+
+    @Override
+    public boolean checkForValue(String pValue, String pTable, String pColumn)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.QUERY_ERROR);
+            int i = t.indexOf(pColumn);
+
+            if (i < 0) { throw new DatabaseError(DatabaseError.QUERY_ERROR); }
+
+            for (String[] row : t.rows.values()) {
+                if (i < row.length && pValue.equals(row[i])) { return true; }
+            }
+
+            return false;
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::checkForValue
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::commitTransaction
+    //
+    // Keeps everything changed since beginTransaction() was called, ends the
+    // transaction, and lets the other threads use the tables again.
+    //
+
+    @Override
+    public void commitTransaction() throws DatabaseError
+    {
+
+        if (undoLog.get() == null) { return; }
+
+        undoLog.remove();
+        lock.unlock();
+
+    }//end of MemoryDatabase::commitTransaction
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::connectToDatabase
+    //
+    // Does nothing; there is no connection to borrow.
+    //
+
+    @Override
+    public void connectToDatabase() throws DatabaseError
+    {
+
+    }//end of MemoryDatabase::connectToDatabase
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::createEntry
+    //
+    // Creates and returns a DatabaseEntry holding a copy of pRow laid out by
+    // pSchema, which must have been made from pTable's columns.
+    //
+
+    private DatabaseEntry createEntry(ColumnSchema pSchema, String[] pRow)
+    {
+
+        //rows stored before columns were added are shorter than the schema
+        return new DatabaseEntry(pSchema,
+                            Arrays.copyOf(pRow, pSchema.getColumnCount()));
+
+    }//end of MemoryDatabase::createEntry
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::createTable
+    //
+    // Creates pTable containing the columns defined by pColumns.
+    //
+
+    @Override
+    public void createTable(String pTable, String[] pColumns)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            if (tables.containsKey(pTable)) {
+                throw new DatabaseError(DatabaseError.CREATE_TABLE_ERROR);
+            }
+
+            Table t = new Table();
+            for (String column : pColumns) {
+                //there are no indexes to make
+                if (isIndexDefinition(column)) { continue; }
+                t.addColumn(parseColumnName(column,
+                                            DatabaseError.CREATE_TABLE_ERROR));
+            }
+
+            tables.put(pTable, t);
+            changed(t);
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::createTable
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::deleteEntry
+    //
+    // Deletes the entry associated with pSkoonieKey from pTable.
+    //
+
+    @Override
+    public void deleteEntry(String pTable, String pSkoonieKey)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.DELETE_ENTRY_ERROR);
+            Integer key = parseKey(pSkoonieKey);
+
+            String[] old = key != null ? t.rows.remove(key) : null;
+
+            if (old == null) { return; }
+
+            changed(t);
+            logUndo(() -> { t.rows.put(key, old); changed(t); });
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::deleteEntry
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::deleteEntriesBefore
+    //
+    // Deletes every entry in pTable whose skoonie key is less than
+    // pSkoonieKey, except the newest entry for each value of column
+    // pKeepNewestBy, which is always kept.
+    //
+
+    @Override
+    public void deleteEntriesBefore(String pTable, String pSkoonieKey,
+                                    String pKeepNewestBy)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.DELETE_ENTRY_ERROR);
+            Integer limit = parseKey(pSkoonieKey);
+            int column = t.indexOf(pKeepNewestBy);
+
+            if (column < 0) {
+                throw new DatabaseError(DatabaseError.DELETE_ENTRY_ERROR);
+            }
+
+            if (limit == null) { return; }
+
+            //key=value of pKeepNewestBy; value=newest skoonie key with it
+            Map<String, Integer> newest = new HashMap<>();
+            for (Map.Entry<Integer, String[]> e : t.rows.entrySet()) {
+                String[] row = e.getValue();
+                String value = column < row.length ? row[column] : null;
+                newest.merge(String.valueOf(value), e.getKey(), Math::max);
+            }
+            Set<Integer> kept = new HashSet<>(newest.values());
+
+            Map<Integer, String[]> removed = new LinkedHashMap<>();
+            Iterator<Map.Entry<Integer, String[]>> i
+                                            = t.rows.entrySet().iterator();
+            while (i.hasNext()) {
+                Map.Entry<Integer, String[]> e = i.next();
+                if (e.getKey() < limit && !kept.contains(e.getKey())) {
+                    removed.put(e.getKey(), e.getValue());
+                    i.remove();
+                }
+            }
+
+            if (removed.isEmpty()) { return; }
+
+            changed(t);
+            logUndo(() -> { t.rows.putAll(removed); changed(t); });
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::deleteEntriesBefore
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::disconnectFromDatabase
+    //
+    // Rolls back the transaction left open by the calling thread, if there is
+    // one.
+    //
+
+    @Override
+    public void disconnectFromDatabase()
+    {
+
+        if (undoLog.get() != null) { rollbackTransaction(); }
+
+    }//end of MemoryDatabase::disconnectFromDatabase
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::dropColumn
+    //
+    // Drops pColumn from pTable.
+    //
+
+    @Override
+    public void dropColumn(String pTable, String pColumn)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.DROP_COLUMN_ERROR);
+            int i = t.indexOf(pColumn);
+
+            if (i < 0) {
+                throw new DatabaseError(DatabaseError.DROP_COLUMN_ERROR);
+            }
+
+            t.setColumns(remove(t.columns, i));
+
+            //rows are replaced rather than changed; see Table
+            for (Map.Entry<Integer, String[]> e : t.rows.entrySet()) {
+                if (i < e.getValue().length) {
+                    e.setValue(remove(e.getValue(), i));
+                }
+            }
+
+            changed(t);
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::dropColumn
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::dropTable
+    //
+    // Drops pTable from the database.
+    //
+
+    @Override
+    public void dropTable(String pTable)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            if (tables.remove(pTable) == null) {
+                throw new DatabaseError(DatabaseError.DROP_TABLE_ERROR);
+            }
+
+            dirty = true;
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::dropTable
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::emptyTable
+    //
+    // Deletes all of the entries in pTable and starts its skoonie keys over,
+    // the same as truncating it in MySQL.
+    //
+
+    @Override
+    public void emptyTable(String pTable)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.TRUNCATE_TABLE_ERROR);
+
+            t.rows = new LinkedHashMap<>();
+            t.nextKey = 1;
+            changed(t);
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::emptyTable
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::forEachEntry
+    //
+    // Hands all of the entries in pTable to pHandler one at a time.
+    //
+    // The entries are copied before any are handed over, so pHandler is free
+    // to use the database.
+    //
+
+    @Override
+    public void forEachEntry(String pTable, EntryHandler pHandler)
+            throws DatabaseError
+    {
+
+        for (DatabaseEntry e : getEntries(pTable)) { pHandler.handleEntry(e); }
+
+    }//end of MemoryDatabase::forEachEntry
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::getColumnNames
+    //
+    // Returns the column names of pTable.
+    //
+
+    @Override
+    public List<String> getColumnNames(String pTable)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+            return new ArrayList<>(Arrays.asList(
+                            getTable(pTable, DatabaseError.QUERY_ERROR).columns));
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::getColumnNames
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::getColumnValues
+    //
+    // Returns the value of pColumn for every entry in pTable, in the order the
+    // entries were added.
+    // key=skoonie key; value=value of pColumn
+    //
+
+    @Override
+    public Map<String, String> getColumnValues(String pTable, String pColumn)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.QUERY_ERROR);
+            int i = t.indexOf(pColumn);
+
+            if (i < 0) { throw new DatabaseError(DatabaseError.QUERY_ERROR); }
+
+            Map<String, String> values = new LinkedHashMap<>();
+            for (Map.Entry<Integer, String[]> e : t.rows.entrySet()) {
+                String[] row = e.getValue();
+                values.put(e.getKey().toString(),
+                                i < row.length ? row[i] : null);
+            }
+
+            return values;
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::getColumnValues
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::getEntry
+    //
+    // Returns the entry in pTable associated with pSkoonieKey, or an empty
+    // entry if there isn't one.
+    //
+
+    @Override
+    public DatabaseEntry getEntry(String pTable, String pSkoonieKey)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.QUERY_ERROR);
+            Integer key = parseKey(pSkoonieKey);
+
+            String[] row = key != null ? t.rows.get(key) : null;
+
+            if (row == null) { return new DatabaseEntry(); }
+
+            return createEntry(t.createSchema(), row);
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::getEntry
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::getEntries
+    //
+    // Returns all of the entries in pTable, in the order they were added.
+    //
+
+    @Override
+    public List<DatabaseEntry> getEntries(String pTable)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.QUERY_ERROR);
+            ColumnSchema schema = t.createSchema();
+
+            List<DatabaseEntry> entries = new ArrayList<>(t.rows.size());
+            for (String[] row : t.rows.values()) {
+                entries.add(createEntry(schema, row));
+            }
+
+            return entries;
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::getEntries
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::getEntries
+    //
+    // Returns all of the entries whose skoonie keys are those in pKeys from
+    // pTable.
+    //
+
+    @Override
+    public List<DatabaseEntry> getEntries(String pTable, List<String> pKeys)
+            throws DatabaseError
+    {
+
+        List<DatabaseEntry> entries = new ArrayList<>(pKeys.size());
+        getEntries(pTable, pKeys, entries::add);
+        return entries;
+
+    }//end of MemoryDatabase::getEntries
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::getEntries
+    //
+    // Gets all of the entries whose skoonie keys are those in pKeys from
+    // pTable and hands them to pHandler one at a time, in the order of pKeys.
+    // Keys that aren't in the table are skipped, and each entry is only
+    // handed over once.
+    //
+    // The entries are copied before any are handed over, so pHandler is free
+    // to use the database.
+    //
+
+    @Override
+    public void getEntries(String pTable, List<String> pKeys,
+                            EntryHandler pHandler)
+            throws DatabaseError
+    {
+
+        List<DatabaseEntry> entries = new ArrayList<>(pKeys.size());
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.QUERY_ERROR);
+            ColumnSchema schema = t.createSchema();
+
+            Set<Integer> keys = new LinkedHashSet<>();
+            for (String k : pKeys) {
+                Integer key = parseKey(k);
+                if (key != null) { keys.add(key); }
+            }
+
+            for (Integer key : keys) {
+                String[] row = t.rows.get(key);
+                if (row != null) { entries.add(createEntry(schema, row)); }
+            }
+
+        }
+        finally { lock.unlock(); }
+
+        for (DatabaseEntry e : entries) { pHandler.handleEntry(e); }
+
+    }//end of MemoryDatabase::getEntries
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::getEntriesAfter
+    //
+    // Returns all of the entries in pTable whose skoonie keys are greater than
+    // pSkoonieKey, in skoonie key order.
+    //
+
+    @Override
+    public List<DatabaseEntry> getEntriesAfter(String pTable,
+                                                String pSkoonieKey)
+            throws DatabaseError
+    {
+
+        Integer after = parseKey(pSkoonieKey);
+
+        if (after == null) { throw new DatabaseError(DatabaseError.QUERY_ERROR); }
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.QUERY_ERROR);
+            ColumnSchema schema = t.createSchema();
+
+            TreeMap<Integer, String[]> later = new TreeMap<>();
+            for (Map.Entry<Integer, String[]> e : t.rows.entrySet()) {
+                if (e.getKey() > after) { later.put(e.getKey(), e.getValue()); }
+            }
+
+            List<DatabaseEntry> entries = new ArrayList<>(later.size());
+            for (String[] row : later.values()) {
+                entries.add(createEntry(schema, row));
+            }
+
+            return entries;
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::getEntriesAfter
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::getMaxSkoonieKey
+    //
+    // Returns the largest skoonie key in pTable, or "0" if pTable is empty.
+    //
+
+    @Override
+    public String getMaxSkoonieKey(String pTable)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            int max = 0;
+            for (Integer key
+                    : getTable(pTable, DatabaseError.QUERY_ERROR).rows.keySet())
+            {
+                max = Math.max(max, key);
+            }
+
+            return Integer.toString(max);
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::getMaxSkoonieKey
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::getMaxSkoonieKeys
+    //
+    // Returns the largest skoonie key of the entries in pTable whose pColumn
+    // is each of pValues. Values that no entries have are left out.
+    // key=value; value=largest skoonie key
+    //
+
+    @Override
+    public Map<String, String> getMaxSkoonieKeys(String pTable, String pColumn,
+                                                    Collection<String> pValues)
+            throws DatabaseError
+    {
+
+        Map<String, Integer> max = new HashMap<>();
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.QUERY_ERROR);
+            int i = t.indexOf(pColumn);
+
+            if (i < 0) { throw new DatabaseError(DatabaseError.QUERY_ERROR); }
+
+            for (Map.Entry<Integer, String[]> e : t.rows.entrySet()) {
+                String[] row = e.getValue();
+                String value = i < row.length ? row[i] : null;
+                if (value != null && pValues.contains(value)) {
+                    max.merge(value, e.getKey(), Math::max);
+                }
+            }
+
+        }
+        finally { lock.unlock(); }
+
+        Map<String, String> keys = new TreeMap<>();
+        for (Map.Entry<String, Integer> m : max.entrySet()) {
+            keys.put(m.getKey(), Integer.toString(m.getValue()));
+        }
+
+        return keys;
+
+    }//end of MemoryDatabase::getMaxSkoonieKeys
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::getSkoonieKeys
+    //
+    // Returns all of the skoonie keys of the entries in pTable.
+    //
+
+    @Override
+    public List<String> getSkoonieKeys(String pTable)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.QUERY_ERROR);
+
+            List<String> keys = new ArrayList<>(t.rows.size());
+            for (Integer key : t.rows.keySet()) { keys.add(key.toString()); }
+
+            return keys;
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::getSkoonieKeys
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::getTable
+    //
+    // Returns pTable, or throws a DatabaseError with pError if there is no
+    // such table. Must be called while holding the lock.
+    //
+
+    private Table getTable(String pTable, String pError)
+            throws DatabaseError
+    {
+
+        Table t = tables.get(pTable);
+
+        if (t == null) { throw new DatabaseError(pError); }
+
+        return t;
+
+    }//end of MemoryDatabase::getTable
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::insertEntries
+    //
+    // Inserts pEntries into pTable and returns the skoonie keys assigned to
+    // them, in order.
+    //
+    // The entries are inserted together, so the other threads see either all
+    // of them or none of them.
+    //
+
+    @Override
+    public List<Integer> insertEntries(List<DatabaseEntry> pEntries,
+                                            String pTable)
+            throws DatabaseError
+    {
+
+        List<Integer> keys = new ArrayList<>(pEntries.size());
+
+        lock.lock();
+        try {
+            for (DatabaseEntry e : pEntries) { keys.add(insertEntry(e, pTable)); }
+        }
+        finally { lock.unlock(); }
+
+        return keys;
+
+    }//end of MemoryDatabase::insertEntries
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::insertEntry
+    //
+    // Inserts pEntry into pTable and returns the skoonie key assigned to it.
+    //
+    // If pEntry already has a skoonie key, that key is used; it is an error
+    // if the key is already taken.
+    //
+
+    @Override
+    public int insertEntry(DatabaseEntry pEntry, String pTable)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.QUERY_ERROR);
+            Map<String, String> columns = pEntry.getColumns();
+
+            int key;
+            String given = columns.remove(SKOONIE_KEY);
+            if (given != null) {
+                Integer k = parseKey(given);
+                if (k == null || t.rows.containsKey(k)) {
+                    throw new DatabaseError(DatabaseError.QUERY_ERROR);
+                }
+                key = k;
+                t.nextKey = Math.max(t.nextKey, key + 1);
+            }
+            else { key = t.nextKey++; }
+
+            String[] row = setValues(t, new String[t.columns.length], columns);
+
+            int keyIndex = t.indexOf(SKOONIE_KEY);
+            if (keyIndex < 0) { keyIndex = t.addColumn(SKOONIE_KEY); }
+            row = Arrays.copyOf(row, t.columns.length);
+            row[keyIndex] = Integer.toString(key);
+
+            t.rows.put(key, row);
+            changed(t);
+            logUndo(() -> { t.rows.remove(key); changed(t); });
+
+            return key;
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::insertEntry
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::isInTransaction
+    //
+    // Returns true if the calling thread has a transaction open.
+    //
+
+    @Override
+    public boolean isInTransaction() throws DatabaseError
+    {
+
+        return undoLog.get() != null;
+
+    }//end of MemoryDatabase::isInTransaction
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::isIndexDefinition
+    //
+    // Returns true if pDefinition, from the column definitions given to
+    // createTable(), defines an index rather than a column.
+    //
+
+    private static boolean isIndexDefinition(String pDefinition)
+    {
+
+        String d = pDefinition.trim().toUpperCase();
+
+        return d.startsWith("INDEX ") || d.startsWith("KEY ")
+                || d.startsWith("UNIQUE ") || d.startsWith("PRIMARY KEY");
+
+    }//end of MemoryDatabase::isIndexDefinition
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::load
+    //
+    // Reads the tables from the file. Returns true if they were read or there
+    // is no file yet; false if the file couldn't be read.
+    //
+
+    @SuppressWarnings("unchecked")
+    private boolean load()
+    {
+
+        File f = new File(file);
+
+        if (!f.exists()) { return true; }
+
+        try (ObjectInputStream in = new ObjectInputStream(
+                        new BufferedInputStream(new FileInputStream(f))))
+        {
+
+            Map<String, Table> t = (Map<String, Table>)in.readObject();
+            long v = in.readLong();
+
+            lock.lock();
+            try { tables = t; lastVersion = v; }
+            finally { lock.unlock(); }
+
+            return true;
+
+        }
+        catch (IOException | ClassNotFoundException | ClassCastException e) {
+            logSevere(e.getMessage() + " - Error: 1012");
+            return false;
+        }
+
+    }//end of MemoryDatabase::load
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::logSevere
+    //
+    // Logs pMessage with level SEVERE using the Java logger.
+    //
+
+    private void logSevere(String pMessage)
+    {
+
+        Logger.getLogger(getClass().getName()).log(Level.SEVERE, pMessage);
+
+    }//end of MemoryDatabase::logSevere
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::logUndo
+    //
+    // Adds pUndo to the calling thread's transaction, to be run if the
+    // transaction is rolled back. Does nothing if there is no transaction.
+    //
+
+    private void logUndo(Runnable pUndo)
+    {
+
+        Deque<Runnable> log = undoLog.get();
+
+        if (log != null) { log.push(pUndo); }
+
+    }//end of MemoryDatabase::logUndo
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::parseColumnName
+    //
+    // Returns the name of the column defined by pDefinition, which is an SQL
+    // snippet like "`name` VARCHAR(64) NOT NULL". Throws a DatabaseError with
+    // pError if there is no name.
+    //
+
+    private static String parseColumnName(String pDefinition, String pError)
+            throws DatabaseError
+    {
+
+        String d = pDefinition.trim();
+
+        String name;
+        if (d.startsWith("`")) {
+            int end = d.indexOf('`', 1);
+            name = end > 0 ? d.substring(1, end) : "";
+        }
+        else { name = d.split("\\s+")[0]; }
+
+        if (name.isEmpty()) { throw new DatabaseError(pError); }
+
+        return name;
+
+    }//end of MemoryDatabase::parseColumnName
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::parseKey
+    //
+    // Returns pKey as a number, or null if it isn't one.
+    //
+
+    private static Integer parseKey(String pKey)
+    {
+
+        if (pKey == null) { return null; }
+
+        try { return Integer.valueOf(pKey.trim()); }
+        catch (NumberFormatException e) { return null; }
+
+    }//end of MemoryDatabase::parseKey
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::remove
+    //
+    // Returns a copy of pValues without the value at pIndex.
+    //
+
+    private static String[] remove(String[] pValues, int pIndex)
+    {
+
+        String[] values = new String[pValues.length-1];
+
+        System.arraycopy(pValues, 0, values, 0, pIndex);
+        System.arraycopy(pValues, pIndex+1, values, pIndex,
+                            values.length-pIndex);
+
+        return values;
+
+    }//end of MemoryDatabase::remove
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::rollbackTransaction
+    //
+    // Undoes everything changed since beginTransaction() was called, ends
+    // the transaction, and lets the other threads use the tables again.
+    //
+
+    @Override
+    public void rollbackTransaction()
+    {
+
+        Deque<Runnable> log = undoLog.get();
+
+        if (log == null) { return; }
+
+        try { for (Runnable undo : log) { undo.run(); } }
+        finally {
+            undoLog.remove();
+            lock.unlock();
+        }
+
+    }//end of MemoryDatabase::rollbackTransaction
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::save
+    //
+    // Saves the tables to the file if they have changed since they were last
+    // saved. Does nothing if there is no file or it couldn't be read.
+    //
+    // If a transaction is open, this waits up to SAVE_LOCK_TIMEOUT for it to
+    // finish and then gives up until next time.
+    //
+
+    public void save()
+    {
+
+        if (!saving || !dirty) { return; }
+
+        //copy the tables so that they can be written without holding the
+        //lock -- the rows themselves are never changed, only replaced
+        Map<String, Table> copy = new HashMap<>();
+        long version;
+
+        try {
+            if (!lock.tryLock(SAVE_LOCK_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try {
+            for (Map.Entry<String, Table> e : tables.entrySet()) {
+                copy.put(e.getKey(), e.getValue().copy());
+            }
+            version = lastVersion;
+            dirty = false;
+        }
+        finally { lock.unlock(); }
+
+        File f = new File(file);
+        File temp = new File(file + ".tmp");
+
+        try {
+
+            try (ObjectOutputStream out = new ObjectOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(temp))))
+            {
+                out.writeObject(copy);
+                out.writeLong(version);
+            }
+
+            Files.move(temp.toPath(), f.toPath(),
+                                        StandardCopyOption.REPLACE_EXISTING,
+                                        StandardCopyOption.ATOMIC_MOVE);
+
+        }
+        catch (IOException e) {
+            //try again next time
+            dirty = true;
+            logSevere(e.getMessage() + " - Error: 1013");
+        }
+
+    }//end of MemoryDatabase::save
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::setValues
+    //
+    // Puts pColumns into pRow, laid out by pTable's columns, and returns the
+    // row. Columns that pTable doesn't have are added to it, in which case a
+    // longer copy of pRow is returned.
+    //
+    // The skoonie key is not changed.
+    //
+
+    private String[] setValues(Table pTable, String[] pRow,
+                                Map<String, String> pColumns)
+    {
+
+        String[] row = pRow;
+
+        for (Map.Entry<String, String> c : pColumns.entrySet()) {
+
+            if (c.getKey().equals(SKOONIE_KEY)) { continue; }
+
+            int i = pTable.indexOf(c.getKey());
+            if (i < 0) {
+                i = pTable.addColumn(c.getKey());
+                dirty = true;
+            }
+
+            if (i >= row.length) { row = Arrays.copyOf(row, i+1); }
+
+            row[i] = c.getValue();
+
+        }
+
+        return row;
+
+    }//end of MemoryDatabase::setValues
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::tableExists
+    //
+    // Returns true if pTable exists in the database; false if not.
+    //
+
+    @Override
+    public boolean tableExists(String pTable)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try { return tables.containsKey(pTable); }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::tableExists
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // MemoryDatabase::updateEntry
+    //
+    // Updates the entry in pTable with the same skoonie key as pEntry. Only
+    // the columns pEntry has are changed. Does nothing if there is no such
+    // entry.
+    //
+
+    @Override
+    public void updateEntry(DatabaseEntry pEntry, String pTable)
+            throws DatabaseError
+    {
+
+        lock.lock();
+        try {
+
+            Table t = getTable(pTable, DatabaseError.UPDATE_ENTRY_ERROR);
+            Integer key = parseKey(pEntry.getValue(SKOONIE_KEY));
+
+            String[] old = key != null ? t.rows.get(key) : null;
+
+            if (old == null) { return; }
+
+            //the row is replaced rather than changed; see Table
+            t.rows.put(key, setValues(t, old.clone(), pEntry.getColumns()));
+            changed(t);
+            logUndo(() -> { t.rows.put(key, old); changed(t); });
+
+        }
+        finally { lock.unlock(); }
+
+    }//end of MemoryDatabase::updateEntry
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+    // class MemoryDatabase::Table
+    //
+    // The columns and entries of one table.
+    //
+    // A row's values are never changed once it is stored; it is replaced with
+    // a new array instead. That way a copy of the rows map is a snapshot of
+    // the table that can be read without holding the lock.
+    //
+
+    private static class Table implements Serializable
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private String[] columns = new String[0];
+
+        //key=skoonie key; value=values laid out by columns -- a row can be
+        //shorter than columns if columns were added after it was stored
+        private LinkedHashMap<Integer, String[]> rows = new LinkedHashMap<>();
+
+        private int nextKey = 1;
+
+        private long version;
+
+        //key=column name; value=index in columns -- rebuilt when needed
+        private transient Map<String, Integer> indices;
+
+        //----------------------------------------------------------------------
+        // Table::addColumn
+        //
+        // Adds pName to the end of the columns and returns its index.
+        //
+
+        int addColumn(String pName)
+        {
+
+            String[] c = Arrays.copyOf(columns, columns.length+1);
+            c[columns.length] = pName;
+
+            setColumns(c);
+
+            return columns.length-1;
+
+        }//end of Table::addColumn
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Table::copy
+        //
+        // Returns a copy of this table that shares its rows.
+        //
+
+        Table copy()
+        {
+
+            Table t = new Table();
+            t.columns = columns;
+            t.rows = new LinkedHashMap<>(rows);
+            t.nextKey = nextKey;
+            t.version = version;
+
+            return t;
+
+        }//end of Table::copy
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Table::createSchema
+        //
+        // Returns a new schema of the columns, to be shared by the entries
+        // read by one query.
+        //
+
+        ColumnSchema createSchema()
+        {
+
+            return new ColumnSchema(columns.clone());
+
+        }//end of Table::createSchema
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Table::indexOf
+        //
+        // Returns the index of pName in the columns, or -1 if there is no
+        // such column.
+        //
+
+        int indexOf(String pName)
+        {
+
+            if (indices == null) {
+                indices = new HashMap<>();
+                for (int i=0; i<columns.length; i++) {
+                    indices.put(columns[i], i);
+                }
+            }
+
+            Integer i = indices.get(pName);
+            return i != null ? i : -1;
+
+        }//end of Table::indexOf
+        //----------------------------------------------------------------------
+
+        //----------------------------------------------------------------------
+        // Table::setColumns
+        //
+        // Replaces the columns with pColumns. The array is never changed
+        // afterwards, so it can be shared by copies.
+        //
+
+        void setColumns(String[] pColumns)
+        {
+
+            columns = pColumns;
+            indices = null;
+
+        }//end of Table::setColumns
+        //----------------------------------------------------------------------
+
+    }//end of class MemoryDatabase::Table
+    //--------------------------------------------------------------------------
+    //--------------------------------------------------------------------------
+
+}//end of class MemoryDatabase
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
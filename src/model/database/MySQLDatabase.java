@@ -9,16 +9,21 @@
 * MySQL database containing all of the data for the program.
 * 
 * NOTES:
-*   Since opening a connection can be an expensive process for the server, it is
-*   best to minimize the number of times you close and reopen the connection. 
-*   This problem should not be solved by keeping a connection open for all of 
-*   eternity; this uses valuable resources and can negatively affect the 
-*   application's overall performance. Instead, if you have a series of commands
-*   that you are sending to the database one after another, then open the 
-*   connection once by calling connectToDatabase() and close it by calling 
-*   closeDatabaseConnection() after all of the commands have been sent. A long 
-*   wait time between command calls should be handled by opening and closing the
-*   connection between each series of calls.
+*   Opening a connection is an expensive process for both the server and the
+*   client; on a slow network the handshake alone can take hundreds of
+*   milliseconds. To avoid paying for it on every operation, connections are
+*   kept open in a ConnectionPool. connectToDatabase() borrows a connection
+*   from the pool and disconnectFromDatabase() hands it back so that it can be
+*   used again. Both are cheap, so it is fine to connect and disconnect around
+*   every series of commands sent to the database -- and important to always
+*   disconnect when done, since a borrowed connection cannot be used by anybody
+*   else.
+* 
+*   By default every statement is its own transaction and is committed by the
+*   server as soon as it is executed. When several statements make up one
+*   operation, wrap them in beginTransaction() and commitTransaction() so that
+*   either all of them are saved or none of them are -- this also means the
+*   server only has to commit once instead of once per statement.
 * 
 * In order to use this class, the latest version of Connector/J must be added to
 * to the project. In order to add Connector/J to your project in NetBeans, 
@@ -55,33 +60,70 @@ package model.database;
 //------------------------------------------------------------------------------
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.Savepoint;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import shared.ColumnSchema;
 
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
 // class MySQLDatabase
 //
 
-public class MySQLDatabase 
+public class MySQLDatabase implements Database
 {
     
+    //server side prepared statements are used so that the statements cached
+    //by each pooled connection are only parsed by the server once; batched
+    //inserts are rewritten by the driver into multi-row inserts so that a
+    //whole batch is sent in one round trip; cursor fetch lets openCursor()
+    //pull rows from the server a few at a time
     private final String url = "jdbc:mysql://108.167.140.102:3306/"
-                                    + "hunter98_altus-inventory";
+                                    + "hunter98_altus-inventory"
+                                    + "?useServerPrepStmts=true"
+                                    + "&rewriteBatchedStatements=true"
+                                    + "&useCursorFetch=true";
     private final String username = "hunter98_altus";
     private final String password = "shyanismineagain98";
     
-    private Connection connection;
+    private final ConnectionPool pool 
+                            = new ConnectionPool(url, username, password);
+    
+    //the number of keys fetched by each "IN (?,?,...)" query is rounded up
+    //to one of these so that only a few statement shapes are ever used
+    private static final int[] KEY_BUCKETS = {1, 8, 32, 128};
+    
+    //the most key chunks fetched at the same time on different connections;
+    //1 fetches them one after another on the caller's connection
+    private int parallelKeyFetches = 1;
+    public void setParallelKeyFetches(int pNum) { parallelKeyFetches = pNum; }
+    
+    private ExecutorService keyFetchExecutor;
+    
+    //the number of rows pulled from the server at a time by a cursor
+    private int fetchSize = 500;
+    public void setFetchSize(int pSize) { fetchSize = pSize; }
+    
+    //each thread borrows its own connection so that one MySQLDatabase can be
+    //used by several threads at the same time
+    private final ThreadLocal<PooledConnection> pooledConnection 
+                                                    = new ThreadLocal<>();
     
     //--------------------------------------------------------------------------
     // MySQLDatabase::MySQLDatabase (constructor)
@@ -103,6 +145,9 @@ public class MySQLDatabase
     {
         
         registerJDBCDriver();
+        
+        //start the connection pool
+        pool.init();
 
     }// end of MySQLDatabase::init
     //--------------------------------------------------------------------------
@@ -122,7 +167,7 @@ public class MySQLDatabase
         
         //attempt to create and execute the statement
         try { 
-            PreparedStatement stmt = connection.prepareStatement(cmd);
+            PreparedStatement stmt = getConnection().prepareStatement(cmd);
             stmt.execute();
             //clean up environment
             closePreparedStatement(stmt);
@@ -135,30 +180,45 @@ public class MySQLDatabase
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // MySQLDatabase::checkForValue
+    // MySQLDatabase::beginTransaction
+    //
+    // Starts a transaction on the connection borrowed by the calling thread.
+    // Nothing sent to the database after this is saved until 
+    // commitTransaction() is called, and all of it is thrown away if 
+    // rollbackTransaction() is called instead.
+    //
+    // If the connection is handed back to the pool while a transaction is
+    // still open, the transaction is rolled back.
+    //
+    // Transactions cannot be nested; use setSavepoint() to be able to undo
+    // only part of a transaction.
+    //
+
+    public void beginTransaction() throws DatabaseError
+    {
+        
+        try { getConnection().setAutoCommit(false); }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.TRANSACTION_ERROR);
+        }
+
+    }// end of MySQLDatabase::beginTransaction
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::checkConnection
     //
     // Checks the connection to the database. If one is good and can be
     // established, then this function returns true; false if not.
     //
+    // A pooled connection is checked with the server, so this does not open a
+    // new connection unless the pool is empty.
+    //
 
     public boolean checkConnection()
     {
 
-        boolean good = true;
-        
-        try { 
-            
-            //atttempt to connect
-            connectToDatabase();
-            
-            //disconnect so that we don't leave
-            //the connection hanging open
-            disconnectFromDatabase();
-            
-        }
-        catch (DatabaseError e) { good = false; }
-        
-        return good;
+        return pool.checkConnection();
         
     }// end of MySQLDatabase::checkConnection
     //--------------------------------------------------------------------------
@@ -181,7 +241,7 @@ public class MySQLDatabase
         //attempt to check for the value
         try { 
             
-            PreparedStatement stmt = connection.prepareStatement(cmd);
+            PreparedStatement stmt = prepareCachedStatement(cmd, false);
             
             stmt.setString(1, pValue);
             
@@ -192,7 +252,7 @@ public class MySQLDatabase
             
             //clean up environment
             closeResultSet(set);
-            closePreparedStatement(stmt);
+            releaseCachedStatement(stmt);
             
         }
         catch (SQLException e) { 
@@ -234,11 +294,36 @@ public class MySQLDatabase
     }// end of MySQLDatabase::closePreparedStatement
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::commitTransaction
+    //
+    // Saves everything sent to the database since beginTransaction() was 
+    // called and ends the transaction.
+    //
+    // Throws a DatabaseError if the commit fails; the transaction should then
+    // be rolled back.
+    //
+
+    public void commitTransaction() throws DatabaseError
+    {
+        
+        try { 
+            Connection c = getConnection();
+            c.commit();
+            c.setAutoCommit(true);
+        }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.TRANSACTION_ERROR);
+        }
+
+    }// end of MySQLDatabase::commitTransaction
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // MySQLDatabase::connectToDatabase
     //
-    // Establishes a connection with the database if one is not already
-    // established.
+    // Borrows a connection from the pool for the calling thread if it has not
+    // already borrowed one.
     //
     // Throws a DatabaseError upon failure; does nothing upon success.
     //
@@ -250,19 +335,95 @@ public class MySQLDatabase
     public void connectToDatabase() throws DatabaseError
     {
         
-        try { 
-            //return true if we are already connected
-            if(connection != null && !connection.isClosed() 
-                    && connection.isValid(10)) { return; }
+        //return if we already have a connection
+        if (pooledConnection.get() != null) { return; }
+        
+        pooledConnection.set(pool.borrowConnection(false));
+        
+    }// end of MySQLDatabase::connectToDatabase
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::createEntry
+    //
+    // Creates and returns a DatabaseEntry containing all of the columns of the
+    // row pSet is currently on. pSchema must have been made for pSet with
+    // createSchema(), and is shared by all of the entries made from pSet.
+    //
+
+    private DatabaseEntry createEntry(ResultSet pSet, ColumnSchema pSchema)
+            throws SQLException
+    {
+        
+        String[] values = new String[pSchema.getColumnCount()];
+        
+        for (int i=0; i<values.length; i++) { values[i] = pSet.getString(i+1); }
+        
+        return new DatabaseEntry(pSchema, values);
+                
+    }// end of MySQLDatabase::createEntry
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::createInsertCommand
+    //
+    // Creates and returns the sql command string for inserting an entry with
+    // pColumns into pTable. Each value gets a placeholder.
+    //
+    // The same columns in the same order always produce the same sql, so the
+    // statement can be reused from the cache.
+    //
+
+    private String createInsertCommand(String pTable, Set<String> pColumns)
+    {
+        
+        String columnNames = "";
+        String columnValuePlaceholders = "";
+        int numberOfColumns = 0;
+        for (String column : pColumns) {
+            if (numberOfColumns>0) { 
+                //add a comma to separate this column name and from the last one
+                columnNames += ",";
+                //add a comma to separate this placeholder form the last one
+                columnValuePlaceholders += ",";
+            }
             
-            connection = DriverManager.getConnection(url, username, password);
+            //add the column name
+            columnNames += "`" + column + "`";
             
-        }
-        catch (SQLException e) { //throw a connection error if we failed
-            throw new DatabaseError(DatabaseError.CONNECTION_ERROR);
+            //add a value placeholder
+            columnValuePlaceholders += "?";
+            
+            //number of columns has increased by one
+            ++numberOfColumns;
         }
         
-    }// end of MySQLDatabase::connectToDatabase
+        //construct the sql command string
+        return "INSERT INTO `" + pTable + "` (" + columnNames 
+                        + ") VALUES (" + columnValuePlaceholders + ")";
+                
+    }// end of MySQLDatabase::createInsertCommand
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::createSchema
+    //
+    // Creates and returns a schema of the columns of pSet, in order, to be
+    // shared by all of the entries made from it.
+    //
+
+    static ColumnSchema createSchema(ResultSet pSet)
+            throws SQLException
+    {
+        
+        ResultSetMetaData d = pSet.getMetaData();
+        
+        String[] names = new String[d.getColumnCount()];
+        for (int i=0; i<names.length; i++) { names[i] = d.getColumnName(i+1); }
+        
+        return new ColumnSchema(names);
+                
+    }// end of MySQLDatabase::createSchema
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
@@ -294,7 +455,7 @@ public class MySQLDatabase
         
         //attempt to create the table
         try { 
-            PreparedStatement stmt = connection.prepareStatement(cmd);
+            PreparedStatement stmt = getConnection().prepareStatement(cmd);
             
             stmt.execute();
             
@@ -324,14 +485,14 @@ public class MySQLDatabase
         //attempt to delete the entry
         try {
             
-            PreparedStatement stmt = connection.prepareStatement(cmd);
+            PreparedStatement stmt = prepareCachedStatement(cmd, false);
             
             stmt.setString(1, pSkoonieKey);
             
             stmt.execute();
             
             //clean up environment
-            closePreparedStatement(stmt);
+            releaseCachedStatement(stmt);
         }
         catch (SQLException e) { 
             throw new DatabaseError(DatabaseError.DELETE_ENTRY_ERROR);
@@ -340,27 +501,77 @@ public class MySQLDatabase
     }// end of MySQLDatabase::deleteEntry
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::deleteEntriesBefore
+    //
+    // Deletes every entry in pTable whose skoonie key is less than
+    // pSkoonieKey, except the newest entry for each value of column
+    // pKeepNewestBy, which is always kept.
+    //
+    // MySQL won't select from the table being deleted from in a subquery, so
+    // the newest keys are read through a derived table, which MySQL makes a
+    // temporary copy of first.
+    //
+
+    @Override
+    public void deleteEntriesBefore(String pTable, String pSkoonieKey,
+                                    String pKeepNewestBy)
+            throws DatabaseError
+    {
+        
+        String cmd = "DELETE FROM `" + pTable + "` WHERE `skoonie_key`<?"
+                        + " AND `skoonie_key` NOT IN (SELECT `newest` FROM"
+                        + " (SELECT MAX(`skoonie_key`) AS `newest` FROM `" 
+                        + pTable + "` GROUP BY `" + pKeepNewestBy + "`)"
+                        + " AS `kept`)";
+        
+        try {
+            
+            PreparedStatement stmt = prepareCachedStatement(cmd, false);
+            
+            stmt.setString(1, pSkoonieKey);
+            
+            stmt.execute();
+            
+            //clean up environment
+            releaseCachedStatement(stmt);
+        }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.DELETE_ENTRY_ERROR);
+        }
+                
+    }// end of MySQLDatabase::deleteEntriesBefore
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // MySQLDatabase::disconnectFromDatabase
     //
-    // Closes the connection to the database.
+    // Returns the connection borrowed by the calling thread to the pool.
     //
-    // This should be called after sending commands to the database to improve 
-    // code performance and free up resources.
+    // This should be called after sending commands to the database so that the
+    // connection can be used by others.
     // Read the NOTES at the top of the file for more information on when to
-    // connect and when to close the connection.
+    // connect and when to disconnect.
     //
 
     public void disconnectFromDatabase()
     {
         
+        PooledConnection pc = pooledConnection.get();
+        
+        //return if we don't have a connection
+        if (pc == null) { return; }
+        
+        //don't let an unfinished transaction follow the connection back into
+        //the pool
         try { 
-            //return if the connection is not open
-            if (connection == null || connection.isClosed()) { return; }
-            
-            connection.close();
+            if (!pc.getConnection().getAutoCommit()) { rollbackTransaction(); }
         }
-        catch (SQLException e) { logSevere(e.getMessage() + " - Error: 204"); }
+        catch (SQLException e) { logSevere(e.getMessage() + " - Error: 377"); }
+        
+        pooledConnection.remove();
+        
+        pool.releaseConnection(pc);
         
     }// end of MySQLDatabase::disconnectFromDatabase
     //--------------------------------------------------------------------------
@@ -380,7 +591,7 @@ public class MySQLDatabase
         
         //attempt to drop the column
         try { 
-            PreparedStatement stmt = connection.prepareStatement(cmd);
+            PreparedStatement stmt = getConnection().prepareStatement(cmd);
             
             stmt.execute();
             
@@ -409,7 +620,7 @@ public class MySQLDatabase
         
         //attempt to drop the table
         try { 
-            PreparedStatement stmt = connection.prepareStatement(cmd);
+            PreparedStatement stmt = getConnection().prepareStatement(cmd);
             
             stmt.execute();
             
@@ -437,7 +648,7 @@ public class MySQLDatabase
         
         //attempt to truncate the table
         try { 
-            PreparedStatement stmt = connection.prepareStatement(cmd);
+            PreparedStatement stmt = getConnection().prepareStatement(cmd);
             
             stmt.execute();
             
@@ -451,6 +662,27 @@ public class MySQLDatabase
     }// end of MySQLDatabase::emptyTable
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::forEachEntry
+    //
+    // Hands all of the entries in pTable to pHandler one at a time, reading
+    // them from the server fetchSize rows at a time rather than all at once.
+    //
+    // Use this instead of getEntries() for tables that could be large.
+    //
+
+    public void forEachEntry(String pTable, EntryHandler pHandler)
+            throws DatabaseError
+    {
+        
+        try (EntryCursor cursor = openCursor(pTable)) {
+            DatabaseEntry e;
+            while ((e = cursor.next()) != null) { pHandler.handleEntry(e); }
+        }
+
+    }// end of MySQLDatabase::forEachEntry
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // MySQLDatabase::getColumnNames
     //
@@ -468,7 +700,7 @@ public class MySQLDatabase
         //attempt to check for the value
         try { 
             
-            PreparedStatement stmt = connection.prepareStatement(cmd);
+            PreparedStatement stmt = getConnection().prepareStatement(cmd);
             
             ResultSet set = stmt.executeQuery();
             
@@ -489,6 +721,61 @@ public class MySQLDatabase
     }// end of MySQLDatabase::getColumnNames
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::getColumnValues
+    //
+    // Gets and returns the value of pColumn for every entry in pTable, 
+    // reading only the skoonie key and pColumn instead of every column.
+    // key=skoonie key; value=value of pColumn
+    //
+    // The entries are in the order the database returns them.
+    //
+
+    public Map<String, String> getColumnValues(String pTable, String pColumn)
+            throws DatabaseError
+    {
+
+        String cmd = "SELECT `skoonie_key`, `" + pColumn.replace("`", "``") 
+                        + "` FROM `" + pTable + "`";
+        
+        Map<String, String> values = new LinkedHashMap<>();
+        
+        try { 
+            
+            PreparedStatement stmt = prepareCachedStatement(cmd, false);
+            ResultSet set = stmt.executeQuery();
+            
+            //extract the data from the ResultSet
+            while (set.next()) { values.put(set.getString(1), set.getString(2)); }
+        
+            //clean up environment
+            closeResultSet(set);
+            releaseCachedStatement(stmt);
+        
+        }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.QUERY_ERROR);
+        }
+        
+        return values;
+
+    }// end of MySQLDatabase::getColumnValues
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::getConnection
+    //
+    // Returns the connection borrowed by the calling thread.
+    //
+
+    private Connection getConnection()
+    {
+
+        return pooledConnection.get().getConnection();
+
+    }// end of MySQLDatabase::getConnection
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // MySQLDatabase::getEntry
     //
@@ -499,31 +786,23 @@ public class MySQLDatabase
             throws DatabaseError
     {
 
-        String cmd = "SELECT * FROM `" + pTable + "`"
-                            + " WHERE `skoonie_key`=" + pSkoonieKey;
+        String cmd = "SELECT * FROM `" + pTable + "` WHERE `skoonie_key`=?";
         
         DatabaseEntry entry = new DatabaseEntry();
         
         //attempt to get the entry
         try {
             
-            PreparedStatement stmt = connection.prepareStatement(cmd);
+            PreparedStatement stmt = prepareCachedStatement(cmd, false);
+            stmt.setString(1, pSkoonieKey);
             ResultSet set = stmt.executeQuery();
             
-            ResultSetMetaData d = set.getMetaData();
-            while (set.next()) { 
-                
-                //store all of the columns in the database entry
-                for (int i=1; i<d.getColumnCount(); i++) {
-                    String key = d.getColumnName(i);
-                    entry.storeColumn(key, set.getString(key));
-                }
-                
-            }
+            //store all of the columns in the database entry
+            if (set.next()) { entry = createEntry(set, createSchema(set)); }
             
             //clean up environment
             closeResultSet(set);
-            closePreparedStatement(stmt);
+            releaseCachedStatement(stmt);
             
         }
         catch (SQLException e) { 
@@ -552,26 +831,16 @@ public class MySQLDatabase
         //attempt to get all of the entries
         try {
             
-            PreparedStatement stmt = connection.prepareStatement(cmd);
+            PreparedStatement stmt = prepareCachedStatement(cmd, false);
             ResultSet set = stmt.executeQuery();
             
-            ResultSetMetaData d = set.getMetaData();
-            while (set.next()) { 
-                
-                //get the columns and values of the entry
-                DatabaseEntry entry = new DatabaseEntry();
-                for (int i=1; i<=d.getColumnCount(); i++) {
-                    String columnName = d.getColumnName(i);
-                    entry.storeColumn(columnName, set.getString(columnName));
-                }
-                
-                //store the entry
-                entries.add(entry);
-            }
+            //get the columns and values of each entry and store the entry
+            ColumnSchema schema = createSchema(set);
+            while (set.next()) { entries.add(createEntry(set, schema)); }
             
             //clean up environment
             closeResultSet(set);
-            closePreparedStatement(stmt);
+            releaseCachedStatement(stmt);
         
         }
         catch (SQLException e) { 
@@ -594,136 +863,543 @@ public class MySQLDatabase
             throws DatabaseError
     {
         
-        List<DatabaseEntry> entries = new ArrayList<>();
+        List<DatabaseEntry> entries = new ArrayList<>(pKeys.size());
+        
+        getEntries(pTable, pKeys, entries::add);
+        
+        return entries;
 
-        //start the sql command string
-        String cmd = "SELECT * FROM `" + pTable + "` WHERE ";
+    }// end of MySQLDatabase::getEntries
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::getEntries
+    //
+    // Gets all of the entries whose skoonie keys are those in pKeys from pTable
+    // and hands them to pHandler one at a time.
+    //
+    // The keys are split into chunks of at most the largest size in
+    // KEY_BUCKETS and each chunk is fetched with "IN (?,?,...)". A chunk that
+    // is smaller than a bucket size is padded up to it by repeating its last
+    // key, so only a few differently shaped statements are ever sent for each
+    // table and all of them stay in the statement cache.
+    //
+    // If parallelKeyFetches is greater than one, chunks are fetched at the 
+    // same time on other pooled connections. Entries are still handed to
+    // pHandler on the calling thread, chunk by chunk, in the order the chunks
+    // were made.
+    //
+    // Entries are handed over in the order the database returns them, not
+    // necessarily the order of pKeys.
+    //
+
+    public void getEntries(String pTable, List<String> pKeys, 
+                            EntryHandler pHandler)
+            throws DatabaseError
+    {
+        
+        int chunkSize = KEY_BUCKETS[KEY_BUCKETS.length-1];
         
-        //add the key condidtions to the command string
-        for (int i=0; i<pKeys.size(); i++) {
-            if (i>0) { cmd += " OR "; }
-            cmd += "`skoonie_key`=" + pKeys.get(i);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i=0; i<pKeys.size(); i+=chunkSize) {
+            chunks.add(pKeys.subList(i, Math.min(i+chunkSize, pKeys.size())));
         }
         
-        //attempt to retrieve the entries
-        try {
-            
-            PreparedStatement stmt = connection.prepareStatement(cmd);
-            ResultSet set = stmt.executeQuery();
-            
-            ResultSetMetaData d = set.getMetaData();
-            while (set.next()) { 
-                
-                //get the columns and values of the entry
-                DatabaseEntry entry = new DatabaseEntry();
-                for (int i=1; i<=d.getColumnCount(); i++) {
-                    String columnName = d.getColumnName(i);
-                    entry.storeColumn(columnName, set.getString(columnName));
-                }
-                
-                //store the entry
-                entries.add(entry);
+        //nothing to gain from other connections with just one chunk
+        if (parallelKeyFetches <= 1 || chunks.size() <= 1) {
+            for (List<String> chunk : chunks) {
+                getEntriesChunk(pTable, chunk, pHandler);
             }
-            
-            //clean up environment
-            closeResultSet(set);
-            closePreparedStatement(stmt);
-            
-        }
-        catch (SQLException e) { 
-            throw new DatabaseError(DatabaseError.QUERY_ERROR);
+            return;
         }
         
-        return entries;
+        getEntriesInParallel(pTable, chunks, pHandler);
 
     }// end of MySQLDatabase::getEntries
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // MySQLDatabase::getSkoonieKeys
+    // MySQLDatabase::getEntriesChunk
     //
-    // Gets and returns all of the skoonie keys of the entries in pTable.
+    // Gets all of the entries whose skoonie keys are those in pKeys from pTable
+    // with a single "IN (?,?,...)" query and hands them to pHandler. 
+    //
+    // pKeys must not be larger than the largest size in KEY_BUCKETS.
     //
 
-    public List<String> getSkoonieKeys(String pTable)
+    private void getEntriesChunk(String pTable, List<String> pKeys, 
+                                    EntryHandler pHandler)
             throws DatabaseError
     {
-
-        String cmd = "SELECT `skoonie_key` FROM `" + pTable + "`";
         
-        List<String> keys = new ArrayList<>();
+        if (pKeys.isEmpty()) { return; }
         
-        try { 
+        //find the smallest bucket the keys fit in
+        int bucket = KEY_BUCKETS[KEY_BUCKETS.length-1];
+        for (int b : KEY_BUCKETS) { if (b >= pKeys.size()) { bucket = b; break; } }
+
+        //create the sql command string
+        StringBuilder cmd = new StringBuilder("SELECT * FROM `");
+        cmd.append(pTable).append("` WHERE `skoonie_key` IN (");
+        for (int i=0; i<bucket; i++) { cmd.append(i==0 ? "?" : ",?"); }
+        cmd.append(")");
+        
+        //attempt to retrieve the entries
+        try {
+            
+            PreparedStatement stmt = prepareCachedStatement(cmd.toString(), 
+                                                                false);
+            
+            //set the keys -- repeat the last one to fill up the bucket
+            String last = pKeys.get(pKeys.size()-1);
+            for (int i=0; i<bucket; i++) {
+                stmt.setString(i+1, i<pKeys.size() ? pKeys.get(i) : last);
+            }
             
-            PreparedStatement stmt = connection.prepareStatement(cmd);
             ResultSet set = stmt.executeQuery();
             
-            //extract the data from the ResultSet
-            while (set.next()) { keys.add(set.getString("skoonie_key")); } 
-        
-            //clean up environment
-            closeResultSet(set);
-            closePreparedStatement(stmt);
-        
+            try {
+                ColumnSchema schema = createSchema(set);
+                while (set.next()) { 
+                    pHandler.handleEntry(createEntry(set, schema)); 
+                }
+            }
+            finally {
+                //clean up environment
+                closeResultSet(set);
+                releaseCachedStatement(stmt);
+            }
+            
         }
         catch (SQLException e) { 
             throw new DatabaseError(DatabaseError.QUERY_ERROR);
         }
-        
-        return keys;
 
-    }// end of MySQLDatabase::getSkoonieKeys
+    }// end of MySQLDatabase::getEntriesChunk
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
-    // MySQLDatabase::insertEntry
+    // MySQLDatabase::getEntriesInParallel
     //
-    // Inserts pEntry into pTable and returns the skoonie key assigned to that
-    // entry inside the database.
+    // Fetches pChunks from pTable at the same time, each on its own pooled
+    // connection, and hands the entries to pHandler on the calling thread in
+    // chunk order.
+    //
+    // If a chunk could not get a connection from the pool in time, it is
+    // fetched on the calling thread's connection instead.
     //
 
-    public int insertEntry(DatabaseEntry pEntry, String pTable)
+    private void getEntriesInParallel(String pTable, List<List<String>> pChunks,
+                                        EntryHandler pHandler)
             throws DatabaseError
     {
         
-        int skoonieKey = -1;
+        List<Future<List<DatabaseEntry>>> futures = new ArrayList<>();
         
-        Set<Map.Entry<String, String>> columns = pEntry.getColumns().entrySet();
+        for (List<String> chunk : pChunks) {
+            futures.add(getKeyFetchExecutor().submit(() -> {
+                
+                List<DatabaseEntry> entries = new ArrayList<>(chunk.size());
+                
+                try {
+                    connectToDatabase();
+                    getEntriesChunk(pTable, chunk, entries::add);
+                }
+                catch (DatabaseError e) {
+                    //let the calling thread fetch it itself
+                    if (e.getMessage().equals(DatabaseError.POOL_TIMEOUT_ERROR)) {
+                        return null;
+                    }
+                    throw e;
+                }
+                finally { disconnectFromDatabase(); }
+                
+                return entries;
+                
+            }));
+        }
         
-        String columnNames = "";
-        String columnValuePlaceholders = "";
-        int numberOfColumns = 0;
-        for (Map.Entry<String, String> column : columns) {
-            if (numberOfColumns>0) { 
-                //add a comma to separate this column name and from the last one
-                columnNames += ",";
-                //add a comma to separate this placeholder form the last one
-                columnValuePlaceholders += ",";
+        try {
+            
+            for (int i=0; i<futures.size(); i++) {
+
+                List<DatabaseEntry> entries;
+
+                try { entries = futures.get(i).get(); }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DatabaseError(DatabaseError.QUERY_ERROR);
+                }
+                catch (ExecutionException e) {
+                    if (e.getCause() instanceof DatabaseError) {
+                        throw (DatabaseError)e.getCause();
+                    }
+                    logStackTrace("Error: 777", (Exception)e.getCause());
+                    throw new DatabaseError(DatabaseError.QUERY_ERROR);
+                }
+
+                if (entries == null) {
+                    getEntriesChunk(pTable, pChunks.get(i), pHandler);
+                    continue;
+                }
+
+                for (DatabaseEntry e : entries) { pHandler.handleEntry(e); }
+
             }
             
-            //add the column name
-            columnNames += "`" + column.getKey() + "`";
+        }
+        //don't leave anything running if something went wrong
+        finally { for (Future<?> f : futures) { f.cancel(true); } }
+
+    }// end of MySQLDatabase::getEntriesInParallel
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::getEntriesAfter
+    //
+    // Gets and returns all of the entries in pTable whose skoonie keys are 
+    // greater than pSkoonieKey, in skoonie key order.
+    //
+    // Since skoonie keys are handed out in increasing order, this returns the
+    // entries added after the entry with pSkoonieKey.
+    //
+
+    public List<DatabaseEntry> getEntriesAfter(String pTable, 
+                                                String pSkoonieKey)
+            throws DatabaseError
+    {
+
+        String cmd = "SELECT * FROM `" + pTable + "` WHERE `skoonie_key`>? "
+                        + "ORDER BY `skoonie_key`";
+        
+        List<DatabaseEntry> entries = new ArrayList<>();
+        
+        try {
             
-            //add a value placeholder
-            columnValuePlaceholders += "?";
+            PreparedStatement stmt = prepareCachedStatement(cmd, false);
+            stmt.setString(1, pSkoonieKey);
+            ResultSet set = stmt.executeQuery();
             
-            //number of columns has increased by one
-            ++numberOfColumns;
+            //get the columns and values of each entry and store the entry
+            ColumnSchema schema = createSchema(set);
+            while (set.next()) { entries.add(createEntry(set, schema)); }
+            
+            //clean up environment
+            closeResultSet(set);
+            releaseCachedStatement(stmt);
+        
+        }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.QUERY_ERROR);
         }
         
-        //construct the sql command string
-        String cmd = "INSERT INTO `" + pTable + "` (" + columnNames 
-                        + ") VALUES (" + columnValuePlaceholders + ")";
+        return entries;
+
+    }// end of MySQLDatabase::getEntriesAfter
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::getKeyFetchExecutor
+    //
+    // Returns the executor used to fetch key chunks in parallel, creating it
+    // the first time it is needed.
+    //
+
+    private synchronized ExecutorService getKeyFetchExecutor()
+    {
+        
+        if (keyFetchExecutor == null) {
+            keyFetchExecutor = Executors.newFixedThreadPool(
+                Math.max(1, parallelKeyFetches),
+                (r) -> {
+                    Thread t = new Thread(r, "Database Key Fetcher");
+                    t.setDaemon(true);
+                    return t;
+                });
+        }
+        
+        return keyFetchExecutor;
+
+    }// end of MySQLDatabase::getKeyFetchExecutor
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::getMaxSkoonieKey
+    //
+    // Returns the largest skoonie key in pTable, or "0" if pTable is empty.
+    //
+
+    public String getMaxSkoonieKey(String pTable)
+            throws DatabaseError
+    {
+
+        String cmd = "SELECT MAX(`skoonie_key`) FROM `" + pTable + "`";
+        
+        String key = null;
+        
+        try { 
+            
+            PreparedStatement stmt = prepareCachedStatement(cmd, false);
+            ResultSet set = stmt.executeQuery();
+            
+            if (set.next()) { key = set.getString(1); } 
+        
+            //clean up environment
+            closeResultSet(set);
+            releaseCachedStatement(stmt);
+        
+        }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.QUERY_ERROR);
+        }
+        
+        return key!=null ? key : "0";
+
+    }// end of MySQLDatabase::getMaxSkoonieKey
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::getMaxSkoonieKeys
+    //
+    // Returns the largest skoonie key of the entries in pTable whose pColumn
+    // is each of pValues. Values that no entries have are left out.
+    // key=value; value=largest skoonie key
+    //
+    // Fast as long as pTable is indexed on pColumn and skoonie_key together.
+    //
+
+    public Map<String, String> getMaxSkoonieKeys(String pTable, String pColumn,
+                                                    Collection<String> pValues)
+            throws DatabaseError
+    {
+        
+        Map<String, String> keys = new TreeMap<>();
+        
+        if (pValues.isEmpty()) { return keys; }
+        
+        //sort the values so that the same values always give the same sql
+        List<String> values = new ArrayList<>(new TreeSet<>(pValues));
+        
+        StringBuilder cmd = new StringBuilder("SELECT `").append(pColumn)
+                                .append("`, MAX(`skoonie_key`) FROM `")
+                                .append(pTable).append("` WHERE `")
+                                .append(pColumn).append("` IN (");
+        for (int i=0; i<values.size(); i++) { 
+            cmd.append(i==0 ? "?" : ",?"); 
+        }
+        cmd.append(") GROUP BY `").append(pColumn).append("`");
         
         try {
             
-            PreparedStatement stmt = connection.prepareStatement(cmd, 
-                                            Statement.RETURN_GENERATED_KEYS);
+            PreparedStatement stmt = prepareCachedStatement(cmd.toString(), 
+                                                                false);
+            
+            for (int i=0; i<values.size(); i++) {
+                stmt.setString(i+1, values.get(i));
+            }
+            
+            ResultSet set = stmt.executeQuery();
+            
+            while (set.next()) { keys.put(set.getString(1), set.getString(2)); }
+            
+            //clean up environment
+            closeResultSet(set);
+            releaseCachedStatement(stmt);
+            
+        }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.QUERY_ERROR);
+        }
+        
+        return keys;
+
+    }// end of MySQLDatabase::getMaxSkoonieKeys
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::getPoolStatistics
+    //
+    // Returns a snapshot of the statistics of the connection pool.
+    //
+
+    public ConnectionPool.Statistics getPoolStatistics()
+    {
+
+        return pool.getStatistics();
+
+    }// end of MySQLDatabase::getPoolStatistics
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::getSkoonieKeys
+    //
+    // Gets and returns all of the skoonie keys of the entries in pTable.
+    //
+
+    public List<String> getSkoonieKeys(String pTable)
+            throws DatabaseError
+    {
+
+        String cmd = "SELECT `skoonie_key` FROM `" + pTable + "`";
+        
+        List<String> keys = new ArrayList<>();
+        
+        try { 
+            
+            PreparedStatement stmt = prepareCachedStatement(cmd, false);
+            ResultSet set = stmt.executeQuery();
+            
+            //extract the data from the ResultSet
+            while (set.next()) { keys.add(set.getString("skoonie_key")); } 
+        
+            //clean up environment
+            closeResultSet(set);
+            releaseCachedStatement(stmt);
+        
+        }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.QUERY_ERROR);
+        }
+        
+        return keys;
+
+    }// end of MySQLDatabase::getSkoonieKeys
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::insertBatch
+    //
+    // Inserts pEntries, which must all have pColumns, into pTable as a single
+    // JDBC batch. The skoonie keys assigned to the entries are added to pKeys
+    // in order.
+    //
+
+    private void insertBatch(List<DatabaseEntry> pEntries, Set<String> pColumns,
+                                String pTable, List<Integer> pKeys)
+            throws DatabaseError
+    {
+        
+        String cmd = createInsertCommand(pTable, pColumns);
+        
+        try {
+            
+            PreparedStatement stmt = prepareCachedStatement(cmd, true);
+            
+            for (DatabaseEntry entry : pEntries) {
+                
+                //for every column, put the value into the proper placeholder
+                int place = 1;
+                for (String column : pColumns) {
+                    stmt.setString(place++, entry.getValue(column));
+                }
+                
+                stmt.addBatch();
+                
+            }
+            
+            //send the whole batch
+            stmt.executeBatch();
+            
+            //get the skoonie keys given to the entries
+            ResultSet set = stmt.getGeneratedKeys();
+            int count = 0;
+            while (set.next()) { pKeys.add(set.getInt(1)); ++count; }
+            
+            //clean up environment
+            closeResultSet(set);
+            releaseCachedStatement(stmt);
+            
+            //every entry has to have a key or the caller can't match them up
+            if (count != pEntries.size()) {
+                logSevere("Expected " + pEntries.size() + " generated keys, got "
+                            + count + " - Error: 839");
+                throw new DatabaseError(DatabaseError.QUERY_ERROR);
+            }
+            
+        }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.QUERY_ERROR);
+        }
+                
+    }// end of MySQLDatabase::insertBatch
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::insertEntries
+    //
+    // Inserts all of pEntries into pTable and returns the skoonie keys assigned
+    // to them inside the database, in the same order as pEntries.
+    //
+    // Entries are sent to the database in batches rather than one at a time.
+    // Entries in a row that have the same columns share a batch, which the
+    // driver sends as a single multi-row insert, so a list of entries that all
+    // have the same columns is inserted in one round trip.
+    //
+    // This does not start a transaction itself. To make sure that either all
+    // of the entries are inserted or none of them are, call beginTransaction()
+    // first.
+    //
+
+    public List<Integer> insertEntries(List<DatabaseEntry> pEntries, 
+                                            String pTable)
+            throws DatabaseError
+    {
+        
+        List<Integer> keys = new ArrayList<>(pEntries.size());
+        
+        int start = 0;
+        while (start < pEntries.size()) {
+            
+            //the columns are sorted so that the same set of columns always
+            //produces the same sql and the statement can be reused
+            Set<String> columns = new TreeSet<>(
+                                        pEntries.get(start).getColumns().keySet());
+            
+            //find the end of the entries that have the same columns
+            int end = start + 1;
+            while (end < pEntries.size() && columns.equals(
+                                    pEntries.get(end).getColumns().keySet())) {
+                ++end;
+            }
+            
+            insertBatch(pEntries.subList(start, end), columns, pTable, keys);
+            
+            start = end;
+            
+        }
+        
+        return keys;
+                
+    }// end of MySQLDatabase::insertEntries
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::insertEntry
+    //
+    // Inserts pEntry into pTable and returns the skoonie key assigned to that
+    // entry inside the database.
+    //
+
+    public int insertEntry(DatabaseEntry pEntry, String pTable)
+            throws DatabaseError
+    {
+        
+        int skoonieKey = -1;
+        
+        //the columns are sorted so that the same set of columns always
+        //produces the same sql and the statement can be reused from the cache
+        TreeMap<String, String> columns = new TreeMap<>(pEntry.getColumns());
+        
+        String cmd = createInsertCommand(pTable, columns.keySet());
+        
+        try {
+            
+            PreparedStatement stmt = prepareCachedStatement(cmd, true);
             
             //for every column, put the value into the proper placeholder
             int place = 1;
-            for (Map.Entry<String, String> column : columns) {
-                stmt.setString(place++, column.getValue());
+            for (String value : columns.values()) {
+                stmt.setString(place++, value);
             }
             
             //execute the statement
@@ -735,7 +1411,7 @@ public class MySQLDatabase
             
             //clean up environment
             closeResultSet(set);
-            closePreparedStatement(stmt);
+            releaseCachedStatement(stmt);
             
         }
         catch (SQLException e) { 
@@ -747,6 +1423,27 @@ public class MySQLDatabase
     }// end of MySQLDatabase::insertEntry
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::isInTransaction
+    //
+    // Returns true if the calling thread has a transaction open.
+    //
+
+    public boolean isInTransaction() throws DatabaseError
+    {
+        
+        PooledConnection pc = pooledConnection.get();
+        
+        if (pc == null) { return false; }
+        
+        try { return !pc.getConnection().getAutoCommit(); }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.TRANSACTION_ERROR);
+        }
+
+    }// end of MySQLDatabase::isInTransaction
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // MySQLDatabase::logSevere
     //
@@ -776,6 +1473,73 @@ public class MySQLDatabase
     }// end of MySQLDatabase::logStackTrace
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::openCursor
+    //
+    // Opens and returns a cursor over all of the entries in pTable. Rows are
+    // read from the server fetchSize at a time as the cursor is stepped
+    // through. See EntryCursor.
+    //
+    // The cursor must be closed before the connection is handed back to the
+    // pool.
+    //
+    // The statement is not taken from the cache, since the same sql could be
+    // sent again while the cursor is still open.
+    //
+
+    public EntryCursor openCursor(String pTable)
+            throws DatabaseError
+    {
+        
+        String cmd = "SELECT * FROM `" + pTable + "`";
+        
+        PreparedStatement stmt = null;
+        
+        try {
+            
+            stmt = getConnection().prepareStatement(cmd, 
+                                                ResultSet.TYPE_FORWARD_ONLY,
+                                                ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            
+            return new EntryCursor(stmt, stmt.executeQuery());
+            
+        }
+        catch (SQLException e) {
+            closePreparedStatement(stmt);
+            throw new DatabaseError(DatabaseError.QUERY_ERROR);
+        }
+
+    }// end of MySQLDatabase::openCursor
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::prepareCachedStatement
+    //
+    // Returns a PreparedStatement for pCmd from the statement cache of the
+    // borrowed connection, preparing it if it has not been prepared on that
+    // connection yet. If pReturnGeneratedKeys is true, the statement will
+    // return the keys generated by the database.
+    //
+    // Statements returned by this function must be handed to
+    // releaseCachedStatement() instead of being closed.
+    //
+    // Only use this for sql that will be sent again with the same shape; sql
+    // with values concatenated into it would just push useful statements out
+    // of the cache.
+    //
+
+    private PreparedStatement prepareCachedStatement(String pCmd, 
+                                                    boolean pReturnGeneratedKeys)
+            throws SQLException
+    {
+
+        return pooledConnection.get().getStatementCache()
+                                .prepareStatement(pCmd, pReturnGeneratedKeys);
+
+    }// end of MySQLDatabase::prepareCachedStatement
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // MySQLDatabase::registerJDBCDriver
     //
@@ -794,6 +1558,141 @@ public class MySQLDatabase
     }// end of MySQLDatabase::registerJDBCDriver
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::releaseCachedStatement
+    //
+    // Releases pStatement, which was retrieved with prepareCachedStatement(),
+    // so that it can be used again. The statement is only closed if the cache
+    // is turned off.
+    //
+
+    private void releaseCachedStatement(PreparedStatement pStatement)
+    {
+
+        if (!pooledConnection.get().getStatementCache().isCaching()) {
+            closePreparedStatement(pStatement);
+            return;
+        }
+        
+        //let go of the values bound to the statement
+        try { pStatement.clearParameters(); }
+        catch (SQLException e) { logSevere(e.getMessage() + " - Error: 848"); }
+
+    }// end of MySQLDatabase::releaseCachedStatement
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::releaseSavepoint
+    //
+    // Removes pSavepoint from the current transaction. Everything done since
+    // the savepoint was set stays part of the transaction.
+    //
+
+    public void releaseSavepoint(Savepoint pSavepoint) throws DatabaseError
+    {
+        
+        try { getConnection().releaseSavepoint(pSavepoint); }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.TRANSACTION_ERROR);
+        }
+
+    }// end of MySQLDatabase::releaseSavepoint
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::rollbackToSavepoint
+    //
+    // Throws away everything sent to the database since pSavepoint was set.
+    // The transaction stays open.
+    //
+
+    public void rollbackToSavepoint(Savepoint pSavepoint) throws DatabaseError
+    {
+        
+        try { getConnection().rollback(pSavepoint); }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.TRANSACTION_ERROR);
+        }
+
+    }// end of MySQLDatabase::rollbackToSavepoint
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::rollbackTransaction
+    //
+    // Throws away everything sent to the database since beginTransaction()
+    // was called and ends the transaction.
+    //
+    // Errors are logged rather than thrown since this is usually called while
+    // already handling another error.
+    //
+
+    public void rollbackTransaction()
+    {
+        
+        try { 
+            Connection c = getConnection();
+            c.rollback();
+            c.setAutoCommit(true);
+        }
+        catch (SQLException e) { logSevere(e.getMessage() + " - Error: 926"); }
+
+    }// end of MySQLDatabase::rollbackTransaction
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::setSavepoint
+    //
+    // Sets a savepoint named pName in the current transaction and returns it.
+    // rollbackToSavepoint() can then be used to undo everything done after
+    // this point without giving up the rest of the transaction.
+    //
+    // Must only be called while a transaction is open.
+    //
+
+    public Savepoint setSavepoint(String pName) throws DatabaseError
+    {
+        
+        try { return getConnection().setSavepoint(pName); }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.TRANSACTION_ERROR);
+        }
+
+    }// end of MySQLDatabase::setSavepoint
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // MySQLDatabase::tableExists
+    //
+    // Returns true if pTable exists in the database; false if not.
+    //
+
+    public boolean tableExists(String pTable)
+            throws DatabaseError
+    {
+        
+        boolean exists;
+        
+        try {
+            
+            ResultSet set = getConnection().getMetaData()
+                                    .getTables(null, null, pTable, null);
+            
+            exists = set.next();
+            
+            //clean up environment
+            closeResultSet(set);
+            
+        }
+        catch (SQLException e) { 
+            throw new DatabaseError(DatabaseError.QUERY_ERROR);
+        }
+        
+        return exists;
+
+    }// end of MySQLDatabase::tableExists
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // MySQLDatabase::updateEntry
     //
@@ -807,8 +1706,11 @@ public class MySQLDatabase
         //start the command string
         String cmd = "UPDATE `" + pTable + "` SET ";
         
-        //get the columns of pEntry and put them in a set
-        Set<Map.Entry<String, String>> columns = pEntry.getColumns().entrySet();
+        //get the columns of pEntry and put them in a set -- they are sorted so
+        //that the same set of columns always produces the same sql and the
+        //statement can be reused from the cache
+        Set<Map.Entry<String, String>> columns 
+                            = new TreeMap<>(pEntry.getColumns()).entrySet();
         
         int numberOfColumns = 0;
         for (Map.Entry<String, String> column : columns) {
@@ -823,11 +1725,11 @@ public class MySQLDatabase
         }
         
         //finish up the command string
-        cmd += "WHERE `skoonie_key`=?";
+        cmd += " WHERE `skoonie_key`=?";
         
         try {
             
-            PreparedStatement stmt = connection.prepareStatement(cmd);
+            PreparedStatement stmt = prepareCachedStatement(cmd, false);
             
             //for every column, put the value into the proper placeholder
             int place = 1;
@@ -842,7 +1744,7 @@ public class MySQLDatabase
             stmt.execute();
             
             //clean up environment
-            closePreparedStatement(stmt);
+            releaseCachedStatement(stmt);
         }
         catch (SQLException e) {
             throw new DatabaseError(DatabaseError.UPDATE_ENTRY_ERROR);
@@ -0,0 +1,139 @@
+/*******************************************************************************
+* Title: PooledConnection.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class wraps a physical JDBC connection that is owned by a
+* ConnectionPool. It keeps track of the bookkeeping the pool needs to decide
+* when the connection should be validated, evicted, or reported as leaked.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model.database;
+
+//------------------------------------------------------------------------------
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class PooledConnection
+//
+
+class PooledConnection
+{
+
+    private final Connection connection;
+    public Connection getConnection() { return connection; }
+    
+    //prepared statements that have been prepared on this connection
+    private final StatementCache statementCache;
+    public StatementCache getStatementCache() { return statementCache; }
+
+    //time (in milliseconds) that the connection was last returned to the pool
+    private long lastUsed;
+    public long getLastUsed() { return lastUsed; }
+    public void setLastUsed(long pTime) { lastUsed = pTime; }
+
+    //time (in milliseconds) that the connection was last checked with the
+    //server -- zero forces a check the next time it is borrowed
+    private long lastValidated;
+    public long getLastValidated() { return lastValidated; }
+    public void setLastValidated(long pTime) { lastValidated = pTime; }
+
+    //time (in milliseconds) that the connection was borrowed from the pool;
+    //read by the housekeeping thread while the borrower holds it
+    private volatile long borrowedAt;
+    public long getBorrowedAt() { return borrowedAt; }
+
+    //stack trace of the code that borrowed the connection; only recorded when
+    //leak detection is turned on
+    private volatile Throwable borrowTrace;
+    public Throwable getBorrowTrace() { return borrowTrace; }
+
+    //true if the connection has already been reported as a leak for the
+    //current borrow
+    private volatile boolean leakReported;
+    public boolean getLeakReported() { return leakReported; }
+    public void setLeakReported(boolean pBool) { leakReported = pBool; }
+
+    //--------------------------------------------------------------------------
+    // PooledConnection::PooledConnection (constructor)
+    //
+
+    public PooledConnection(Connection pConnection, int pStatementCacheSize,
+                                AtomicLong pCacheHits, AtomicLong pCacheMisses)
+    {
+
+        connection = pConnection;
+        
+        statementCache = new StatementCache(pConnection, pStatementCacheSize,
+                                                pCacheHits, pCacheMisses);
+
+        long now = System.currentTimeMillis();
+        lastUsed = now;
+        lastValidated = now;
+
+    }//end of PooledConnection::PooledConnection (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // PooledConnection::close
+    //
+    // Closes the cached statements and the physical connection. Errors are
+    // ignored since the connection is being thrown away anyway.
+    //
+
+    public void close()
+    {
+
+        statementCache.clear();
+        
+        try { connection.close(); } catch (SQLException e) { }
+
+    }//end of PooledConnection::close
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // PooledConnection::isClosed
+    //
+    // Returns true if the physical connection has been closed. This is a local
+    // check and does not talk to the server.
+    //
+
+    public boolean isClosed()
+    {
+
+        try { return connection.isClosed(); }
+        catch (SQLException e) { return true; }
+
+    }//end of PooledConnection::isClosed
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // PooledConnection::markBorrowed
+    //
+    // Records that the connection has just been borrowed. pTrace, which may be
+    // null, is the stack of the code that borrowed the connection, so that a
+    // leak can be traced back to it.
+    //
+
+    public void markBorrowed(Throwable pTrace)
+    {
+
+        borrowedAt = System.currentTimeMillis();
+        borrowTrace = pTrace;
+        leakReported = false;
+
+    }//end of PooledConnection::markBorrowed
+    //--------------------------------------------------------------------------
+
+}//end of class PooledConnection
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
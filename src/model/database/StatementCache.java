@@ -0,0 +1,175 @@
+/*******************************************************************************
+* Title: StatementCache.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class is a least recently used cache of the PreparedStatements that
+* have been prepared on a single connection.
+*
+* Statements are keyed by their SQL, which MySQLDatabase builds in a normalized
+* form (columns always in the same order), so repeated inserts and updates into
+* the same table with the same columns reuse the statement that was already
+* prepared on the server instead of preparing it again.
+*
+* Statements handed out by the cache belong to the cache and must NOT be closed
+* by the caller. When a statement falls out of the cache it is closed here.
+*
+* Each cache is only ever used by the one thread that has borrowed its
+* connection, so it is not synchronized. The hit and miss counters are shared
+* by all of the caches in a pool.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package model.database;
+
+//------------------------------------------------------------------------------
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class StatementCache
+//
+
+class StatementCache
+{
+
+    private final Connection connection;
+
+    private final int maxSize;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    //access ordered so that the least recently used statement is first
+    private final Map<String, PreparedStatement> statements;
+
+    //--------------------------------------------------------------------------
+    // StatementCache::StatementCache (constructor)
+    //
+
+    public StatementCache(Connection pConnection, int pMaxSize,
+                            AtomicLong pHits, AtomicLong pMisses)
+    {
+
+        connection = pConnection;
+        maxSize = pMaxSize;
+        hits = pHits;
+        misses = pMisses;
+
+        statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(
+                                Map.Entry<String, PreparedStatement> pEldest)
+            {
+                if (size() <= maxSize) { return false; }
+                closeStatement(pEldest.getValue());
+                return true;
+            }
+        };
+
+    }//end of StatementCache::StatementCache (constructor)
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // StatementCache::clear
+    //
+    // Closes and removes all of the statements in the cache.
+    //
+
+    public void clear()
+    {
+
+        for (PreparedStatement s : statements.values()) { closeStatement(s); }
+
+        statements.clear();
+
+    }//end of StatementCache::clear
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // StatementCache::closeStatement
+    //
+    // Closes pStatement, ignoring any errors.
+    //
+
+    private void closeStatement(PreparedStatement pStatement)
+    {
+
+        try { pStatement.close(); } catch (SQLException e) { }
+
+    }//end of StatementCache::closeStatement
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // StatementCache::prepareStatement
+    //
+    // Returns the cached statement for pSql, preparing and caching it if it is
+    // not already cached. If pReturnGeneratedKeys is true, the statement will
+    // return the keys generated by the database.
+    //
+    // If the cache size is zero, a new statement is returned every time and
+    // the caller is responsible for closing it.
+    //
+
+    public PreparedStatement prepareStatement(String pSql,
+                                                boolean pReturnGeneratedKeys)
+            throws SQLException
+    {
+
+        //the generated keys option is part of the statement, so it has to be
+        //part of the key as well
+        String key = pReturnGeneratedKeys ? "K:" + pSql : "N:" + pSql;
+
+        PreparedStatement stmt = statements.get(key);
+
+        //reuse the statement if it was cached and is still good
+        if (stmt != null && !stmt.isClosed()) {
+            hits.incrementAndGet();
+            return stmt;
+        }
+
+        misses.incrementAndGet();
+
+        if (pReturnGeneratedKeys) {
+            stmt = connection.prepareStatement(pSql,
+                                                Statement.RETURN_GENERATED_KEYS);
+        }
+        else { stmt = connection.prepareStatement(pSql); }
+
+        if (maxSize > 0) { statements.put(key, stmt); }
+
+        return stmt;
+
+    }//end of StatementCache::prepareStatement
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // StatementCache::isCaching
+    //
+    // Returns true if statements returned by this cache are kept in the cache;
+    // false if the caller has to close them.
+    //
+
+    public boolean isCaching()
+    {
+
+        return maxSize > 0;
+
+    }//end of StatementCache::isCaching
+    //--------------------------------------------------------------------------
+
+}//end of class StatementCache
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
@@ -0,0 +1,147 @@
+/*******************************************************************************
+* Title: ColumnSchema.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class maps column names to positions so that rows can store just their
+* values in an array instead of each carrying its own map of names to values.
+* Every row read from the same result set shares one schema, so each column
+* name is only stored once no matter how many rows there are.
+*
+* Columns can only be added, never removed or moved, so a position handed out
+* for a name is good for as long as the schema lives.
+*
+* Schemas may be shared between threads. Lookups are not synchronized; they
+* read an immutable snapshot that is replaced whenever a column is added.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package shared;
+
+//------------------------------------------------------------------------------
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class ColumnSchema
+//
+
+public class ColumnSchema implements Serializable
+{
+    
+    private static final long serialVersionUID = 1L;
+    
+    //key=column name; value=position of the column
+    private volatile Map<String, Integer> indices = new HashMap<>();
+    
+    private volatile String[] names = new String[0];
+    
+    //--------------------------------------------------------------------------
+    // ColumnSchema::ColumnSchema (constructor)
+    //
+
+    public ColumnSchema()
+    {
+        
+    }//end of ColumnSchema::ColumnSchema (constructor)
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ColumnSchema::ColumnSchema (constructor)
+    //
+    // Creates a schema containing pNames, in order.
+    //
+
+    public ColumnSchema(String[] pNames)
+    {
+        
+        for (String n : pNames) { addColumn(n); }
+        
+    }//end of ColumnSchema::ColumnSchema (constructor)
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ColumnSchema::addColumn
+    //
+    // Adds pName to the end of the schema if it is not already in it. Returns
+    // the position of pName.
+    //
+
+    public synchronized int addColumn(String pName)
+    {
+        
+        Integer index = indices.get(pName);
+        if (index != null) { return index; }
+        
+        int i = names.length;
+        
+        //copy, then publish, so that readers never see a half-added column
+        Map<String, Integer> newIndices = new HashMap<>(indices);
+        newIndices.put(pName, i);
+        
+        String[] newNames = Arrays.copyOf(names, i+1);
+        newNames[i] = pName;
+        
+        names = newNames;
+        indices = newIndices;
+        
+        return i;
+
+    }//end of ColumnSchema::addColumn
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ColumnSchema::getColumnCount
+    //
+    // Returns the number of columns in the schema.
+    //
+
+    public int getColumnCount()
+    {
+        
+        return names.length;
+
+    }//end of ColumnSchema::getColumnCount
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ColumnSchema::getColumnName
+    //
+    // Returns the name of the column at pIndex.
+    //
+
+    public String getColumnName(int pIndex)
+    {
+        
+        return names[pIndex];
+
+    }//end of ColumnSchema::getColumnName
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // ColumnSchema::indexOf
+    //
+    // Returns the position of pName, or -1 if pName is not in the schema.
+    //
+
+    public int indexOf(String pName)
+    {
+        
+        Integer index = indices.get(pName);
+        
+        return index!=null ? index : -1;
+
+    }//end of ColumnSchema::indexOf
+    //--------------------------------------------------------------------------
+    
+}//end of class ColumnSchema
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
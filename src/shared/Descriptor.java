@@ -21,6 +21,7 @@ package shared;
 
 //------------------------------------------------------------------------------
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -28,9 +29,11 @@ import java.util.Map;
 // class Descriptor
 //
 
-public class Descriptor 
+public class Descriptor implements Serializable
 {
     
+    private static final long serialVersionUID = 1L;
+    
     private String skoonieKey = "";
     public String getSkoonieKey() { return skoonieKey; }
     public void setSkoonieKey(String pKey) { skoonieKey = pKey; }
@@ -58,11 +61,13 @@ public class Descriptor
     
     //this map will only contain values if usesPresetValues is true
     //key=skoonie key of entry; value=display name for that entry
-    private final Map<String, String> presetValues = new HashMap<>();
-    public void addPresetValue(String pKey, String pDisplayName) 
-        { presetValues.put(pKey, pDisplayName); }
+    private Map<String, String> presetValues = new HashMap<>();
     public Map<String, String> getPresetValues() { return presetValues; }
     
+    //true if presetValues is shared with other descriptors and has to be
+    //copied before it can be changed
+    private boolean presetValuesShared = false;
+    
     //--------------------------------------------------------------------------
     // Descriptor::Descriptor (constructor)
     //
@@ -73,6 +78,43 @@ public class Descriptor
     }//end of Descriptor::Descriptor (constructor)
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // Descriptor::addPresetValue
+    //
+    // Adds a preset value with skoonie key pKey and display name pDisplayName.
+    //
+
+    public void addPresetValue(String pKey, String pDisplayName)
+    {
+        
+        //don't change the map out from under the other descriptors using it
+        if (presetValuesShared) {
+            presetValues = new HashMap<>(presetValues);
+            presetValuesShared = false;
+        }
+        
+        presetValues.put(pKey, pDisplayName);
+
+    }//end of Descriptor::addPresetValue
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // Descriptor::setPresetValues
+    //
+    // Uses pValues as the preset values. pValues is shared, not copied, so 
+    // that many descriptors with the same preset values can use one map; it
+    // is copied if a value is added to this descriptor later.
+    //
+
+    public void setPresetValues(Map<String, String> pValues)
+    {
+        
+        presetValues = pValues;
+        presetValuesShared = true;
+
+    }//end of Descriptor::setPresetValues
+    //--------------------------------------------------------------------------
+    
 }//end of class Descriptor
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
@@ -0,0 +1,120 @@
+/*******************************************************************************
+* Title: DescriptorIndex.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class indexes a list of descriptors by skoonie key and by name so that
+* a descriptor can be found without searching through the whole list.
+*
+* An index should be built once every time a list of descriptors is loaded
+* and then used for every lookup into that list. It does not change after it
+* is built, so it can be shared between threads.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package shared;
+
+//------------------------------------------------------------------------------
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class DescriptorIndex
+//
+
+public class DescriptorIndex 
+{
+    
+    private final List<Descriptor> descriptors;
+    public List<Descriptor> getDescriptors() { return descriptors; }
+    
+    //key=descriptor skoonie key; value=descriptor
+    private final Map<String, Descriptor> byKey = new HashMap<>();
+    
+    //key=descriptor name; value=descriptor
+    private final Map<String, Descriptor> byName = new HashMap<>();
+    
+    //--------------------------------------------------------------------------
+    // DescriptorIndex::DescriptorIndex (constructor)
+    //
+    // Builds an index of pDescriptors. Every object in pDescriptors must be a
+    // Descriptor.
+    //
+    // If more than one descriptor has the same key or name, the one that comes
+    // first in pDescriptors is the one that is found.
+    //
+
+    public DescriptorIndex(List<?> pDescriptors)
+    {
+        
+        List<Descriptor> list = new ArrayList<>(pDescriptors.size());
+        
+        for (Object o : pDescriptors) {
+            Descriptor d = (Descriptor)o;
+            list.add(d);
+            byKey.putIfAbsent(d.getSkoonieKey(), d);
+            byName.putIfAbsent(d.getName(), d);
+        }
+        
+        descriptors = Collections.unmodifiableList(list);
+        
+    }//end of DescriptorIndex::DescriptorIndex (constructor)
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DescriptorIndex::getByKey
+    //
+    // Returns the descriptor with skoonie key pKey, or null if there isn't one.
+    //
+
+    public Descriptor getByKey(String pKey)
+    {
+        
+        return byKey.get(pKey);
+
+    }//end of DescriptorIndex::getByKey
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DescriptorIndex::getByName
+    //
+    // Returns the descriptor named pName, or null if there isn't one.
+    //
+
+    public Descriptor getByName(String pName)
+    {
+        
+        return byName.get(pName);
+
+    }//end of DescriptorIndex::getByName
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DescriptorIndex::getKeyByName
+    //
+    // Returns the skoonie key of the descriptor named pName, or null if there
+    // isn't one.
+    //
+
+    public String getKeyByName(String pName)
+    {
+        
+        Descriptor d = byName.get(pName);
+        
+        return d!=null ? d.getSkoonieKey() : null;
+
+    }//end of DescriptorIndex::getKeyByName
+    //--------------------------------------------------------------------------
+    
+}//end of class DescriptorIndex
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
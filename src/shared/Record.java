@@ -6,6 +6,10 @@
 * Purpose:
 *
 * This class stores information about a record.
+* 
+* The values are kept in an array laid out by a ColumnSchema of descriptor 
+* skoonie keys. Records loaded together share the same schema, so the keys are
+* only stored once for all of them rather than once per record.
 *
 */
 
@@ -15,8 +19,8 @@ package shared;
 
 //------------------------------------------------------------------------------
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.Serializable;
+import java.util.Arrays;
 
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
@@ -25,31 +29,119 @@ import java.util.Map;
 // This class is used to wrap information about a record.
 //
 
-public class Record 
+public class Record implements Serializable
 {
     
+    private static final long serialVersionUID = 1L;
+    
     private String skoonieKey;
     public String getSkoonieKey() { return skoonieKey; }
     public void setSkoonieKey(String pKey) { skoonieKey = pKey; }
     
-    //key=descriptor skoonie key; value=value
-    private final Map<String, String> values = new HashMap<>();
-    //pKey=descriptor skoonie key
-    public String getValue(String pKey) { return values.get(pKey); }
-    //pKey=descriptor skoonie key; pValue=value
-    public void addValue(String pKey, String pValue) {values.put(pKey, pValue);}
+    //columns are descriptor skoonie keys
+    private final ColumnSchema schema;
+    public ColumnSchema getSchema() { return schema; }
+    
+    //values laid out by schema
+    private String[] values;
     
     //--------------------------------------------------------------------------
     // Records::Records (constructor)
     //
+    // Creates an empty record with its own schema.
+    //
 
     public Record()
     {
         
+        schema = new ColumnSchema();
+        values = new String[0];
+        
     }//end of Records::Records (constructor)
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // Records::Records (constructor)
+    //
+    // Creates an empty record that shares pSchema with other records.
+    //
+
+    public Record(ColumnSchema pSchema)
+    {
+        
+        schema = pSchema;
+        values = new String[pSchema.getColumnCount()];
+        
+    }//end of Records::Records (constructor)
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // Records::addValue
+    //
+    // Stores pValue for the descriptor with skoonie key pKey, replacing any
+    // value already stored for it.
+    //
+
+    public void addValue(String pKey, String pValue)
+    {
+        
+        setValueAt(schema.addColumn(pKey), pValue);
+        
+    }//end of Records::addValue
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // Records::getValue
+    //
+    // Returns the value for the descriptor with skoonie key pKey, or null if
+    // the record doesn't have one.
+    //
+
+    public String getValue(String pKey)
+    {
+        
+        return getValueAt(schema.indexOf(pKey));
+        
+    }//end of Records::getValue
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // Records::getValueAt
+    //
+    // Returns the value at pIndex in the schema, or null if the record doesn't
+    // have one.
+    //
+
+    public String getValueAt(int pIndex)
+    {
+        
+        if (pIndex < 0 || pIndex >= values.length) { return null; }
+        
+        return values[pIndex];
+        
+    }//end of Records::getValueAt
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // Records::setValueAt
+    //
+    // Stores pValue at pIndex in the schema.
+    //
+
+    public void setValueAt(int pIndex, String pValue)
+    {
+        
+        //the schema may have grown since this record was made
+        if (pIndex >= values.length) { 
+            values = Arrays.copyOf(values, 
+                            Math.max(pIndex+1, schema.getColumnCount()));
+        }
+        
+        values[pIndex] = pValue;
+        
+    }//end of Records::setValueAt
+    //--------------------------------------------------------------------------
+    
 }//end of class Records
 //------------------------------------------------------------------------------
 //------------------------------------------------------------------------------
-//------------------------------------------------------------------------------
\ No newline at end of file
@@ -9,12 +9,8 @@
 *
 * This class is the MainView in a Model-View-Controller architecture. 
 * 
-* It receives commands from the MainController. When it receives commands, it
-* can choose to perform actions or pass it on to the MainDisplay command handler
-* or do both.
-* 
-* It sends commands to the MainController via the MainController's
-* CommandHandler passed in upon construction.
+* It sets up the display. The display and the windows it opens subscribe to
+* the commands they handle themselves, so commands aren't passed through here.
 * 
 * It knows about the Model, and the Command Handler for the Controller, but not
 * the Controller itself.
@@ -27,8 +23,6 @@ package view;
 
 //------------------------------------------------------------------------------
 
-import command.Command;
-import command.CommandHandler;
 import view.classic.DisplayClassic;
 
 //------------------------------------------------------------------------------
@@ -36,10 +30,10 @@ import view.classic.DisplayClassic;
 // class MainView
 //
 
-public class MainView implements CommandHandler
+public class MainView
 {
     
-    private CommandHandler downStream;
+    private DisplayClassic display;
     private final String displayMode;
     private final String displayModeClassic = "Classic";
 
@@ -69,25 +63,6 @@ public class MainView implements CommandHandler
     }// end of MainView::init
     //--------------------------------------------------------------------------
     
-    //--------------------------------------------------------------------------
-    // MainView::handleCommand
-    //
-    // Performs different actions depending on pCommand.
-    //
-    // Command will always be sent down the chain to display after handling has
-    // been done here.
-    //
-
-    @Override
-    public void handleCommand(Command pCommand)
-    {
-        
-        //hand the command down stream
-        downStream.handleCommand(pCommand);
-
-    }//end of MainView::commandPerformed
-    //--------------------------------------------------------------------------
-    
     //--------------------------------------------------------------------------
     // MainView::setupDisplay
     //
@@ -99,8 +74,8 @@ public class MainView implements CommandHandler
         
         switch (displayMode) {  
             case displayModeClassic:
-                downStream = new DisplayClassic();
-                ((DisplayClassic)downStream).init();
+                display = new DisplayClassic();
+                display.init();
                 break;
         }
 
@@ -9,6 +9,9 @@
 * program. It provides base functions and actions that most of the JDialogs in
 * the program require.
 *
+* Dialogs that handle commands subscribe to the messages they handle with
+* subscribe() and are unsubscribed when they are disposed of.
+*
 */
 
 //------------------------------------------------------------------------------
@@ -17,6 +20,8 @@ package view.classic;
 
 //------------------------------------------------------------------------------
 
+import command.Command;
+import command.CommandHandler;
 import java.awt.Component;
 import static java.awt.Component.LEFT_ALIGNMENT;
 import java.awt.Dialog;
@@ -47,6 +52,9 @@ public abstract class AltusJDialog extends JDialog
     private JPanel mainPanel;
     protected final void addToMainPanel(Component pC) { mainPanel.add(pC); }
     
+    //handler subscribed with subscribe(); null if there isn't one
+    private CommandHandler subscriber;
+    
     //--------------------------------------------------------------------------
     // AltusJDialog::AltusJDialog (constructor)
     //
@@ -118,6 +126,24 @@ public abstract class AltusJDialog extends JDialog
     }// end of AltusJDialog::createButton
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // AltusJDialog::dispose
+    //
+    // Unsubscribes the handler subscribed with subscribe(), if there is one,
+    // and disposes of the dialog.
+    //
+
+    @Override
+    public void dispose()
+    {
+
+        if (subscriber != null) { Command.unregisterHandler(subscriber); }
+        
+        super.dispose();
+
+    }// end of AltusJDialog::dispose
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // AltusJDialog::setMainPanelLayout
     //
@@ -146,6 +172,25 @@ public abstract class AltusJDialog extends JDialog
 
     }// end of AltusJDialog::setVisible
     //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // AltusJDialog::subscribe
+    //
+    // Subscribes pHandler to commands with pMessages until the dialog is
+    // disposed of. Must be called before anything the dialog is waiting for
+    // is asked for.
+    //
+
+    protected final void subscribe(CommandHandler pHandler, 
+                                    String... pMessages)
+    {
+
+        subscriber = pHandler;
+        
+        for (String m : pMessages) { Command.registerHandler(m, pHandler); }
+
+    }// end of AltusJDialog::subscribe
+    //--------------------------------------------------------------------------
 
 }//end of class AltusJDialog
 //------------------------------------------------------------------------------
@@ -19,10 +19,13 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Font;
 import java.awt.Toolkit;
+import hscomponents.table.hsRowStripes;
+import java.util.Arrays;
 import javax.swing.BorderFactory;
 import javax.swing.JComponent;
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
+import javax.swing.border.Border;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableModel;
@@ -38,6 +41,15 @@ public class CustomTable extends JTable
     private final Color oddRowColor   = Color.decode("#E6E6E6");
     private final Color evenRowColor  = Color.WHITE;
     
+    //row colors worked out ahead of time so that painting a cell only has to
+    //look its color up
+    private final hsRowStripes stripes 
+                = new hsRowStripes(Arrays.asList(evenRowColor, oddRowColor));
+    
+    //every cell gets the same border, so only one is ever made
+    private static final Border cellBorder 
+                                = BorderFactory.createEmptyBorder(0, 10, 0, 10);
+    
     //--------------------------------------------------------------------------
     // CustomTable::CustomTable (constructor)
     //
@@ -105,10 +117,7 @@ public class CustomTable extends JTable
         
         JComponent comp = (JComponent)super.prepareRenderer(pRen, pRow, pCol); 
         
-        //give the cell no border
-        comp.setBorder(null);
-        
-        comp.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 10));
+        comp.setBorder(cellBorder);
         
         //if component is in the selected row, return the
         //component without making any more changes
@@ -132,11 +141,7 @@ public class CustomTable extends JTable
     private void setBackgroundColorOfRow(JComponent comp, int pRow)
     {
 
-        Color c;
-        if (pRow%2 == 0) { c = evenRowColor; }
-        else { c = oddRowColor; }
-
-        comp.setBackground(c);
+        comp.setBackground(stripes.getColor(pRow));
 
     }//end of CustomTable::setBackgroundColorOfRow
     //--------------------------------------------------------------------------
@@ -61,6 +61,9 @@ public class CustomerSettingsWindow extends AltusJDialog
     public void init() 
     {
         
+        //handle the commands meant for this window until it is closed
+        subscribe(this, "display customer descriptors");
+        
         //perform a command to get the records
         (new Command("get customer descriptors")).perform();
         
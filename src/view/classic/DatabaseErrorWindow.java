@@ -17,6 +17,7 @@ package view.classic;
 //------------------------------------------------------------------------------
 
 import command.Command;
+import java.awt.Dialog;
 import java.awt.Font;
 import java.awt.Window;
 import java.awt.event.ActionListener;
@@ -191,6 +192,8 @@ public class DatabaseErrorWindow extends AltusJDialog
         setPrimaryMessage(primary);
         setSecondaryMessage(secondary);
         
+        setModality(Dialog.ModalityType.APPLICATION_MODAL);
+        
         //pack, set the width of the warning label, center, and make visible
         pack();
         setVisible(); 
@@ -198,6 +201,56 @@ public class DatabaseErrorWindow extends AltusJDialog
     }// end of DatabaseErrorWindow::displayNoDatabaseConnection
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // DatabaseErrorWindow::displayWorkingOffline
+    //
+    // Display a message to the user saying that a connection to the database
+    // can't be established, but that changes are being saved to be sent
+    // later, pWaiting of which are waiting now.
+    //
+    // The user can keep working while the message is shown.
+    //
+    
+    public void displayWorkingOffline(int pWaiting) 
+    {
+        
+        String primary = "A connection to the database cannot be established.";
+        String secondary = "You can keep working. Changes are being saved on "
+                            + "this computer and will be sent <br>to the "
+                            + "database when the connection is restored."
+                            + "<br><br>Changes waiting: " + pWaiting;
+        
+        setPrimaryMessage(primary);
+        setSecondaryMessage(secondary);
+        
+        setModality(Dialog.ModalityType.MODELESS);
+        
+        pack();
+        
+        //don't move the window if the user already moved it out of the way
+        if (!isVisible()) { setVisible(); }
+        
+    }// end of DatabaseErrorWindow::displayWorkingOffline
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // DatabaseErrorWindow::setModality
+    //
+    // Sets the modality type of the window to pType. The window is hidden
+    // first if the type changes, since it can't be changed while shown.
+    //
+    
+    private void setModality(Dialog.ModalityType pType) 
+    {
+        
+        if (getModalityType() == pType) { return; }
+        
+        setVisible(false);
+        setModalityType(pType);
+        
+    }// end of DatabaseErrorWindow::setModality
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // DatabaseErrorWindow::setPrimaryMessage
     //
@@ -51,8 +51,6 @@ public class DescriptorsWindow extends AltusJDialog implements CommandHandler
     private DefaultTableModel model;
     
     private final Map<Integer, Descriptor> descriptors = new HashMap<>();
-    
-    private CommandHandler downStream;
 
     //--------------------------------------------------------------------------
     // DescriptorsWindow::DescriptorsWindow (constructor)
@@ -85,6 +83,10 @@ public class DescriptorsWindow extends AltusJDialog implements CommandHandler
     public void init() 
     {
         
+        //handle the commands meant for this window until it is closed
+        subscribe(this, "display descriptors", "display add window",
+                    "edit selected descriptor", "delete selected descriptor");
+        
         //set up the table model
         setupTableModel();
         
@@ -164,8 +166,6 @@ public class DescriptorsWindow extends AltusJDialog implements CommandHandler
                 break;
         }
         
-        if (downStream != null) { downStream.handleCommand(pCommand); }
-        
     }//end of DescriptorsWindow::handleCommand
     //--------------------------------------------------------------------------
     
@@ -238,12 +238,13 @@ public class DescriptorsWindow extends AltusJDialog implements CommandHandler
         //return if there was a problem when getting the selected descriptor
         if ((desc=getSelectedDescriptor())==null) { return; }
         
-        downStream = new EditDescriptorWindow(editWindowTitle, this, 
+        EditDescriptorWindow window = new EditDescriptorWindow(
+                                                editWindowTitle, this, 
                                                 getActionListener(), type, 
                                                 Integer.parseInt(
                                                     desc.getOrderNumber()),
                                                 desc);
-        ((EditDescriptorWindow)downStream).init();
+        window.init();
         
     }// end of DescriptorsWindow::editSelectedRecord
     //--------------------------------------------------------------------------
@@ -296,10 +297,11 @@ public class DescriptorsWindow extends AltusJDialog implements CommandHandler
     private void displayAddWindow() 
     {
         
-        downStream = new EditDescriptorWindow(addWindowTitle, this, 
+        EditDescriptorWindow window = new EditDescriptorWindow(
+                                                addWindowTitle, this, 
                                                 getActionListener(), type,
                                                 model.getRowCount());
-        ((EditDescriptorWindow)downStream).init();
+        window.init();
         
     }// end of DescriptorsWindow::displayAddWindow
     //--------------------------------------------------------------------------
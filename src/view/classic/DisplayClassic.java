@@ -51,8 +51,6 @@ public class DisplayClassic extends JFrame implements CommandHandler,
     
     private final JPanel mainPanel;
     
-    private CommandHandler downStream;
-    
     private DatabaseErrorWindow dbErrorWindow;
 
     //--------------------------------------------------------------------------
@@ -91,6 +89,19 @@ public class DisplayClassic extends JFrame implements CommandHandler,
         //set up the database error window
         dbErrorWindow = new DatabaseErrorWindow(this, this);
         dbErrorWindow.init();
+        
+        //handle only the commands meant for this -- the windows opened from
+        //here subscribe to the commands meant for them
+        for (String m : new String[] { Command.DB_CONNECTION_ERROR,
+                                        Command.DB_CONNECTION_FIXED,
+                                        "display customers window",
+                                        "display racks window",
+                                        "display customer descriptors window",
+                                        "display receive window",
+                                        "display move window",
+                                        "display transfer window" }) {
+            Command.registerHandler(m, this);
+        }
 
     }// end of DisplayClassic::init
     //--------------------------------------------------------------------------
@@ -108,7 +119,13 @@ public class DisplayClassic extends JFrame implements CommandHandler,
         switch (pCommand.getMessage()) {
             
             case Command.DB_CONNECTION_ERROR:
-                dbErrorWindow.displayNoDatabaseConnection();
+                //work can go on if the model is saving it for later
+                Integer waiting 
+                        = (Integer)pCommand.get(Command.JOURNALED_COMMANDS);
+                if (waiting != null) { 
+                    dbErrorWindow.displayWorkingOffline(waiting); 
+                }
+                else { dbErrorWindow.displayNoDatabaseConnection(); }
                 break;
             
             case Command.DB_CONNECTION_FIXED:
@@ -147,9 +164,6 @@ public class DisplayClassic extends JFrame implements CommandHandler,
                 
         }
         
-        //pass the command downstream
-        if (downStream != null) { downStream.handleCommand(pCommand); }
-        
     }//end of DisplayClassic::handleCommand
     //--------------------------------------------------------------------------
     
@@ -358,7 +372,7 @@ public class DisplayClassic extends JFrame implements CommandHandler,
     //--------------------------------------------------------------------------
     // DisplayClassic::displayCustomersFrame
     //
-    // Displays the Customers window and sets it to the downstream
+    // Displays the Customers window.
     //
     
     private void displayCustomersFrame()
@@ -369,12 +383,10 @@ public class DisplayClassic extends JFrame implements CommandHandler,
                                 Command.ADD_CUSTOMER, Command.DELETE_CUSTOMER,
                                 Command.EDIT_CUSTOMER, Command.GET_CUSTOMERS, 
                                 Command.CUSTOMER, Command.CUSTOMERS, 
-                                Command.CUSTOMER_DESCRIPTORS);
-        downStream = new RecordsWindow("Customers", this, this, info);
-        ((RecordsWindow)downStream).init();
-        
-        //this will not be called until after the customers window closes
-        downStream = null;
+                                Command.CUSTOMER_DESCRIPTORS,
+                                Command.CUSTOMERS_CHANGED);
+        RecordsWindow window = new RecordsWindow("Customers", this, this, info);
+        window.init();
 
     }//end of DisplayClassic::displayCustomersFrame
     //--------------------------------------------------------------------------
@@ -382,19 +394,17 @@ public class DisplayClassic extends JFrame implements CommandHandler,
     //--------------------------------------------------------------------------
     // DisplayClassic::displayCustomerDescriptorsFrame
     //
-    // Displays the Customer Descriptors window and sets it to the downstream.
+    // Displays the Customer Descriptors window.
     //
     
     private void displayCustomerDescriptorsFrame()
     {
         
-        downStream = new DescriptorsWindow("Customer Descriptors", this, this,
+        DescriptorsWindow window = new DescriptorsWindow(
+                                            "Customer Descriptors", this, this,
                                             "customer", "Add Descriptor", 
                                             "Edit Descriptor");
-        ((DescriptorsWindow)downStream).init();
-        
-        //this will not be called until after the customers window closes
-        downStream = null;
+        window.init();
 
     }//end of DisplayClassic::displayCustomerDescriptorsFrame
     //--------------------------------------------------------------------------
@@ -419,7 +429,7 @@ public class DisplayClassic extends JFrame implements CommandHandler,
     //--------------------------------------------------------------------------
     // DisplayClassic::displayMoveMaterialWindow
     //
-    // Displays the Move Material window and sets it to the downstream.
+    // Displays the Move Material window.
     //
     
     private void displayMoveMaterialWindow()
@@ -430,11 +440,8 @@ public class DisplayClassic extends JFrame implements CommandHandler,
         Record batch = new Record();
         batch.setSkoonieKey("1");
         
-        downStream = new MoveMaterialWindow(this, this, batch);
-        ((MoveMaterialWindow)downStream).init();
-        
-        //this will not be called until after the window closes
-        downStream = null;
+        MoveMaterialWindow window = new MoveMaterialWindow(this, this, batch);
+        window.init();
 
     }//end of DisplayClassic::displayMoveMaterialWindow
     //--------------------------------------------------------------------------
@@ -442,7 +449,7 @@ public class DisplayClassic extends JFrame implements CommandHandler,
     //--------------------------------------------------------------------------
     // DisplayClassic::displayRacksWindow
     //
-    // Displays the Racks window and sets it to the downstream.
+    // Displays the Racks window.
     //
     
     private void displayRacksWindow()
@@ -453,12 +460,10 @@ public class DisplayClassic extends JFrame implements CommandHandler,
                                 Command.ADD_RACK, Command.DELETE_RACK,
                                 Command.EDIT_RACK, Command.GET_RACKS, 
                                 Command.RACK, Command.RACKS, 
-                                Command.RACK_DESCRIPTORS);
-        downStream = new RecordsWindow("Racks", this, this, info);
-        ((RecordsWindow)downStream).init();
-        
-        //this will not be called until after the customers window closes
-        downStream = null;
+                                Command.RACK_DESCRIPTORS,
+                                Command.RACKS_CHANGED);
+        RecordsWindow window = new RecordsWindow("Racks", this, this, info);
+        window.init();
 
     }//end of DisplayClassic::displayRacksWindow
     //--------------------------------------------------------------------------
@@ -466,17 +471,14 @@ public class DisplayClassic extends JFrame implements CommandHandler,
     //--------------------------------------------------------------------------
     // DisplayClassic::displayRecieveMaterialWindow
     //
-    // Displays the Receive Material window and sets it to the downstream.
+    // Displays the Receive Material window.
     //
     
     private void displayRecieveMaterialWindow()
     {
         
-        downStream = new ReceiveMaterialWindow(this, this);
-        ((ReceiveMaterialWindow)downStream).init();
-        
-        //this will not be called until after the window closes
-        downStream = null;
+        ReceiveMaterialWindow window = new ReceiveMaterialWindow(this, this);
+        window.init();
 
     }//end of DisplayClassic::displayRecieveMaterialWindow
     //--------------------------------------------------------------------------
@@ -484,7 +486,7 @@ public class DisplayClassic extends JFrame implements CommandHandler,
     //--------------------------------------------------------------------------
     // DisplayClassic::displayTransferMaterialWindow
     //
-    // Displays the Transfer Material window and sets it to the downstream.
+    // Displays the Transfer Material window.
     //
     
     private void displayTransferMaterialWindow()
@@ -495,11 +497,9 @@ public class DisplayClassic extends JFrame implements CommandHandler,
         Record batch = new Record();
         batch.setSkoonieKey("1");
         
-        downStream = new TransferMaterialWindow(this, this, batch);
-        ((TransferMaterialWindow)downStream).init();
-        
-        //this will not be called until after the window closes
-        downStream = null;
+        TransferMaterialWindow window 
+                                = new TransferMaterialWindow(this, this, batch);
+        window.init();
 
     }//end of DisplayClassic::displayTransferMaterialWindow
     //--------------------------------------------------------------------------
@@ -126,6 +126,10 @@ public class EditDescriptorWindow extends AltusJDialog implements CommandHandler
     public void init() 
     {
         
+        //handle the commands meant for this window until it is closed
+        subscribe(this, "EditDescriptorWindow -- cancel",
+                    "EditDescriptorWindow -- confirm");
+        
         //set the order number of the descriptor
         descriptor.setOrderNumber(Integer.toString(orderNumber));
         
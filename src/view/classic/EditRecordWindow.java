@@ -104,6 +104,10 @@ public class EditRecordWindow extends AltusJDialog implements CommandHandler
     public void init() 
     {
         
+        //handle the commands meant for this window until it is closed
+        subscribe(this, "EditRecordWindow -- cancel",
+                    "EditRecordWindow -- confirm");
+        
         super.init();
         
         //now that the GUI has been created and packed, we can set the maximum
@@ -209,11 +213,12 @@ public class EditRecordWindow extends AltusJDialog implements CommandHandler
         //put the descriptors into the command
         command.put(info.getDescriptorsCommandMessage(), descriptors);
         
-        command.perform();
-        
-        //tell the records window that he needs to show he's loading
+        //tell the records window that he needs to show he's loading -- done
+        //first so that he hears about it before whatever answers the command
         recordsWindow.setLoading(true);
         
+        command.perform();
+        
         //dispose of this the window
         dispose();
         
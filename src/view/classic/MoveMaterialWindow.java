@@ -93,6 +93,11 @@ public class MoveMaterialWindow extends AltusJDialog implements CommandHandler
     public void init() 
     {
         
+        //handle the commands meant for this window until it is closed
+        subscribe(this, Command.MOVEMENT_DESCRIPTORS,
+                    "MoveMaterialWindow -- cancel",
+                    "MoveMaterialWindow -- confirm");
+        
         super.init();
         
         //get the loading image from file
@@ -456,6 +461,11 @@ public class MoveMaterialWindow extends AltusJDialog implements CommandHandler
         
         //set up the movements table using the descriptors
         descriptors = (List<?>)pCommand.get(Command.MOVEMENT_DESCRIPTORS);
+        
+        //the descriptors are sent again if they changed after the saved ones
+        //were shown, so start over
+        inputs.clear();
+        inputsPanel.removeAll();
 
         createInputs(descriptors);
         
@@ -98,6 +98,11 @@ public class ReceiveMaterialWindow extends AltusJDialog implements CommandHandle
     public void init() 
     {
         
+        //handle the commands meant for this window until it is closed
+        subscribe(this, Command.RECIEVEMENT_DESCRIPTORS,
+                    "ReceiveMaterialWindow -- cancel",
+                    "ReceiveMaterialWindow -- confirm");
+        
         super.init();
         
         //get the loading image from file
@@ -473,6 +478,11 @@ public class ReceiveMaterialWindow extends AltusJDialog implements CommandHandle
         
         //set up the receivements table using the descriptors
         descriptors = (List<?>)pCommand.get(Command.RECIEVEMENT_DESCRIPTORS);
+        
+        //the descriptors are sent again if they changed after the saved ones
+        //were shown, so start over
+        inputs.clear();
+        inputsPanel.removeAll();
 
         createInputs(descriptors);
         
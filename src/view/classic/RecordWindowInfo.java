@@ -58,6 +58,10 @@ public class RecordWindowInfo
     private final String descriptorsCommandMessage;
     public String getDescriptorsCommandMessage() { return descriptorsCommandMessage; }
     
+    //CUSTOMERS_CHANGED, RACKS_CHANGED, etc.
+    private final String changedCommandMessage;
+    public String getChangedCommandMessage() { return changedCommandMessage; }
+    
     //--------------------------------------------------------------------------
     // RecordWindowInfo::RecordWindowInfo (constructor)
     //
@@ -72,7 +76,8 @@ public class RecordWindowInfo
                             String pGetCommandMessage, 
                             String pTypeSingluarCommandMessage,
                             String pTypePluralCommandMessage,
-                            String pDescriptorsCommandMessage)
+                            String pDescriptorsCommandMessage,
+                            String pChangedCommandMessage)
     {
         
         addRecordWindowTitle = pAddRecordWindowTitle;
@@ -86,6 +91,7 @@ public class RecordWindowInfo
         typeSingluarCommandMessage = pTypeSingluarCommandMessage;
         typePluralCommandMessage = pTypePluralCommandMessage;
         descriptorsCommandMessage = pDescriptorsCommandMessage;
+        changedCommandMessage = pChangedCommandMessage;
 
     }//end of RecordWindowInfo::RecordWindowInfo (constructor)
     //--------------------------------------------------------------------------
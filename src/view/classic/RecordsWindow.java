@@ -18,6 +18,9 @@ package view.classic;
 
 import command.Command;
 import command.CommandHandler;
+import hscomponents.table.hsPagedTableModel;
+import hscomponents.table.hsRowSource;
+import hscomponents.table.hsTableSearch;
 import static java.awt.Component.LEFT_ALIGNMENT;
 import static java.awt.Component.TOP_ALIGNMENT;
 import java.awt.Graphics;
@@ -26,14 +29,19 @@ import java.awt.Toolkit;
 import java.awt.Window;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
-import javax.swing.table.DefaultTableModel;
-import shared.Descriptor;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import shared.DescriptorIndex;
 import shared.Record;
 import toolkit.Tools;
 
@@ -48,17 +56,39 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
     private final RecordWindowInfo info;
     
     private CustomTable table;
-    private DefaultTableModel model;
+    private hsPagedTableModel model;
     
-    private List<?> records;
-    private List<?> descriptors;
+    private List<Record> records;
+    
+    //key=skoonie key; value=index in records
+    private Map<String, Integer> rowsByKey;
+    
+    //the records shown, by index in records, in the order shown; null when
+    //all of the records are shown in their original order
+    private int[] view;
+    
+    private final hsTableSearch search = new hsTableSearch((rows) -> {
+        view = rows;
+        model.refresh();
+    });
+    
+    //the text in the search box
+    private String query = "";
     
-    private CommandHandler downStream;
+    //true if the records have changed since they were handed to the search;
+    //they are only handed over while there is something to search for
+    private boolean searchStale = false;
+    
+    private List<?> descriptors;
+    private DescriptorIndex descriptorIndex;
     
     private final List<JButton> buttons = new ArrayList<>();
     
     private Image loadingImage;
     private boolean loading = false;
+    
+    //milliseconds to wait for the records
+    private static final long REPLY_TIMEOUT = 30000;
 
     //--------------------------------------------------------------------------
     // RecordsWindow::RecordsWindow (constructor)
@@ -85,6 +115,12 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
     public void init() 
     {
         
+        //handle the commands meant for this window until it is closed
+        subscribe(this, info.getTypePluralCommandMessage(), 
+                    info.getChangedCommandMessage(), 
+                    Command.DB_CONNECTION_ERROR, "display add record window",
+                    "edit selected record", "delete selected record");
+        
         //get the loading image from file
         String path = "src/view/images/loading.gif";
         loadingImage = Toolkit.getDefaultToolkit().createImage(path);
@@ -92,9 +128,18 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
         //set up the table model
         setupTableModel();
         
-        //perform a command to get the records
-        (new Command(info.getGetCommandMessage())).perform();
+        //ask for the records -- the reply comes straight back to this window
+        //rather than being sent to everybody
         setLoading(true);
+        (new Command(info.getGetCommandMessage()))
+            .performAsync(Command.class, REPLY_TIMEOUT)
+            .whenComplete((reply, error) -> SwingUtilities.invokeLater(() -> {
+                if (reply != null && reply.getMessage()
+                                .equals(info.getTypePluralCommandMessage())) {
+                    displayRecords(reply);
+                }
+                else { setLoading(false); }
+            }));
         
         super.init();
         
@@ -121,8 +166,18 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
         table = new CustomTable(model);
         table.init();
         
+        //the search box goes above the table
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+        panel.setAlignmentX(LEFT_ALIGNMENT);
+        panel.setAlignmentY(TOP_ALIGNMENT);
+        panel.add(createSearchField());
+        panel.add(Tools.createVerticalSpacer(5));
+        
         //put the table inside of a scroll pane
-        setUpScrollPane();
+        setUpScrollPane(panel);
+        
+        addToMainPanel(panel);
         
         //horizontal spacer
         addToMainPanel(Tools.createHorizontalSpacer(10));
@@ -148,6 +203,15 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
         if (msg.equals(info.getTypePluralCommandMessage())) {
             displayRecords(pCommand);
         }
+        else if (msg.equals(info.getChangedCommandMessage())) {
+            applyChanges(pCommand);
+        }
+        //a change made while the database can't be reached is either saved
+        //for later, in which case it shows up as a change once it's done, or
+        //lost -- either way, nothing is coming now
+        else if (msg.equals(Command.DB_CONNECTION_ERROR)) {
+            setLoading(false);
+        }
 
         else if (msg.equals("display add record window")) {
             displayAddRecordWindow();
@@ -159,11 +223,103 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
             deleteSelectedRecord();
         }
         
-        if (downStream != null) { downStream.handleCommand(pCommand); }
-        
     }//end of RecordsWindow::handleCommand
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // RecordsWindow::applyChanges
+    //
+    // Applies the changed and deleted records in pCommand to the records
+    // already displayed, without reloading the rest of them. Changed records
+    // that are already displayed are updated in place; new ones are added to
+    // the end of the table. A deleted record is replaced by the last one, so
+    // that no other rows have to move.
+    //
+    // This is how the results of adding, editing, and deleting records from
+    // this window are displayed, as well as changes found in the database, so
+    // the window is no longer loading afterwards. If pCommand has no
+    // descriptors, the ones already stored are kept.
+    //
+    // Changes are ignored until the records have been loaded the first time,
+    // since the records being loaded are newer anyway.
+    //
+    
+    private void applyChanges(Command pCommand) 
+    {
+        
+        if (records == null) { return; }
+        
+        String recordsKey = info.getTypePluralCommandMessage();
+        List<?> changed = (List<?>)pCommand.get(recordsKey);
+        List<?> deleted = (List<?>)pCommand.get(Command.DELETED_KEYS);
+        
+        //the descriptors may have changed as well
+        List<?> descs = (List<?>)pCommand.get(info.getDescriptorsCommandMessage());
+        if (descs != null) {
+            descriptors = descs;
+            descriptorIndex = new DescriptorIndex(descriptors);
+        }
+        
+        int firstAdded = records.size();
+        
+        for (Object o : changed) {
+            
+            Record r = (Record)o;
+            
+            Integer row = rowsByKey.get(r.getSkoonieKey());
+            
+            if (row == null) {
+                rowsByKey.put(r.getSkoonieKey(), records.size());
+                records.add(r);
+            }
+            else {
+                records.set(row, r);
+                if (view == null) { model.rowsChanged(row, row); }
+            }
+            
+        }
+        
+        //new records are all at the end, so one event covers them
+        if (records.size() > firstAdded && view == null) {
+            model.rowsInserted(firstAdded, records.size()-1);
+        }
+        
+        boolean removed = false;
+        
+        for (Object k : deleted) {
+            
+            Integer row = rowsByKey.remove((String)k);
+            if (row == null) { continue; }
+            removed = true;
+            
+            //move the last record into the deleted one's place
+            int last = records.size()-1;
+            Record moved = records.remove(last);
+            if (view == null) { model.rowsDeleted(last, last); }
+            
+            if (row == last) { continue; }
+            
+            records.set(row, moved);
+            rowsByKey.put(moved.getSkoonieKey(), row);
+            if (view == null) { model.rowsChanged(row, row); }
+            
+        }
+        
+        //rows in the view may no longer exist after a delete, so all of the
+        //records are shown until the search is done again
+        if (view != null) {
+            if (removed) { view = null; }
+            model.refresh();
+        }
+        
+        if (query.isEmpty()) { searchStale = true; }
+        else { searchRecords(); }
+        
+        setLoading(false);
+        
+    }// end of RecordsWindow::applyChanges
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // RecordsWindow::createButtonsPanel
     //
@@ -214,6 +370,39 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
     }// end of RecordsWindow::createButtonsPanel
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // RecordsWindow::createSearchField
+    //
+    // Creates and returns the search box. Every change to the text searches
+    // the records again, in the background.
+    //
+    
+    private JTextField createSearchField() 
+    {
+        
+        JTextField field = new JTextField();
+        field.setAlignmentX(LEFT_ALIGNMENT);
+        field.setToolTipText("Search the " + info.getRecordNamePlural() + ".");
+        Tools.setSizes(field, 400, 25);
+        
+        //sort by name
+        search.setSortColumn(1);
+        
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { 
+                searchFor(field.getText());
+            }
+            @Override public void removeUpdate(DocumentEvent e) { 
+                searchFor(field.getText());
+            }
+            @Override public void changedUpdate(DocumentEvent e) { }
+        });
+        
+        return field;
+        
+    }// end of RecordsWindow::createSearchField
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // RecordsWindow::editSelectedRecord
     //
@@ -229,10 +418,11 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
         //return if there was a problem when getting the selected record
         if ((rec=getSelectedRecord())==null) { return; }
         
-        downStream = new EditRecordWindow(info.getEditRecordWindowTitle(), this, 
-                                            getActionListener(), this, info,
-                                            rec, descriptors);
-        ((EditRecordWindow)downStream).init();
+        EditRecordWindow window = new EditRecordWindow(
+                                            info.getEditRecordWindowTitle(), 
+                                            this, getActionListener(), this, 
+                                            info, rec, descriptors);
+        window.init();
         
     }// end of RecordsWindow::editSelectedRecord
     //--------------------------------------------------------------------------
@@ -253,7 +443,7 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
         
         String recordName = info.getRecordNameSingular();
         
-        String val = rec.getValue(getDescriptorKeyByName(descriptors, "Name"));
+        String val = rec.getValue(getDescriptorKeyByName("Name"));
         String msg = "Are you sure you want to delete " + recordName + " \"" 
                         + val
                         + "\"? This cannot be undone.";
@@ -289,10 +479,11 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
     private void displayAddRecordWindow() 
     {
         
-        downStream = new EditRecordWindow(info.getAddRecordWindowTitle(), this, 
-                                            getActionListener(), this, info,
-                                            new Record(), descriptors);
-        ((EditRecordWindow)downStream).init();
+        EditRecordWindow window = new EditRecordWindow(
+                                            info.getAddRecordWindowTitle(), 
+                                            this, getActionListener(), this, 
+                                            info, new Record(), descriptors);
+        window.init();
         
     }// end of RecordsWindow::displayAddRecordWindow
     //--------------------------------------------------------------------------
@@ -306,31 +497,31 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
     private void displayRecords(Command pCommand) 
     {
         
-        //store the records
-        records = (List<?>)pCommand.get(info.getTypePluralCommandMessage());
+        //store the records -- copied since changes are applied to the list
+        List<?> recs = (List<?>)pCommand.get(info.getTypePluralCommandMessage());
+        records = new ArrayList<>(recs.size());
+        rowsByKey = new HashMap<>(recs.size()*4/3 + 1);
+        for (Object o : recs) {
+            Record r = (Record)o;
+            rowsByKey.put(r.getSkoonieKey(), records.size());
+            records.add(r);
+        }
         
         //store the descriptors
         descriptors =(List<?>)pCommand.get(info.getDescriptorsCommandMessage());
+        descriptorIndex = new DescriptorIndex(descriptors);
         
-        //remove all of the data already in the model
-        int rowCount = model.getRowCount();
-        //Remove rows one by one from the end of the table
-        for (int i=rowCount-1; i>=0; i--) { model.removeRow(i); }
-        
-        //we are about to add the rows, so tell it we're done loading
+        //we are about to show the rows, so tell it we're done loading
         setLoading(false);
         
-        //everything sent here should ALWAYS have Id and Name
-        String idKey = getDescriptorKeyByName(descriptors, "Id");
-        String nameKey = getDescriptorKeyByName(descriptors, "Name");
+        //replaces all of the rows with one event -- the rows themselves are
+        //only made when the table paints them
+        view = null;
+        model.refresh();
         
-        //add the ids and names of the records to the table
-        for (Object o : records) {
-            Record r = (Record)o;
-            String id = r.getValue(idKey);
-            String name = r.getValue(nameKey);
-            model.addRow( new String[] { id, name });
-        }
+        //show only the records that match the search, if there is one
+        if (query.isEmpty()) { searchStale = true; }
+        else { searchRecords(); }
         
     }// end of RecordsWindow::displayRecords
     //--------------------------------------------------------------------------
@@ -338,26 +529,46 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
     //--------------------------------------------------------------------------
     // RecordsWindow::getDescriptorKeyByName
     //
-    // Returns the skoonie key of the descriptor in pDescriptor who has the same
-    // name as pName. Returns null if none of the descriptors have pName.
+    // Returns the skoonie key of the descriptor who has the same name as pName.
+    // Returns null if none of the descriptors have pName.
     //
     // NOTE:    If there are multiple descriptors that match the constraint, 
     //          then the skoonie key of the one found first is returned.
     //
 
-    public String getDescriptorKeyByName(List<?> pDescriptors, String pName)
+    public String getDescriptorKeyByName(String pName)
     {
 
-        String key = null;
+        return descriptorIndex.getKeyByName(pName);
+     
+    }//end of RecordsWindow::getDescriptorKeyByName
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // RecordsWindow::getRows
+    //
+    // Returns the Id and Name of up to pCount records starting at pFirstRow,
+    // for the table model.
+    //
 
-        for (Object o : pDescriptors) {
-            Descriptor d = (Descriptor)o;
-            if(d.getName().equals(pName)) { key = d.getSkoonieKey(); }
+    private List<Object[]> getRows(int pFirstRow, int pCount)
+    {
+        
+        List<Object[]> rows = new ArrayList<>();
+        
+        //everything sent here should ALWAYS have Id and Name
+        String idKey = getDescriptorKeyByName("Id");
+        String nameKey = getDescriptorKeyByName("Name");
+        
+        int last = Math.min(getVisibleCount(), pFirstRow + pCount);
+        for (int i=pFirstRow; i<last; i++) {
+            Record r = records.get(view == null ? i : view[i]);
+            rows.add(new Object[] { r.getValue(idKey), r.getValue(nameKey) });
         }
+        
+        return rows;
 
-        return key;
-     
-    }//end of RecordsWindow::getDescriptorKeyByName
+    }//end of RecordsWindow::getRows
     //--------------------------------------------------------------------------
     
     //--------------------------------------------------------------------------
@@ -375,13 +586,84 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
         if (row==-1) {
             JOptionPane.showMessageDialog(this, "Nothing is selected.");
         }
-        else { rec = (Record)records.get(row); }
+        else { rec = records.get(view == null ? row : view[row]); }
         
         return rec;
         
     }// end of RecordsWindow::getSelectedRecord
     //--------------------------------------------------------------------------
     
+    //--------------------------------------------------------------------------
+    // RecordsWindow::getVisibleCount
+    //
+    // Returns the number of records shown in the table.
+    //
+
+    private int getVisibleCount()
+    {
+        
+        if (records == null) { return 0; }
+        
+        return view == null ? records.size() : view.length;
+
+    }//end of RecordsWindow::getVisibleCount
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // RecordsWindow::searchFor
+    //
+    // Shows only the records that match pQuery, or all of them if pQuery is
+    // empty. The records are handed to the search first if they have changed
+    // since it last had them.
+    //
+
+    private void searchFor(String pQuery)
+    {
+        
+        query = pQuery;
+        
+        search.search(query);
+        
+        //handing over the records searches again, this time with them
+        if (!query.isEmpty() && searchStale && records != null) { 
+            searchRecords(); 
+        }
+
+    }//end of RecordsWindow::searchFor
+    //--------------------------------------------------------------------------
+    
+    //--------------------------------------------------------------------------
+    // RecordsWindow::searchRecords
+    //
+    // Hands a copy of the ids and names of all of the records to the search,
+    // which searches them in the background and then shows the matches sorted
+    // by name.
+    //
+
+    private void searchRecords()
+    {
+        
+        searchStale = false;
+        
+        List<Object[]> rows = new ArrayList<>();
+        
+        String idKey = getDescriptorKeyByName("Id");
+        String nameKey = getDescriptorKeyByName("Name");
+        
+        for (Record r : records) {
+            rows.add(new Object[] { r.getValue(idKey), r.getValue(nameKey) });
+        }
+        
+        search.setData(new hsRowSource() {
+            @Override public int getRowCount() { return rows.size(); }
+            @Override public List<Object[]> getRows(int pFirst, int pCount) {
+                return rows.subList(pFirst, Math.min(rows.size(), pFirst+pCount));
+            }
+        }, 2);
+
+    }//end of RecordsWindow::searchRecords
+    //--------------------------------------------------------------------------
+    
     //--------------------------------------------------------------------------
     // RecordsWindow::setLoading
     //
@@ -406,7 +688,7 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
     // loading image when necessary.
     //
     
-    private void setUpScrollPane() 
+    private void setUpScrollPane(JPanel pPanel) 
     {
         
         JScrollPane sp = new JScrollPane(table) {
@@ -428,7 +710,7 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
         sp.setAlignmentX(LEFT_ALIGNMENT);
         sp.setAlignmentY(TOP_ALIGNMENT);
         Tools.setSizes(sp, 400, 300);
-        addToMainPanel(sp);
+        pPanel.add(sp);
         
     }// end of RecordsWindow::setupTableModel
     //--------------------------------------------------------------------------
@@ -442,15 +724,17 @@ public class RecordsWindow extends AltusJDialog implements CommandHandler
     private void setupTableModel() 
     {
         
-        //initialize model -- allows no editable cells
-        model = new DefaultTableModel() {
-            @Override public boolean isCellEditable(int pR, int pC) {
-                return false;
-            }
-        };
-        
-        //add the column names to the model
-        model.setColumnIdentifiers(new String[]{"Id", "Name"});
+        //initialize model -- allows no editable cells and only makes rows
+        //for the records that are visible
+        model = new hsPagedTableModel(new String[]{"Id", "Name"}, 
+            new hsRowSource() {
+                @Override public int getRowCount() {
+                    return getVisibleCount();
+                }
+                @Override public List<Object[]> getRows(int pFirst, int pCount) {
+                    return RecordsWindow.this.getRows(pFirst, pCount);
+                }
+            }, 100, 8);
         
     }// end of RecordsWindow::setupTableModel
     //--------------------------------------------------------------------------
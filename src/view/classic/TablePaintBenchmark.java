@@ -0,0 +1,212 @@
+/*******************************************************************************
+* Title: TablePaintBenchmark.java
+* Author: Hunter Schoonover
+* Date: 10/17/26
+*
+* Purpose:
+*
+* This class times getting the cells of a CustomTable ready to paint, the way
+* the Records window's table is set up: an Id and a Name column, rows gotten
+* a page at a time from an hsPagedTableModel, and ROW_COUNT rows in all.
+*
+* The table is scrolled through from top to bottom, calling prepareRenderer()
+* for every cell, the same as the table's UI does for each visible cell when
+* it paints. Each cell is then painted into an image, so both the cost of
+* preparing a cell and the cost of painting one are reported, as cells per
+* second.
+*
+* No window is ever shown, so it can be run headless:
+*
+*   java -Djava.awt.headless=true -cp build/classes
+*                                       view.classic.TablePaintBenchmark
+*
+* It is not used by the program.
+*
+*/
+
+//------------------------------------------------------------------------------
+
+package view.classic;
+
+//------------------------------------------------------------------------------
+
+import hscomponents.table.hsPagedTableModel;
+import hscomponents.table.hsRowSource;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.SwingUtilities;
+
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
+// class TablePaintBenchmark
+//
+
+public class TablePaintBenchmark
+{
+
+    private static final int ROW_COUNT = 100000;
+
+    //the same page settings the Records window uses
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_PAGES = 8;
+
+    private static final int COLUMN_WIDTH = 200;
+
+    //passes over the whole table thrown away while the JIT settles, then
+    //passes that are timed
+    private static final int WARM_UP_RUNS = 3;
+    private static final int TIMED_RUNS = 5;
+
+    //--------------------------------------------------------------------------
+    // TablePaintBenchmark::main
+    //
+
+    public static void main(String[] pArgs) throws Exception
+    {
+
+        //tables must only be used from the event dispatch thread
+        SwingUtilities.invokeAndWait(() -> { run(); });
+
+    }//end of TablePaintBenchmark::main
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // TablePaintBenchmark::createTable
+    //
+    // Returns a CustomTable with ROW_COUNT rows, set up like the Records
+    // window's table.
+    //
+
+    private static CustomTable createTable()
+    {
+
+        hsPagedTableModel model = new hsPagedTableModel(
+            new String[] { "Id", "Name" },
+            new hsRowSource() {
+                @Override public int getRowCount() { return ROW_COUNT; }
+                @Override public List<Object[]> getRows(int pFirst, int pCount) {
+                    int last = Math.min(ROW_COUNT, pFirst + pCount);
+                    List<Object[]> rows = new ArrayList<>(last - pFirst);
+                    for (int i=pFirst; i<last; i++) {
+                        rows.add(new Object[] {
+                            Integer.toString(i), "Record Name " + i
+                        });
+                    }
+                    return rows;
+                }
+            }, PAGE_SIZE, MAX_PAGES);
+
+        model.refresh();
+
+        CustomTable table = new CustomTable(model);
+        table.init();
+        table.setSize(COLUMN_WIDTH * model.getColumnCount(),
+                        table.getRowHeight() * ROW_COUNT);
+
+        return table;
+
+    }//end of TablePaintBenchmark::createTable
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // TablePaintBenchmark::pass
+    //
+    // Goes through every cell of pTable from top to bottom, getting it ready
+    // to paint and, if pGraphics isn't null, painting it with pGraphics.
+    // Returns how long it took, in nanoseconds.
+    //
+
+    private static long pass(CustomTable pTable, Graphics2D pGraphics)
+    {
+
+        int columns = pTable.getColumnCount();
+        int height = pTable.getRowHeight();
+
+        long start = System.nanoTime();
+
+        for (int r=0; r<ROW_COUNT; r++) {
+            for (int c=0; c<columns; c++) {
+
+                Component comp = pTable.prepareRenderer(
+                                            pTable.getCellRenderer(r, c), r, c);
+
+                if (pGraphics == null) { continue; }
+
+                comp.setBounds(0, 0, COLUMN_WIDTH, height);
+                comp.paint(pGraphics);
+
+            }
+        }
+
+        return System.nanoTime() - start;
+
+    }//end of TablePaintBenchmark::pass
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // TablePaintBenchmark::report
+    //
+    // Prints the median of pTimes, which are passes over pCells cells each.
+    //
+
+    private static void report(String pName, long[] pTimes, long pCells)
+    {
+
+        Arrays.sort(pTimes);
+        long median = pTimes[pTimes.length/2];
+
+        System.out.println(String.format("%-10s %10.1f ms %14.0f cells/s",
+                                pName, median / 1000000.0,
+                                pCells / (median / 1e9)));
+
+    }//end of TablePaintBenchmark::report
+    //--------------------------------------------------------------------------
+
+    //--------------------------------------------------------------------------
+    // TablePaintBenchmark::run
+    //
+    // Times preparing every cell of the table, then preparing and painting
+    // every cell, and prints the results.
+    //
+
+    private static void run()
+    {
+
+        CustomTable table = createTable();
+
+        BufferedImage image = new BufferedImage(COLUMN_WIDTH,
+                                                table.getRowHeight(),
+                                                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+
+        long cells = (long)ROW_COUNT * table.getColumnCount();
+
+        long[] prepare = new long[TIMED_RUNS];
+        long[] paint = new long[TIMED_RUNS];
+
+        for (int i=-WARM_UP_RUNS; i<TIMED_RUNS; i++) {
+
+            long p = pass(table, null);
+            long q = pass(table, g);
+
+            if (i >= 0) { prepare[i] = p; paint[i] = q; }
+
+        }
+
+        g.dispose();
+
+        System.out.println(String.format("%d rows x %d columns", ROW_COUNT,
+                                            table.getColumnCount()));
+        report("prepare", prepare, cells);
+        report("paint", paint, cells);
+
+    }//end of TablePaintBenchmark::run
+    //--------------------------------------------------------------------------
+
+}//end of class TablePaintBenchmark
+//------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
@@ -93,6 +93,11 @@ public class TransferMaterialWindow extends AltusJDialog implements CommandHandl
     public void init() 
     {
         
+        //handle the commands meant for this window until it is closed
+        subscribe(this, Command.TRANSFER_DESCRIPTORS,
+                    "TransferMaterialWindow -- cancel",
+                    "TransferMaterialWindow -- confirm");
+        
         super.init();
         
         //get the loading image from file
@@ -456,6 +461,11 @@ public class TransferMaterialWindow extends AltusJDialog implements CommandHandl
         
         //set up the movements table using the descriptors
         descriptors = (List<?>)pCommand.get(Command.TRANSFER_DESCRIPTORS);
+        
+        //the descriptors are sent again if they changed after the saved ones
+        //were shown, so start over
+        inputs.clear();
+        inputsPanel.removeAll();
 
         createInputs(descriptors);
         